@@ -0,0 +1,484 @@
+package hospital.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool used by {@link DatabaseConfig}.
+ *
+ * Callers receive a proxy connection; calling close() on it hands the
+ * physical connection back to the pool instead of closing the socket.
+ * Connections are validated on borrow, retired after a maximum lifetime,
+ * and idle connections above the minimum size are evicted by a background
+ * housekeeping task.
+ *
+ * Each physical connection keeps an LRU cache of prepared statements keyed
+ * by SQL text, so the DAOs' repeated prepareStatement(sql) calls reuse the
+ * already parsed statement while the connection lives.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String username, String password,
+                          int minSize, int maxSize, long idleTimeoutMillis,
+                          long maxLifetimeMillis, long borrowTimeoutMillis,
+                          int validationTimeoutSeconds, int statementCacheSize) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis, 30_000L));
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout when the pool
+     * is exhausted. The returned connection must be closed by the caller.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                        " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    return pooled.lease();
+                }
+                destroy(pooled);
+            }
+            return createPooledConnection().lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Open connections up to the configured minimum. Called once at startup
+     * so the first screen after login does not pay for connection setup.
+     */
+    public void warmUp() {
+        try {
+            fillToMinimum();
+        } catch (SQLException e) {
+            System.err.println("Connection pool warm-up failed: " + e.getMessage());
+        }
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Close every idle connection and stop the housekeeper. Connections that
+     * are currently borrowed are closed when they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    // Called by the proxy when the caller closes its logical connection
+    void release(PooledConnection pooled) {
+        try {
+            if (closed || pooled.isBroken() || isExpired(pooled) || !pooled.reset()) {
+                destroy(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (isExpired(pooled)) {
+            return false;
+        }
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        return maxLifetimeMillis > 0 &&
+               System.currentTimeMillis() - pooled.createdAt >= maxLifetimeMillis;
+    }
+
+    private PooledConnection createPooledConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, username, password);
+        totalConnections.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = idleTimeoutMillis > 0 &&
+                    now - pooled.lastUsed >= idleTimeoutMillis &&
+                    totalConnections.get() > minSize;
+            if ((idleTooLong || isExpired(pooled)) && idle.remove(pooled)) {
+                destroy(pooled);
+            }
+        }
+
+        try {
+            fillToMinimum();
+        } catch (SQLException e) {
+            System.err.println("Connection pool refill failed: " + e.getMessage());
+        }
+    }
+
+    private void fillToMinimum() throws SQLException {
+        while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                PooledConnection pooled = createPooledConnection();
+                idle.offerLast(pooled);
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool. Each lease hands out a fresh
+     * proxy so a caller that closes twice cannot return it twice.
+     */
+    final class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        final StatementCache statements;
+        volatile long lastUsed;
+        private volatile boolean broken;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsed = createdAt;
+            this.statements = new StatementCache(statementCacheSize);
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LeaseHandler(this));
+        }
+
+        boolean isBroken() {
+            return broken;
+        }
+
+        void markBroken() {
+            broken = true;
+        }
+
+        /**
+         * Undo anything a DAO may have left behind (an open transaction,
+         * read-only mode) so the next borrower starts from a clean state.
+         */
+        boolean reset() {
+            try {
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (physical.isReadOnly()) {
+                    physical.setReadOnly(false);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Delegates to the physical connection until the caller closes it, then
+     * closes any statements the caller forgot about and returns the
+     * connection to the pool.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private final List<CachedStatementHandler> checkedOut = new ArrayList<>();
+        private boolean logicallyClosed;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        closeOpenStatements();
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+
+            if (logicallyClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if ("prepareStatement".equals(name) && isCacheable(args)) {
+                return prepareCached(proxy, args);
+            }
+
+            try {
+                Object result = method.invoke(pooled.physical, args);
+                if (result instanceof Statement) {
+                    openStatements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isConnectionFailure((SQLException) cause)) {
+                    pooled.markBroken();
+                }
+                throw cause;
+            }
+        }
+
+        // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys)
+        private boolean isCacheable(Object[] args) {
+            return statementCacheSize > 0 && args != null &&
+                   (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+        }
+
+        private Object prepareCached(Object connectionProxy, Object[] args) throws SQLException {
+            String sql = (String) args[0];
+            String key = args.length == 1 ? sql : sql + "|keys=" + args[1];
+
+            StatementCache.Entry entry = pooled.statements.checkOut(key);
+            if (entry != null) {
+                statementCacheHits.incrementAndGet();
+            } else {
+                statementCacheMisses.incrementAndGet();
+                PreparedStatement physical;
+                try {
+                    physical = args.length == 1
+                            ? pooled.physical.prepareStatement(sql)
+                            : pooled.physical.prepareStatement(sql, (Integer) args[1]);
+                } catch (SQLException e) {
+                    if (isConnectionFailure(e)) {
+                        pooled.markBroken();
+                    }
+                    throw e;
+                }
+                entry = pooled.statements.add(key, physical);
+                if (entry == null) {
+                    // Same SQL already checked out on this connection
+                    openStatements.add(physical);
+                    return physical;
+                }
+            }
+
+            CachedStatementHandler handler = new CachedStatementHandler(entry, connectionProxy);
+            checkedOut.add(handler);
+            return Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    handler);
+        }
+
+        private void closeOpenStatements() {
+            for (CachedStatementHandler handler : checkedOut) {
+                handler.checkIn();
+            }
+            checkedOut.clear();
+            for (Statement stmt : openStatements) {
+                try {
+                    stmt.close();
+                } catch (SQLException e) {
+                    // Already closed or connection gone
+                }
+            }
+            openStatements.clear();
+        }
+
+        /**
+         * Wraps a cached statement so that close() puts it back in the cache
+         * instead of closing it on the server.
+         */
+        private final class CachedStatementHandler implements InvocationHandler {
+            private final StatementCache.Entry entry;
+            private final Object connectionProxy;
+            private boolean returned;
+
+            CachedStatementHandler(StatementCache.Entry entry, Object connectionProxy) {
+                this.entry = entry;
+                this.connectionProxy = connectionProxy;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        checkIn();
+                        return null;
+                    case "isClosed":
+                        return returned || entry.statement.isClosed();
+                    case "getConnection":
+                        return connectionProxy;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + entry.statement + "]";
+                    default:
+                        break;
+                }
+
+                if (returned) {
+                    throw new SQLException("Statement has already been closed");
+                }
+
+                try {
+                    return method.invoke(entry.statement, args);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof SQLException && isConnectionFailure((SQLException) cause)) {
+                        pooled.markBroken();
+                    }
+                    throw cause;
+                }
+            }
+
+            void checkIn() {
+                if (returned) {
+                    return;
+                }
+                returned = true;
+                if (entry.reset()) {
+                    entry.inUse = false;
+                } else {
+                    pooled.statements.remove(entry);
+                }
+            }
+        }
+    }
+
+    // SQLState class 08 is "connection exception" across drivers
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
@@ -1,7 +1,6 @@
 package hospital.config;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 import java.io.InputStream;
@@ -9,12 +8,16 @@ import java.io.IOException;
 
 public class DatabaseConfig {
     private static final String CONFIG_FILE = "/properties/config.properties";
+    private static final String EMBEDDED_URL =
+            "jdbc:h2:./data/hospital_db;MODE=MySQL;DATABASE_TO_LOWER=TRUE";
     private static Properties props;
-    
+    private static SqlDialect dialect;
+    private static volatile ConnectionPool pool;
+
     static {
         loadProperties();
     }
-    
+
     private static void loadProperties() {
         props = new Properties();
         try (InputStream is = DatabaseConfig.class.getResourceAsStream(CONFIG_FILE)) {
@@ -24,21 +27,136 @@ public class DatabaseConfig {
         } catch (IOException e) {
             e.printStackTrace();
         }
+        // -Dhospital.db.mode=embedded overrides the file, e.g. for test rigs
+        String mode = System.getProperty("hospital.db.mode");
+        if (mode != null) {
+            props.setProperty("db.mode", mode);
+        }
+        dialect = SqlDialect.forUrl(getUrl());
+    }
+
+    /**
+     * "embedded" runs against a local H2 database file with no server;
+     * anything else uses the configured MySQL server.
+     */
+    public static boolean isEmbedded() {
+        return "embedded".equalsIgnoreCase(props.getProperty("db.mode", "server").trim());
+    }
+
+    public static SqlDialect getDialect() {
+        return dialect;
+    }
+
+    private static String getUrl() {
+        if (isEmbedded()) {
+            return props.getProperty("db.embedded.url", EMBEDDED_URL);
+        }
+        // Server-side prepares so cached statements are parsed once by MySQL;
+        // batched inserts are sent as one multi-row statement
+        return props.getProperty("db.url",
+                "jdbc:mysql://localhost:3306/hospital_db?useServerPrepStmts=true&rewriteBatchedStatements=true");
     }
-    
+
+    /**
+     * Borrow a pooled connection. Closing it returns it to the pool.
+     */
     public static Connection getConnection() throws SQLException {
-        String url = props.getProperty("db.url", "jdbc:mysql://localhost:3306/hospital_db");
-        String username = props.getProperty("db.username", "root");
+        return getPool().getConnection();
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseConfig.class) {
+                p = pool;
+                if (p == null) {
+                    p = createPool();
+                    if (isEmbedded()) {
+                        createEmbeddedSchema(p);
+                    }
+                    if (Boolean.parseBoolean(props.getProperty("db.migrate", "true").trim())) {
+                        runMigrations(p);
+                    }
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Most connections the pool will open, read from the configuration
+     * without creating the pool.
+     */
+    public static int getPoolMaxSize() {
+        return getInt("db.pool.maxSize", 10);
+    }
+
+    private static ConnectionPool createPool() {
+        String username = props.getProperty("db.username", isEmbedded() ? "sa" : "root");
         String password = props.getProperty("db.password", "");
-        
-        return DriverManager.getConnection(url, username, password);
+
+        return new ConnectionPool(getUrl(), username, password,
+                getInt("db.pool.minSize", 2),
+                getPoolMaxSize(),
+                getLong("db.pool.idleTimeoutMs", 5 * 60 * 1000L),
+                getLong("db.pool.maxLifetimeMs", 30 * 60 * 1000L),
+                getLong("db.pool.borrowTimeoutMs", 10 * 1000L),
+                getInt("db.pool.validationTimeoutSec", 2),
+                getInt("db.pool.statementCacheSize", 64));
     }
-    
+
+    private static void createEmbeddedSchema(ConnectionPool p) {
+        try (Connection conn = p.getConnection()) {
+            EmbeddedSchema.create(conn, dialect);
+        } catch (SQLException e) {
+            System.err.println("Embedded schema creation failed: " + e.getMessage());
+        }
+    }
+
+    private static void runMigrations(ConnectionPool p) {
+        try (Connection conn = p.getConnection()) {
+            SchemaMigrator.migrate(conn);
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+        }
+    }
+
+    public static void shutdown() {
+        synchronized (DatabaseConfig.class) {
+            if (pool != null) {
+                pool.shutdown();
+                pool = null;
+            }
+        }
+    }
+
     public static void testConnection() {
         try (Connection conn = getConnection()) {
+            if (!conn.isValid(5)) {
+                System.err.println("Database connection failed: the connection is not valid.");
+                return;
+            }
             System.out.println("Database connection successful!");
+            getPool().warmUp();
         } catch (SQLException e) {
             System.err.println("Database connection failed: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(props.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(props.getProperty(key, String.valueOf(defaultValue)).trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
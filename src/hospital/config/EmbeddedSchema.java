@@ -0,0 +1,185 @@
+package hospital.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the application schema in an embedded database on first start.
+ * Table definitions mirror the MySQL schema the DAOs were written against;
+ * every statement is idempotent, so running it on an existing database is a
+ * no-op.
+ */
+public class EmbeddedSchema {
+
+    public static void create(Connection conn, SqlDialect dialect) throws SQLException {
+        String id = dialect.identityColumn();
+        String text = dialect.textType();
+
+        String[] ddl = {
+            "CREATE TABLE IF NOT EXISTS users (" +
+                "user_id " + id + ", " +
+                "username VARCHAR(50) NOT NULL UNIQUE, " +
+                "password VARCHAR(255) NOT NULL, " +
+                "email VARCHAR(100), " +
+                "role VARCHAR(20) NOT NULL, " +
+                "is_active BOOLEAN DEFAULT TRUE, " +
+                "status VARCHAR(20) DEFAULT 'Active', " +
+                "profile_completed BOOLEAN DEFAULT FALSE, " +
+                "full_name VARCHAR(100), " +
+                "specialization VARCHAR(100), " +
+                "experience_years INT, " +
+                "phone VARCHAR(20), " +
+                "consultation_fee DECIMAL(10,2), " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "last_login TIMESTAMP NULL)",
+
+            "CREATE TABLE IF NOT EXISTS doctors (" +
+                "doctor_id " + id + ", " +
+                "user_id INT NOT NULL, " +
+                "full_name VARCHAR(100), " +
+                "specialization VARCHAR(100), " +
+                "experience_years INT DEFAULT 0, " +
+                "phone VARCHAR(20), " +
+                "email VARCHAR(100), " +
+                "consultation_fee DECIMAL(10,2) DEFAULT 0, " +
+                "is_available BOOLEAN DEFAULT TRUE, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS doctor_schedules (" +
+                "schedule_id " + id + ", " +
+                "doctor_id INT NOT NULL, " +
+                "schedule_date DATE NOT NULL, " +
+                "status VARCHAR(10) NOT NULL, " +
+                "reason VARCHAR(255), " +
+                "UNIQUE (doctor_id, schedule_date))",
+
+            "CREATE TABLE IF NOT EXISTS patients (" +
+                "patient_id " + id + ", " +
+                "first_name VARCHAR(50) NOT NULL, " +
+                "last_name VARCHAR(50), " +
+                "date_of_birth DATE, " +
+                "gender VARCHAR(10), " +
+                "medical_history " + text + ", " +
+                "registered_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS appointments (" +
+                "appointment_id " + id + ", " +
+                "patient_id INT NOT NULL, " +
+                "doctor_id INT NOT NULL, " +
+                "appointment_datetime TIMESTAMP NOT NULL, " +
+                "token_number INT, " +
+                "consultation_fee DECIMAL(10,2) DEFAULT 0, " +
+                "status VARCHAR(20) DEFAULT 'SCHEDULED', " +
+                "created_by INT, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS medical_records (" +
+                "record_id " + id + ", " +
+                "patient_id INT NOT NULL, " +
+                "doctor_id INT NOT NULL, " +
+                "appointment_id INT, " +
+                "visit_date TIMESTAMP, " +
+                "symptoms " + text + ", " +
+                "diagnosis " + text + ", " +
+                "treatment " + text + ", " +
+                "vital_signs VARCHAR(255), " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS medicines (" +
+                "medicine_id " + id + ", " +
+                "name VARCHAR(100) NOT NULL, " +
+                "generic_name VARCHAR(100), " +
+                "manufacturer VARCHAR(100), " +
+                "category VARCHAR(50), " +
+                "unit_price DECIMAL(10,2) DEFAULT 0, " +
+                "stock_quantity INT DEFAULT 0, " +
+                "minimum_stock_level INT DEFAULT 10, " +
+                "expiry_date DATE, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS prescriptions (" +
+                "prescription_id " + id + ", " +
+                "record_id INT NOT NULL, " +
+                "medicine_id INT, " +
+                "medicine_name VARCHAR(100), " +
+                "frequency VARCHAR(50), " +
+                "duration VARCHAR(50), " +
+                "instructions VARCHAR(255), " +
+                "quantity INT DEFAULT 1, " +
+                "total_amount DECIMAL(10,2) DEFAULT 0, " +
+                "status VARCHAR(20) DEFAULT 'Pending', " +
+                "dispensed_by INT, " +
+                "dispensed_at TIMESTAMP NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS bills (" +
+                "bill_id " + id + ", " +
+                "patient_id INT NOT NULL, " +
+                "record_id INT, " +
+                "total_amount DECIMAL(10,2) DEFAULT 0, " +
+                "paid_amount DECIMAL(10,2) DEFAULT 0, " +
+                "status VARCHAR(20) DEFAULT 'PENDING', " +
+                "payment_method VARCHAR(20), " +
+                "created_by INT, " +
+                "bill_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "updated_at TIMESTAMP NULL)",
+
+            "CREATE TABLE IF NOT EXISTS bill_items (" +
+                "item_id " + id + ", " +
+                "bill_id INT NOT NULL, " +
+                "item_type VARCHAR(20), " +
+                "item_name VARCHAR(100), " +
+                "quantity INT DEFAULT 1, " +
+                "unit_price DECIMAL(10,2) DEFAULT 0, " +
+                "total_price DECIMAL(10,2) DEFAULT 0, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+
+            "CREATE TABLE IF NOT EXISTS tests (" +
+                "test_id " + id + ", " +
+                "test_name VARCHAR(100) NOT NULL, " +
+                "description VARCHAR(255), " +
+                "normal_range VARCHAR(100), " +
+                "unit VARCHAR(20), " +
+                "cost DECIMAL(10,2) DEFAULT 0)",
+
+            "CREATE TABLE IF NOT EXISTS test_requests (" +
+                "request_id " + id + ", " +
+                "patient_id INT NOT NULL, " +
+                "doctor_id INT NOT NULL, " +
+                "test_id INT NOT NULL, " +
+                "request_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "status VARCHAR(20) DEFAULT 'Pending', " +
+                "remarks VARCHAR(255), " +
+                "result " + text + ", " +
+                "completed_date TIMESTAMP NULL)",
+
+            "CREATE TABLE IF NOT EXISTS audit_logs (" +
+                "log_id " + id + ", " +
+                "user_id INT, " +
+                "action VARCHAR(100), " +
+                "details " + text + ", " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)"
+        };
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : ddl) {
+                stmt.execute(sql);
+            }
+            seedAdminUser(stmt);
+        }
+    }
+
+    // A fresh install needs one account to log in with
+    private static void seedAdminUser(Statement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            if (rs.next() && rs.getInt(1) > 0) {
+                return;
+            }
+        }
+        stmt.executeUpdate("INSERT INTO users (username, password, email, role, is_active, profile_completed) " +
+                           "VALUES ('admin', 'admin123', 'admin@localhost', 'ADMIN', TRUE, TRUE)");
+    }
+}
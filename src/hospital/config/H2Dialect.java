@@ -0,0 +1,61 @@
+package hospital.config;
+
+/**
+ * Dialect for the embedded H2 database used by single-clinic installs and
+ * offline test rigs.
+ */
+public class H2Dialect extends SqlDialect {
+
+    @Override
+    public String getName() {
+        return "H2";
+    }
+
+    @Override
+    public String currentDate() {
+        return "CURRENT_DATE";
+    }
+
+    @Override
+    public String now() {
+        return "CURRENT_TIMESTAMP";
+    }
+
+    @Override
+    public String concat(String... parts) {
+        return "(" + join(parts, " || ") + ")";
+    }
+
+    @Override
+    public String addDays(String dateExpr, int days) {
+        return "DATEADD('DAY', " + days + ", " + dateExpr + ")";
+    }
+
+    @Override
+    public String addMonths(String dateExpr, int months) {
+        return "DATEADD('MONTH', " + months + ", " + dateExpr + ")";
+    }
+
+    // DATEDIFF counts year boundaries, which is close enough for age bands
+    @Override
+    public String yearsBetween(String fromExpr, String toExpr) {
+        return "DATEDIFF('YEAR', " + fromExpr + ", " + toExpr + ")";
+    }
+
+    @Override
+    public String upsert(String table, String[] keyColumns, String[] valueColumns) {
+        return "MERGE INTO " + table + " (" + join(keyColumns, ", ") + ", " +
+               join(valueColumns, ", ") + ") KEY (" + join(keyColumns, ", ") + ") VALUES (" +
+               placeholders(keyColumns.length + valueColumns.length) + ")";
+    }
+
+    @Override
+    public String identityColumn() {
+        return "INT AUTO_INCREMENT PRIMARY KEY";
+    }
+
+    @Override
+    public String textType() {
+        return "CLOB";
+    }
+}
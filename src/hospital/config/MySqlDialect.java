@@ -0,0 +1,65 @@
+package hospital.config;
+
+public class MySqlDialect extends SqlDialect {
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public String currentDate() {
+        return "CURDATE()";
+    }
+
+    @Override
+    public String now() {
+        return "NOW()";
+    }
+
+    @Override
+    public String concat(String... parts) {
+        return "CONCAT(" + join(parts, ", ") + ")";
+    }
+
+    @Override
+    public String addDays(String dateExpr, int days) {
+        return "DATE_ADD(" + dateExpr + ", INTERVAL " + days + " DAY)";
+    }
+
+    @Override
+    public String addMonths(String dateExpr, int months) {
+        return "DATE_ADD(" + dateExpr + ", INTERVAL " + months + " MONTH)";
+    }
+
+    @Override
+    public String yearsBetween(String fromExpr, String toExpr) {
+        return "TIMESTAMPDIFF(YEAR, " + fromExpr + ", " + toExpr + ")";
+    }
+
+    @Override
+    public String upsert(String table, String[] keyColumns, String[] valueColumns) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT INTO ").append(table).append(" (")
+           .append(join(keyColumns, ", ")).append(", ").append(join(valueColumns, ", "))
+           .append(") VALUES (").append(placeholders(keyColumns.length + valueColumns.length))
+           .append(") ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < valueColumns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(valueColumns[i]).append(" = VALUES(").append(valueColumns[i]).append(")");
+        }
+        return sql.toString();
+    }
+
+    @Override
+    public String identityColumn() {
+        return "INT AUTO_INCREMENT PRIMARY KEY";
+    }
+
+    @Override
+    public String textType() {
+        return "TEXT";
+    }
+}
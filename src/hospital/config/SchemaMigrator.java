@@ -0,0 +1,231 @@
+package hospital.config;
+
+import hospital.dao.LabResultDAO;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Versioned schema changes applied at startup.
+ *
+ * Applied versions are recorded in schema_version, so each migration runs
+ * once per database. Migrations are append-only: never edit one that has
+ * shipped, add a new version instead.
+ */
+public class SchemaMigrator {
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        MIGRATIONS.add(new Migration(1, "Indexes for date-range and status queries")
+            .index("idx_appointments_doctor_datetime", "appointments", "doctor_id", "appointment_datetime")
+            .index("idx_appointments_patient_datetime", "appointments", "patient_id", "appointment_datetime")
+            .index("idx_appointments_datetime", "appointments", "appointment_datetime")
+            .index("idx_test_requests_status_date", "test_requests", "status", "request_date")
+            .index("idx_prescriptions_status_dispensed", "prescriptions", "status", "dispensed_at")
+            .index("idx_prescriptions_created", "prescriptions", "created_at")
+            .index("idx_prescriptions_record", "prescriptions", "record_id")
+            .index("idx_patients_registered", "patients", "registered_at")
+            .index("idx_bills_created", "bills", "created_at"));
+
+        // Secondary indexes already end with the primary key, which serves as
+        // the tie-breaker in each seek; patients and users page on their
+        // primary keys and need none
+        MIGRATIONS.add(new Migration(2, "Indexes for keyset-paginated lists")
+            .index("idx_medicines_name", "medicines", "name"));
+
+        MIGRATIONS.add(new Migration(3, "Per-doctor daily token sequences")
+            .sql("CREATE TABLE IF NOT EXISTS token_sequences (" +
+                 "doctor_id INT NOT NULL, " +
+                 "token_date DATE NOT NULL, " +
+                 "next_token INT NOT NULL, " +
+                 "PRIMARY KEY (doctor_id, token_date))")
+            .sql("CREATE TABLE IF NOT EXISTS token_releases (" +
+                 "doctor_id INT NOT NULL, " +
+                 "token_date DATE NOT NULL, " +
+                 "token_number INT NOT NULL, " +
+                 "PRIMARY KEY (doctor_id, token_date, token_number))"));
+
+        MIGRATIONS.add(new Migration(4, "Change log for incremental refreshes")
+            .sql("CREATE TABLE IF NOT EXISTS change_log (" +
+                 "change_id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                 "table_name VARCHAR(40) NOT NULL, " +
+                 "row_id INT NOT NULL, " +
+                 "change_type CHAR(1) NOT NULL, " +
+                 "changed_at TIMESTAMP NOT NULL)")
+            .index("idx_change_log_table", "change_log", "table_name", "change_id")
+            .index("idx_change_log_changed", "change_log", "changed_at"));
+
+        MIGRATIONS.add(new Migration(5, "Priority of lab test requests")
+            .column("test_requests", "priority", "VARCHAR(10) NOT NULL DEFAULT 'Routine'"));
+
+        // Numeric results already entered as text are parsed once, here
+        MIGRATIONS.add(new Migration(6, "Numeric lab results for trends")
+            .sql("CREATE TABLE IF NOT EXISTS lab_results (" +
+                 "request_id INT PRIMARY KEY, " +
+                 "patient_id INT NOT NULL, " +
+                 "test_id INT NOT NULL, " +
+                 "result_value DOUBLE NOT NULL, " +
+                 "unit VARCHAR(20), " +
+                 "range_low DOUBLE, " +
+                 "range_high DOUBLE, " +
+                 "flag CHAR(1), " +
+                 "completed_date TIMESTAMP NOT NULL)")
+            .index("idx_lab_results_patient_test", "lab_results", "patient_id", "test_id", "completed_date")
+            .step(LabResultDAO::backfill));
+
+        MIGRATIONS.add(new Migration(7, "Index for the dashboard's pending bill count")
+            .index("idx_bills_status", "bills", "status"));
+    }
+
+    public static void migrate(Connection conn) throws SQLException {
+        ensureVersionTable(conn);
+        int current = getCurrentVersion(conn);
+
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            for (Step step : migration.steps) {
+                step.apply(conn);
+            }
+            recordVersion(conn, migration);
+            System.out.println("Applied schema migration " + migration.version +
+                    ": " + migration.description);
+        }
+    }
+
+    public static int getLatestVersion() {
+        return MIGRATIONS.isEmpty() ? 0 : MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    private static void ensureVersionTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                         "version INT PRIMARY KEY, " +
+                         "description VARCHAR(255), " +
+                         "applied_at TIMESTAMP)");
+        }
+    }
+
+    private static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // Another workstation starting at the same time recorded it first
+            if (getCurrentVersion(conn) < migration.version) {
+                throw e;
+            }
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String indexName) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, table, null)) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final List<Step> steps = new ArrayList<>();
+
+        Migration(int version, String description) {
+            this.version = version;
+            this.description = description;
+        }
+
+        Migration sql(String statement) {
+            steps.add(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(statement);
+                }
+            });
+            return this;
+        }
+
+        Migration step(Step step) {
+            steps.add(step);
+            return this;
+        }
+
+        // Skipped when the column already exists, e.g. added by another workstation starting at the same time
+        Migration column(String table, String column, String definition) {
+            String ddl = "ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition;
+            steps.add(conn -> {
+                if (columnExists(conn, table, column)) {
+                    return;
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(ddl);
+                } catch (SQLException e) {
+                    if (!columnExists(conn, table, column)) {
+                        throw e;
+                    }
+                }
+            });
+            return this;
+        }
+
+        // Skipped when an index of that name already exists, e.g. one added by hand
+        Migration index(String name, String table, String... columns) {
+            String ddl = "CREATE INDEX " + name + " ON " + table +
+                         " (" + String.join(", ", Arrays.asList(columns)) + ")";
+            steps.add(conn -> {
+                if (indexExists(conn, table, name)) {
+                    return;
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(ddl);
+                } catch (SQLException e) {
+                    if (!indexExists(conn, table, name)) {
+                        throw e;
+                    }
+                }
+            });
+            return this;
+        }
+    }
+}
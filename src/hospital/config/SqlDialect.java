@@ -0,0 +1,60 @@
+package hospital.config;
+
+/**
+ * Vendor-specific SQL fragments used by the DAOs. Everything else the DAOs
+ * write is plain SQL that MySQL and the embedded H2 database both accept.
+ */
+public abstract class SqlDialect {
+
+    public static SqlDialect forUrl(String url) {
+        if (url != null && url.startsWith("jdbc:h2:")) {
+            return new H2Dialect();
+        }
+        return new MySqlDialect();
+    }
+
+    public abstract String getName();
+
+    /** Today's date, without a time part. */
+    public abstract String currentDate();
+
+    /** Current timestamp. */
+    public abstract String now();
+
+    /** String concatenation; NULL if any part is NULL, as in MySQL. */
+    public abstract String concat(String... parts);
+
+    public abstract String addDays(String dateExpr, int days);
+
+    public abstract String addMonths(String dateExpr, int months);
+
+    /** Whole years between two dates. */
+    public abstract String yearsBetween(String fromExpr, String toExpr);
+
+    /**
+     * Insert-or-update on the given key columns. Parameters are bound in
+     * order: all key columns, then all value columns.
+     */
+    public abstract String upsert(String table, String[] keyColumns, String[] valueColumns);
+
+    /** Column definition for an auto-increment integer primary key. */
+    public abstract String identityColumn();
+
+    /** Column type for unbounded text. */
+    public abstract String textType();
+
+    protected static String join(String[] parts, String separator) {
+        return String.join(separator, parts);
+    }
+
+    protected static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,116 @@
+package hospital.config;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of prepared statements for a single pooled connection, keyed by
+ * SQL text. A statement is handed to one caller at a time; a second prepare
+ * of the same SQL while the first is still open gets an uncached statement.
+ *
+ * Only ever touched by the thread that currently holds the connection, so
+ * no locking is needed.
+ */
+class StatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, Entry> entries;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a cached idle statement for the key and marks it in use, or
+     * null when there is none.
+     */
+    Entry checkOut(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.inUse) {
+            return null;
+        }
+        entry.inUse = true;
+        return entry;
+    }
+
+    /**
+     * Cache a freshly prepared statement, already marked in use. Returns
+     * null when the cache is disabled or the key is held by another caller,
+     * in which case the statement is not cached.
+     */
+    Entry add(String key, PreparedStatement statement) {
+        if (maxSize <= 0 || entries.containsKey(key)) {
+            return null;
+        }
+        Entry entry = new Entry(statement);
+        entry.inUse = true;
+        entries.put(key, entry);
+        evictOverflow();
+        return entry;
+    }
+
+    void remove(Entry entry) {
+        entries.values().remove(entry);
+        entry.closeQuietly();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    // Drop least recently used statements that nobody is holding
+    private void evictOverflow() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() - evicted.size() > maxSize && it.hasNext()) {
+            Entry entry = it.next().getValue();
+            if (!entry.inUse) {
+                it.remove();
+                evicted.add(entry);
+            }
+        }
+        for (Entry entry : evicted) {
+            entry.closeQuietly();
+        }
+    }
+
+    static final class Entry {
+        final PreparedStatement statement;
+        boolean inUse;
+
+        Entry(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        /**
+         * Make the statement ready for the next caller without closing it.
+         * Returns false when it could not be reset and should be discarded.
+         */
+        boolean reset() {
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement is being discarded anyway
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package hospital.controllers;
+
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.JTextComponent;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Search-as-you-type for a Swing text field.
+ *
+ * Typing restarts a short timer and only the text present when it fires is
+ * searched. Each search runs on a SwingWorker; starting a new one cancels
+ * the previous one, and a result that arrives after a newer search started
+ * is dropped, so the table never shows results for older text. Recent
+ * results are cached by search term. When a Narrower is set, a longer term
+ * is answered by filtering the cached results of its prefix, so typing a
+ * name out one letter at a time costs one query.
+ *
+ * All methods must be called on the event dispatch thread, and the handler
+ * is always called there.
+ */
+public class SearchController<T> {
+    public static final int DEFAULT_DELAY_MILLIS = 250;
+    private static final int CACHE_SIZE = 32;
+    private static final long CACHE_TTL_MILLIS = 30_000L;
+
+    public interface SearchFunction<T> {
+        List<T> search(String term) throws Exception;
+    }
+
+    public interface ResultHandler<T> {
+        void onResults(String term, List<T> results);
+
+        default void onError(String term, Exception e) {
+            e.printStackTrace();
+        }
+
+        /** The field was emptied; typically reloads the unfiltered view. */
+        default void onCleared() {
+        }
+    }
+
+    public interface Narrower<T> {
+        /**
+         * Results for term derived from the complete results for a shorter
+         * prefix of it, or null if this search can't be answered that way.
+         */
+        List<T> narrow(String prefix, List<T> prefixResults, String term);
+    }
+
+    private final JTextComponent field;
+    private final SearchFunction<T> searchFunction;
+    private final ResultHandler<T> resultHandler;
+    private final Timer debounceTimer;
+    private final Map<String, CachedResult<T>> cache =
+            new LinkedHashMap<String, CachedResult<T>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedResult<T>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private Narrower<T> narrower;
+    private int resultLimit = Integer.MAX_VALUE;
+    private SwingWorker<List<T>, Void> inFlight;
+    private long generation;
+
+    public SearchController(JTextComponent field, int delayMillis,
+                            SearchFunction<T> searchFunction, ResultHandler<T> resultHandler) {
+        this.field = field;
+        this.searchFunction = searchFunction;
+        this.resultHandler = resultHandler;
+        this.debounceTimer = new Timer(delayMillis, e -> search(field.getText()));
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /** Search automatically while the user types. */
+    public SearchController<T> searchWhileTyping() {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounceTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounceTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // Attribute changes only; the text is the same
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Answer longer terms from the cached results of a prefix. Results for a
+     * prefix are only used if there are fewer than resultLimit of them,
+     * i.e. the search function did not cut them short.
+     */
+    public SearchController<T> setNarrower(Narrower<T> narrower, int resultLimit) {
+        this.narrower = narrower;
+        this.resultLimit = resultLimit;
+        return this;
+    }
+
+    /** Search the current text now, e.g. from a Search button or Enter. */
+    public void searchNow() {
+        debounceTimer.stop();
+        search(field.getText());
+    }
+
+    /** Forget cached results, e.g. after the underlying data was edited. */
+    public void invalidate() {
+        cache.clear();
+    }
+
+    /** Stop any pending or running search; its results will be dropped. */
+    public void cancel() {
+        debounceTimer.stop();
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+
+    private void search(String text) {
+        String term = text.trim();
+        cancel();
+
+        if (term.isEmpty()) {
+            resultHandler.onCleared();
+            return;
+        }
+
+        String key = term.toLowerCase();
+        List<T> cached = lookup(key);
+        if (cached == null) {
+            cached = narrowFromPrefix(key, term);
+        }
+        if (cached != null) {
+            resultHandler.onResults(term, cached);
+            return;
+        }
+
+        long searchGeneration = generation;
+        SwingWorker<List<T>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<T> doInBackground() throws Exception {
+                return searchFunction.search(term);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || searchGeneration != generation) {
+                    return;
+                }
+                inFlight = null;
+                try {
+                    List<T> results = Collections.unmodifiableList(get());
+                    cache.put(key, new CachedResult<>(results));
+                    resultHandler.onResults(term, results);
+                } catch (CancellationException e) {
+                    // Superseded by a newer search
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    resultHandler.onError(term, cause instanceof Exception ? (Exception) cause : e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        inFlight = worker;
+        worker.execute();
+    }
+
+    private List<T> lookup(String key) {
+        CachedResult<T> entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.results;
+    }
+
+    private List<T> narrowFromPrefix(String key, String term) {
+        if (narrower == null) {
+            return null;
+        }
+        for (int length = key.length() - 1; length > 0; length--) {
+            String prefix = key.substring(0, length);
+            List<T> prefixResults = lookup(prefix);
+            if (prefixResults == null || prefixResults.size() >= resultLimit) {
+                continue;
+            }
+            List<T> narrowed = narrower.narrow(prefix, prefixResults, term);
+            if (narrowed != null) {
+                narrowed = Collections.unmodifiableList(narrowed);
+                // Keep the prefix's age so narrowed results expire with their source
+                cache.put(key, new CachedResult<>(narrowed, cache.get(prefix).loadedAt));
+                return narrowed;
+            }
+        }
+        return null;
+    }
+
+    private static final class CachedResult<T> {
+        final List<T> results;
+        final long loadedAt;
+
+        CachedResult(List<T> results) {
+            this(results, System.currentTimeMillis());
+        }
+
+        CachedResult(List<T> results, long loadedAt) {
+            this.results = results;
+            this.loadedAt = loadedAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt >= CACHE_TTL_MILLIS;
+        }
+    }
+}
@@ -2,130 +2,218 @@ package hospital.dao;
 
 import hospital.config.DatabaseConfig;
 import hospital.models.Appointment;
-import hospital.models.DoctorSchedule;
+import hospital.utils.DateUtil;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 public class AppointmentDAO {
 
-     public int getNextTokenNumber(int userId, LocalDate date) throws SQLException {
-        String sql = "SELECT COALESCE(MAX(token_number), 0) + 1 FROM appointments " +
-                "WHERE doctor_id = ? AND DATE(appointment_datetime) = ?";
+    private final TokenSequenceDAO tokenSequenceDAO = new TokenSequenceDAO();
 
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Everything a booking has to check, read in one query: the doctor's
+     * schedule entry for the date and the patient's active appointments
+     * that day.
+     */
+    public static class BookingCheck {
+        private String scheduleStatus;
+        private String leaveReason;
+        private final List<Appointment> patientAppointments = new ArrayList<>();
+
+        /** No schedule entry means the doctor is on duty. */
+        public boolean isDoctorOnLeave() {
+            return scheduleStatus != null && !"DUTY".equalsIgnoreCase(scheduleStatus);
+        }
 
-            stmt.setInt(1, userId);  // Use user_id here
-            stmt.setDate(2, Date.valueOf(date));
+        public String getLeaveReason() { return leaveReason; }
 
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+        /** Doctor ID, doctor name and token of each; other fields are unset. */
+        public List<Appointment> getPatientAppointments() { return patientAppointments; }
+    }
+
+    public BookingCheck getBookingCheck(Connection conn, int patientId, int doctorId, LocalDate date)
+            throws SQLException {
+        // The anchor row makes the joins return one row even when nothing matches
+        String sql = "SELECT s.status AS schedule_status, s.reason AS leave_reason, " +
+                "a.appointment_id, a.doctor_id, a.token_number, " +
+                "u.username AS doctor_name " +
+                "FROM (SELECT 1 AS anchor) x " +
+                "LEFT JOIN doctor_schedules s ON s.doctor_id = ? AND s.schedule_date = ? " +
+                "LEFT JOIN appointments a ON a.patient_id = ? " +
+                "AND a.appointment_datetime >= ? AND a.appointment_datetime < ? " +
+                "AND a.status NOT IN ('CANCELLED', 'COMPLETED') " +
+                "LEFT JOIN users u ON u.user_id = a.doctor_id " +
+                "ORDER BY a.appointment_id";
+
+        BookingCheck check = new BookingCheck();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, doctorId);
+            stmt.setDate(2, Date.valueOf(date));
+            stmt.setInt(3, patientId);
+            stmt.setTimestamp(4, DateUtil.dayStart(date));
+            stmt.setTimestamp(5, DateUtil.nextDayStart(date));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (first) {
+                        check.scheduleStatus = rs.getString("schedule_status");
+                        check.leaveReason = rs.getString("leave_reason");
+                        first = false;
+                    }
+                    int appointmentId = rs.getInt("appointment_id");
+                    if (rs.wasNull()) {
+                        continue;
+                    }
+                    Appointment existing = new Appointment();
+                    existing.setAppointmentId(appointmentId);
+                    existing.setPatientId(patientId);
+                    existing.setDoctorId(rs.getInt("doctor_id"));
+                    existing.setTokenNumber(rs.getInt("token_number"));
+                    existing.setDoctorName(rs.getString("doctor_name"));
+                    check.patientAppointments.add(existing);
+                }
             }
         }
-        return 1;
+        return check;
     }
 
-       public Appointment createAppointment(Appointment appointment) throws SQLException {
-        // Check if doctor is available on that date
-        DoctorScheduleDAO scheduleDAO = new DoctorScheduleDAO();
-        LocalDate appointmentDate = appointment.getAppointmentDateTime().toLocalDate();
-        
-        // Note: You'll need to update DoctorScheduleDAO to also work with user_id
-        if (!scheduleDAO.isDoctorAvailable(appointment.getDoctorId(), appointmentDate)) {
-            DoctorSchedule schedule = scheduleDAO.getScheduleForDate(appointment.getDoctorId(), appointmentDate);
-            String reason = schedule != null && schedule.getReason() != null ? 
-                " (" + schedule.getReason() + ")" : "";
-            throw new SQLException("Doctor is on LEAVE on this date" + reason);
-        }
-        
-        // Get consultation fee using user_id
-        DoctorDAO doctorDAO = new DoctorDAO();
-        double consultationFee = doctorDAO.getConsultationFeeByUserId(appointment.getDoctorId());
-        appointment.setConsultationFee(consultationFee);
-        
-        // Get next token number using user_id
-        int tokenNumber = getNextTokenNumber(appointment.getDoctorId(), appointmentDate);
-        appointment.setTokenNumber(tokenNumber);
-        
+    /**
+     * Inserts the appointment on the caller's connection and returns its
+     * generated ID. The token number must already be set.
+     */
+    public int insertAppointment(Connection conn, Appointment appointment) throws SQLException {
         String sql = "INSERT INTO appointments (patient_id, doctor_id, appointment_datetime, " +
                 "token_number, consultation_fee, status, created_by, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, NOW())";
-
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                "VALUES (?, ?, ?, ?, ?, ?, ?, " + DatabaseConfig.getDialect().now() + ")";
 
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, appointment.getPatientId());
-            stmt.setInt(2, appointment.getDoctorId());  // This should be user_id now
+            stmt.setInt(2, appointment.getDoctorId());  // users.user_id
             stmt.setTimestamp(3, Timestamp.valueOf(appointment.getAppointmentDateTime()));
             stmt.setInt(4, appointment.getTokenNumber());
             stmt.setDouble(5, appointment.getConsultationFee());
             stmt.setString(6, appointment.getStatus());
             stmt.setInt(7, appointment.getCreatedBy());
 
-            // System.out.println("DEBUG: Inserting appointment with doctor_id (user_id): " + appointment.getDoctorId());
-            // System.out.println("DEBUG: Consultation fee: " + appointment.getConsultationFee());
-            
-            int result = stmt.executeUpdate();
-            if (result > 0) {
-                ResultSet rs = stmt.getGeneratedKeys();
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
                 if (rs.next()) {
                     int appointmentId = rs.getInt(1);
-                    return getAppointmentById(appointmentId);
+                    ChangeLog.record(conn, ChangeLog.APPOINTMENTS, ChangeLog.INSERT, appointmentId);
+                    return appointmentId;
                 }
             }
         }
-        return null;
+        throw new SQLException("Creating appointment failed, no ID obtained.");
     }
 
-    // Update other methods to join with users table instead of doctors table
-    public List<Appointment> getTodaysAppointments(int userId) throws SQLException {
-        List<Appointment> appointments = new ArrayList<>();
-        String sql = "SELECT a.*, COALESCE(a.consultation_fee,0) AS consultation_fee, " +
-                "p.first_name AS patient_name, " +
-                "u.username AS doctor_name " +  // From users table
-                "FROM appointments a " +
-                "JOIN patients p ON a.patient_id = p.patient_id " +
-                "JOIN users u ON a.doctor_id = u.user_id " +  // Join with users
-                "WHERE a.doctor_id = ? AND DATE(a.appointment_datetime) = CURDATE() " +
-                "ORDER BY a.token_number";
-
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
+    /**
+     * Cancels an appointment and frees its token for the next booking with
+     * the same doctor that day.
+     *
+     * @return false if it doesn't exist or is already cancelled or completed
+     */
+    public boolean cancelAppointment(int appointmentId) throws SQLException {
+        String selectSql = "SELECT doctor_id, appointment_datetime, token_number, status " +
+                "FROM appointments WHERE appointment_id = ? FOR UPDATE";
+        String updateSql = "UPDATE appointments SET status = 'CANCELLED' WHERE appointment_id = ?";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int doctorId;
+                LocalDate date;
+                int tokenNumber;
+                try (PreparedStatement stmt = conn.prepareStatement(selectSql)) {
+                    stmt.setInt(1, appointmentId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return false;
+                        }
+                        String status = rs.getString("status");
+                        if ("CANCELLED".equalsIgnoreCase(status) || "COMPLETED".equalsIgnoreCase(status)) {
+                            conn.rollback();
+                            return false;
+                        }
+                        doctorId = rs.getInt("doctor_id");
+                        date = rs.getTimestamp("appointment_datetime").toLocalDateTime().toLocalDate();
+                        tokenNumber = rs.getInt("token_number");
+                    }
+                }
 
-            while (rs.next()) {
-                appointments.add(mapResultSetToAppointment(rs));
+                try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                    stmt.setInt(1, appointmentId);
+                    stmt.executeUpdate();
+                }
+                tokenSequenceDAO.release(conn, doctorId, date, tokenNumber);
+                ChangeLog.record(conn, ChangeLog.APPOINTMENTS, ChangeLog.UPDATE, appointmentId);
+
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
-        return appointments;
+    }
+
+    // Update other methods to join with users table instead of doctors table
+    public List<Appointment> getTodaysAppointments(int userId) throws SQLException {
+        return findTodaysAppointments("AND a.doctor_id = ? ", Collections.singletonList(userId));
     }
 
     /**
      * Get all appointments for today (no doctor filter)
      */
     public List<Appointment> getTodaysAppointments() throws SQLException {
+        return findTodaysAppointments("", Collections.emptyList());
+    }
+
+    /**
+     * Today's appointments among the given IDs, e.g. those the change log
+     * reports as changed; IDs of other days' appointments are left out.
+     */
+    public List<Appointment> getTodaysAppointmentsByIds(Collection<Integer> appointmentIds) throws SQLException {
+        if (appointmentIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(appointmentIds.size(), "?"));
+        return findTodaysAppointments("AND a.appointment_id IN (" + placeholders + ") ", appointmentIds);
+    }
+
+    private List<Appointment> findTodaysAppointments(String extraWhere, Collection<Integer> params) throws SQLException {
         List<Appointment> appointments = new ArrayList<>();
+        LocalDate today = LocalDate.now();
         String sql = "SELECT a.*, COALESCE(a.consultation_fee,0) AS consultation_fee, " +
                 "p.first_name AS patient_name, " +
-                "u.username AS doctor_name " +
+                "u.username AS doctor_name " +  // From users table
                 "FROM appointments a " +
                 "JOIN patients p ON a.patient_id = p.patient_id " +
-                "JOIN users u ON a.doctor_id = u.user_id " +
-                "WHERE DATE(a.appointment_datetime) = CURDATE() " +
+                "JOIN users u ON a.doctor_id = u.user_id " +  // Join with users
+                "WHERE a.appointment_datetime >= ? AND a.appointment_datetime < ? " + extraWhere +
                 "ORDER BY a.token_number";
 
         try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                appointments.add(mapResultSetToAppointment(rs));
+            stmt.setTimestamp(1, DateUtil.dayStart(today));
+            stmt.setTimestamp(2, DateUtil.nextDayStart(today));
+            int index = 3;
+            for (int param : params) {
+                stmt.setInt(index++, param);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    appointments.add(mapResultSetToAppointment(rs));
+                }
             }
         }
         return appointments;
@@ -141,15 +229,15 @@ public class AppointmentDAO {
                 "FROM appointments a " +
                 "JOIN patients p ON a.patient_id = p.patient_id " +
                 "JOIN users u ON a.doctor_id = u.user_id " +
-                "WHERE a.doctor_id = ? AND DATE(a.appointment_datetime) BETWEEN ? AND ? " +
+                "WHERE a.doctor_id = ? AND a.appointment_datetime >= ? AND a.appointment_datetime < ? " +
                 "ORDER BY a.appointment_datetime, a.token_number";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, doctorId);
-            stmt.setDate(2, Date.valueOf(startDate));
-            stmt.setDate(3, Date.valueOf(endDate));
+            stmt.setTimestamp(2, DateUtil.dayStart(startDate));
+            stmt.setTimestamp(3, DateUtil.nextDayStart(endDate));
             ResultSet rs = stmt.executeQuery();
 
             while (rs.next()) {
@@ -161,15 +249,47 @@ public class AppointmentDAO {
 
     // Update appointment status
     public boolean updateAppointmentStatus(int appointmentId, String status) throws SQLException {
+        if ("CANCELLED".equalsIgnoreCase(status)) {
+            return cancelAppointment(appointmentId);
+        }
         String sql = "UPDATE appointments SET status = ? WHERE appointment_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, status);
+                stmt.setInt(2, appointmentId);
 
-            stmt.setString(1, status);
-            stmt.setInt(2, appointmentId);
+                boolean updated = stmt.executeUpdate() > 0;
+                if (updated) {
+                    ChangeLog.record(conn, ChangeLog.APPOINTMENTS, ChangeLog.UPDATE, appointmentId);
+                }
+                conn.commit();
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Marks the appointment COMPLETED on the caller's connection, unless it
+     * already is or was cancelled. Returns the rows changed; 0 means the
+     * consultation was closed elsewhere. The row stays locked until the
+     * transaction ends.
+     */
+    public int completeAppointment(Connection conn, int appointmentId) throws SQLException {
+        String sql = "UPDATE appointments SET status = 'COMPLETED' " +
+                "WHERE appointment_id = ? AND status NOT IN ('COMPLETED', 'CANCELLED')";
 
-            return stmt.executeUpdate() > 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, appointmentId);
+            int updated = stmt.executeUpdate();
+            if (updated > 0) {
+                ChangeLog.record(conn, ChangeLog.APPOINTMENTS, ChangeLog.UPDATE, appointmentId);
+            }
+            return updated;
         }
     }
 
@@ -205,14 +325,15 @@ public class AppointmentDAO {
      */
     public boolean hasAppointmentOnDate(int patientId, LocalDate date) throws SQLException {
         String sql = "SELECT COUNT(*) FROM appointments " +
-                "WHERE patient_id = ? AND DATE(appointment_datetime) = ? " +
+                "WHERE patient_id = ? AND appointment_datetime >= ? AND appointment_datetime < ? " +
                 "AND status NOT IN ('CANCELLED', 'COMPLETED')";
 
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, patientId);
-            stmt.setDate(2, Date.valueOf(date));
+            stmt.setTimestamp(2, DateUtil.dayStart(date));
+            stmt.setTimestamp(3, DateUtil.nextDayStart(date));
 
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -229,7 +350,8 @@ public class AppointmentDAO {
      */
     public boolean hasAppointmentWithDoctor(int patientId, int doctorId, LocalDate date) throws SQLException {
         String sql = "SELECT COUNT(*) FROM appointments " +
-                "WHERE patient_id = ? AND doctor_id = ? AND DATE(appointment_datetime) = ? " +
+                "WHERE patient_id = ? AND doctor_id = ? " +
+                "AND appointment_datetime >= ? AND appointment_datetime < ? " +
                 "AND status NOT IN ('CANCELLED', 'COMPLETED')";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -237,7 +359,8 @@ public class AppointmentDAO {
 
             stmt.setInt(1, patientId);
             stmt.setInt(2, doctorId);
-            stmt.setDate(3, Date.valueOf(date));
+            stmt.setTimestamp(3, DateUtil.dayStart(date));
+            stmt.setTimestamp(4, DateUtil.nextDayStart(date));
 
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -261,14 +384,15 @@ public Appointment getPatientAppointmentOnDate(int patientId, LocalDate date) th
             "JOIN patients p ON a.patient_id = p.patient_id " +
             "JOIN users u ON a.doctor_id = u.user_id " +  // Changed from doctors d to users u
             "WHERE a.patient_id = ? " +
-            "AND DATE(a.appointment_datetime) = ? " +
+            "AND a.appointment_datetime >= ? AND a.appointment_datetime < ? " +
             "AND a.status NOT IN ('CANCELLED', 'COMPLETED')";
 
     try (Connection conn = DatabaseConfig.getConnection();
             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
         stmt.setInt(1, patientId);
-        stmt.setDate(2, Date.valueOf(date));
+        stmt.setTimestamp(2, DateUtil.dayStart(date));
+        stmt.setTimestamp(3, DateUtil.nextDayStart(date));
 
         ResultSet rs = stmt.executeQuery();
         if (rs.next()) {
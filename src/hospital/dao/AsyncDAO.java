@@ -0,0 +1,118 @@
+package hospital.dao;
+
+import hospital.config.DatabaseConfig;
+import javax.swing.SwingUtilities;
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs DAO calls off the Swing event dispatch thread.
+ *
+ * Each call runs on a virtual thread when the JVM has them (Java 21+), or
+ * otherwise on a fixed pool of daemon threads. Either way at most as many
+ * calls run at once as the connection pool has connections, so a burst of
+ * screens loading queues here rather than timing out waiting for a
+ * connection. Independent loads started together run in parallel.
+ *
+ * Use load() from a panel: the query runs in the background and its result
+ * or error is handed to the callbacks on the event dispatch thread.
+ */
+public final class AsyncDAO {
+
+    @FunctionalInterface
+    public interface Query<T> {
+        T run() throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface Update {
+        void run() throws SQLException;
+    }
+
+    private static final int MAX_CONCURRENT = DatabaseConfig.getPoolMaxSize();
+    private static final Semaphore permits = new Semaphore(MAX_CONCURRENT);
+    private static final ExecutorService executor = createExecutor();
+
+    private AsyncDAO() {
+    }
+
+    /** Runs query in the background. */
+    public static <T> CompletableFuture<T> supply(Query<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return query.run();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    /** Runs update in the background. */
+    public static CompletableFuture<Void> run(Update update) {
+        return supply(() -> {
+            update.run();
+            return null;
+        });
+    }
+
+    /**
+     * Hands the outcome of future to onSuccess or onError on the event
+     * dispatch thread. The error is the DAO's own exception, not the
+     * CompletionException wrapping it.
+     */
+    public static <T> CompletableFuture<T> onEdt(CompletableFuture<T> future,
+                                                 Consumer<? super T> onSuccess,
+                                                 Consumer<? super Throwable> onError) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                onSuccess.accept(result);
+            } else {
+                onError.accept(unwrap(error));
+            }
+        }));
+        return future;
+    }
+
+    /** Runs query in the background and passes the outcome back on the event dispatch thread. */
+    public static <T> CompletableFuture<T> load(Query<T> query, Consumer<? super T> onSuccess,
+                                                Consumer<? super Throwable> onError) {
+        return onEdt(supply(query), onSuccess, onError);
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21+; looked up so the code still compiles and runs on 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            return Executors.newFixedThreadPool(MAX_CONCURRENT, r -> {
+                Thread t = new Thread(r, "db-async-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+}
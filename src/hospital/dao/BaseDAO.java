@@ -1,6 +1,7 @@
 package hospital.dao;
 
 import hospital.config.DatabaseConfig;
+import hospital.config.SqlDialect;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -8,6 +9,10 @@ public abstract class BaseDAO {
     protected Connection getConnection() throws SQLException {
         return DatabaseConfig.getConnection();
     }
+
+    protected SqlDialect dialect() {
+        return DatabaseConfig.getDialect();
+    }
     
     protected void closeConnection(Connection conn) {
         if (conn != null) {
@@ -9,12 +9,23 @@ import java.util.List;
 
 public class BillDAO {
 
+    /** Inserts the bill and sets its ID. The caller invalidates DashboardStatsService. */
     public Bill createBill(Bill bill) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            insertBill(conn, bill);
+        }
+        return bill;
+    }
+
+    /**
+     * Inserts the bill on the caller's connection and sets its ID. The
+     * caller invalidates DashboardStatsService once it commits.
+     */
+    public Bill insertBill(Connection conn, Bill bill) throws SQLException {
         String sql = "INSERT INTO bills (patient_id, record_id, total_amount, status, payment_method, created_by) " +
                      "VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setInt(1, bill.getPatientId());
             stmt.setInt(2, bill.getRecordId());
@@ -57,6 +68,28 @@ public class BillDAO {
         }
     }
 
+    /**
+     * Inserts all the items as one JDBC batch on the caller's connection.
+     * Item IDs are not read back.
+     */
+    public void insertBillItems(Connection conn, List<BillItem> items) throws SQLException {
+        String sql = "INSERT INTO bill_items (bill_id, item_type, item_name, quantity, unit_price, total_price) " +
+                     "VALUES (?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (BillItem billItem : items) {
+                stmt.setInt(1, billItem.getBillId());
+                stmt.setString(2, billItem.getItemType());
+                stmt.setString(3, billItem.getItemName());
+                stmt.setInt(4, billItem.getQuantity());
+                stmt.setDouble(5, billItem.getUnitPrice());
+                stmt.setDouble(6, billItem.getTotalPrice());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     public List<Bill> getBillsByPatientId(int patientId) throws SQLException {
         String sql = "SELECT b.*, p.first_name, p.last_name " +
                      "FROM bills b " +
@@ -0,0 +1,68 @@
+package hospital.dao;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Follows the change log of one table for a screen that keeps a copy of
+ * its rows.
+ *
+ * Call reset() just before loading the full list, then poll() from time to
+ * time and re-read only the rows it returns. Change IDs are handed out when
+ * a change is made but become visible when its transaction commits, so a
+ * slow transaction can show up below the version already read; each poll
+ * therefore re-reads the last OVERLAP change IDs and skips those it has
+ * seen. poll() asks for a full reload when the cursor was never reset or
+ * has not polled for so long that entries it needs may have been purged.
+ */
+public class ChangeCursor {
+    private static final int OVERLAP = 200;
+
+    private final String table;
+    private long version = -1;
+    private long lastPolledAt;
+    // Change IDs above version - OVERLAP already reported
+    private final Set<Long> seen = new HashSet<>();
+
+    public ChangeCursor(String table) {
+        this.table = table;
+    }
+
+    /** Starts following from the current version; call before a full load. */
+    public synchronized void reset() throws SQLException {
+        ChangeLog.purgeIfDue();
+        long current = ChangeLog.currentVersion();
+        seen.clear();
+        for (ChangeLog.Entry entry : ChangeLog.entriesSince(table, Math.max(0, current - OVERLAP))) {
+            if (entry.changeId <= current) {
+                seen.add(entry.changeId);
+            }
+        }
+        version = current;
+        lastPolledAt = System.currentTimeMillis();
+    }
+
+    /** The rows changed since the last reset or poll. */
+    public synchronized ChangeLog.Changes poll() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (version < 0 || now - lastPolledAt > ChangeLog.RETENTION_MILLIS / 2) {
+            return ChangeLog.Changes.fullReload(version);
+        }
+
+        List<ChangeLog.Entry> entries = ChangeLog.entriesSince(table, Math.max(0, version - OVERLAP));
+        ChangeLog.Changes changes = new ChangeLog.Changes(version);
+        for (ChangeLog.Entry entry : entries) {
+            if (seen.add(entry.changeId)) {
+                changes.add(entry);
+            }
+        }
+
+        version = changes.getVersion();
+        long floor = version - OVERLAP;
+        seen.removeIf(changeId -> changeId <= floor);
+        lastPolledAt = now;
+        return changes;
+    }
+}
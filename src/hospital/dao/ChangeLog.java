@@ -0,0 +1,210 @@
+package hospital.dao;
+
+import hospital.config.DatabaseConfig;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records which rows of the work-queue tables change, so screens that
+ * refresh every few seconds can re-read just those rows instead of their
+ * whole list.
+ *
+ * Write paths record each change on the connection that makes it, so the
+ * entry commits or rolls back with the change. Entries are numbered by
+ * change_id, which doubles as a version: changesSince(table, v) lists the
+ * rows changed after version v. Entries older than RETENTION_MILLIS are
+ * purged. Panels normally poll through a ChangeCursor rather than calling
+ * this directly.
+ */
+public final class ChangeLog {
+
+    public static final String APPOINTMENTS = "appointments";
+    public static final String TEST_REQUESTS = "test_requests";
+    public static final String PRESCRIPTIONS = "prescriptions";
+    public static final String MEDICINES = "medicines";
+    public static final String PATIENTS = "patients";
+
+    public static final char INSERT = 'I';
+    public static final char UPDATE = 'U';
+    public static final char DELETE = 'D';
+
+    static final long RETENTION_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long PURGE_INTERVAL_MILLIS = 60 * 60 * 1000L;
+
+    private static volatile long lastPurge;
+
+    private ChangeLog() {
+    }
+
+    /** Records a change to one row on the caller's connection. */
+    public static void record(Connection conn, String table, char type, int rowId) throws SQLException {
+        record(conn, table, type, Collections.singletonList(rowId));
+    }
+
+    /** Records the same change to several rows, as one batch, on the caller's connection. */
+    public static void record(Connection conn, String table, char type, Collection<Integer> rowIds) throws SQLException {
+        if (rowIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO change_log (table_name, row_id, change_type, changed_at) " +
+                     "VALUES (?, ?, ?, " + DatabaseConfig.getDialect().now() + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int rowId : rowIds) {
+                stmt.setString(1, table);
+                stmt.setInt(2, rowId);
+                stmt.setString(3, String.valueOf(type));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Records a change to every row of table whose parentColumn equals
+     * parentId, e.g. all prescriptions of one medical record, without
+     * reading their IDs back first.
+     */
+    public static void recordByParent(Connection conn, String table, char type, String idColumn,
+                                      String parentColumn, int parentId) throws SQLException {
+        String sql = "INSERT INTO change_log (table_name, row_id, change_type, changed_at) " +
+                     "SELECT ?, " + idColumn + ", ?, " + DatabaseConfig.getDialect().now() + " " +
+                     "FROM " + table + " WHERE " + parentColumn + " = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, String.valueOf(type));
+            stmt.setInt(3, parentId);
+            stmt.executeUpdate();
+        }
+    }
+
+    /** The latest version across all tables; 0 if nothing has been recorded. */
+    public static long currentVersion() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(change_id), 0) FROM change_log")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /** The rows of table changed after version, folded into their latest state. */
+    public static Changes changesSince(String table, long version) throws SQLException {
+        Changes changes = new Changes(version);
+        for (Entry entry : entriesSince(table, version)) {
+            changes.add(entry);
+        }
+        return changes;
+    }
+
+    static List<Entry> entriesSince(String table, long version) throws SQLException {
+        String sql = "SELECT change_id, row_id, change_type FROM change_log " +
+                     "WHERE table_name = ? AND change_id > ? ORDER BY change_id";
+        List<Entry> entries = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setLong(2, version);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String type = rs.getString("change_type");
+                    entries.add(new Entry(rs.getLong("change_id"), rs.getInt("row_id"),
+                            type != null && !type.isEmpty() ? type.charAt(0) : UPDATE));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** Deletes expired entries, at most once per PURGE_INTERVAL_MILLIS in this process. */
+    static void purgeIfDue() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPurge = now;
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM change_log WHERE changed_at < ?")) {
+            stmt.setTimestamp(1, new Timestamp(now - RETENTION_MILLIS));
+            stmt.executeUpdate();
+        }
+    }
+
+    static final class Entry {
+        final long changeId;
+        final int rowId;
+        final char type;
+
+        Entry(long changeId, int rowId, char type) {
+            this.changeId = changeId;
+            this.rowId = rowId;
+            this.type = type;
+        }
+    }
+
+    /**
+     * Rows changed since a version: those to re-read (inserted or updated)
+     * and those deleted. A row appears in only one of the two, according to
+     * its latest change. If isFullReload() is true the changes are not
+     * known and the caller should reload everything.
+     */
+    public static final class Changes {
+        private final Set<Integer> upserted = new LinkedHashSet<>();
+        private final Set<Integer> deleted = new LinkedHashSet<>();
+        private final boolean fullReload;
+        private long version;
+
+        Changes(long version) {
+            this(version, false);
+        }
+
+        private Changes(long version, boolean fullReload) {
+            this.version = version;
+            this.fullReload = fullReload;
+        }
+
+        static Changes fullReload(long version) {
+            return new Changes(version, true);
+        }
+
+        void add(Entry entry) {
+            if (entry.type == DELETE) {
+                upserted.remove(entry.rowId);
+                deleted.add(entry.rowId);
+            } else {
+                deleted.remove(entry.rowId);
+                upserted.add(entry.rowId);
+            }
+            version = Math.max(version, entry.changeId);
+        }
+
+        public Set<Integer> getUpserted() {
+            return Collections.unmodifiableSet(upserted);
+        }
+
+        public Set<Integer> getDeleted() {
+            return Collections.unmodifiableSet(deleted);
+        }
+
+        /** The version to ask for changes since next time. */
+        public long getVersion() {
+            return version;
+        }
+
+        public boolean isFullReload() {
+            return fullReload;
+        }
+
+        public boolean isEmpty() {
+            return !fullReload && upserted.isEmpty() && deleted.isEmpty();
+        }
+    }
+}
@@ -2,58 +2,59 @@ package hospital.dao;
 
 
 import hospital.config.DatabaseConfig;
+import hospital.utils.DateUtil;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 
 public class DashboardDAO {
-    
+
+    /**
+     * All dashboard counters in one round trip. Today's registrations and
+     * appointments and the pending bills are each a COUNT with a WHERE on an
+     * indexed column, "today" being a half-open timestamp range. The
+     * totals, including revenue, still read their whole tables.
+     */
     public Map<String, Object> getDashboardStats() throws SQLException {
         Map<String, Object> stats = new HashMap<>();
-        
-        try (Connection conn = DatabaseConfig.getConnection()) {
-            // Total Patients
-            stats.put("totalPatients", getCount(conn, "SELECT COUNT(*) FROM patients"));
-            
-            // Total Doctors
-            stats.put("totalDoctors", getCount(conn, "SELECT COUNT(*) FROM doctors WHERE is_available = true"));
-            
-            // Total Users
-            stats.put("totalUsers", getCount(conn, "SELECT COUNT(*) FROM users WHERE is_active = true"));
-            
-            // Today's Appointments
-            stats.put("todayAppointments", getCount(conn, 
-                "SELECT COUNT(*) FROM appointments WHERE DATE(appointment_datetime) = CURDATE()"));
-            
-            // Total Revenue
-            stats.put("totalRevenue", getDecimal(conn, 
-                "SELECT COALESCE(SUM(total_amount), 0) FROM bills"));
-            
-            // Pending Bills
-            stats.put("pendingBills", getCount(conn, 
-                "SELECT COUNT(*) FROM bills WHERE status != 'PAID'"));
-        }
-        
-        return stats;
-    }
-    
-    private int getCount(Connection conn, String query) throws SQLException {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        }
-        return 0;
-    }
-    
-    private double getDecimal(Connection conn, String query) throws SQLException {
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            if (rs.next()) {
-                return rs.getDouble(1);
+
+        String sql = "SELECT " +
+                    "(SELECT COUNT(*) FROM patients) AS total_patients, " +
+                    "(SELECT COUNT(*) FROM patients " +
+                    "      WHERE registered_at >= ? AND registered_at < ?) AS today_registrations, " +
+                    "(SELECT COUNT(*) FROM doctors WHERE is_available = true) AS total_doctors, " +
+                    "(SELECT COUNT(*) FROM users WHERE is_active = true) AS total_users, " +
+                    "(SELECT COUNT(*) FROM appointments " +
+                    "      WHERE appointment_datetime >= ? AND appointment_datetime < ?) AS today_appointments, " +
+                    "(SELECT COALESCE(SUM(total_amount), 0) FROM bills) AS total_revenue, " +
+                    "(SELECT COUNT(*) FROM bills WHERE status <> 'PAID') AS pending_bills";
+
+        LocalDate today = LocalDate.now();
+        Timestamp dayStart = DateUtil.dayStart(today);
+        Timestamp dayEnd = DateUtil.nextDayStart(today);
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, dayStart);
+            stmt.setTimestamp(2, dayEnd);
+            stmt.setTimestamp(3, dayStart);
+            stmt.setTimestamp(4, dayEnd);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    stats.put("totalPatients", rs.getInt("total_patients"));
+                    stats.put("todayRegistrations", rs.getInt("today_registrations"));
+                    stats.put("totalDoctors", rs.getInt("total_doctors"));
+                    stats.put("totalUsers", rs.getInt("total_users"));
+                    stats.put("todayAppointments", rs.getInt("today_appointments"));
+                    stats.put("totalRevenue", rs.getDouble("total_revenue"));
+                    stats.put("pendingBills", rs.getInt("pending_bills"));
+                }
             }
         }
-        return 0.0;
+
+        return stats;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package hospital.dao;
+
+import hospital.models.DoctorSchedule;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Doctor schedules held as a calendar, one month at a time.
+ *
+ * Each doctor's month is two int bitsets, bit (day - 1) set for days that
+ * have a schedule row and for days that row is not DUTY, plus the reasons
+ * given for those days. Asking whether a doctor works on a date is two map
+ * lookups and a bit test. A doctor's month is replaced as a whole on every
+ * change, so readers never need a lock.
+ *
+ * Months are loaded and kept fresh by DoctorScheduleDAO.
+ */
+public class DoctorAvailabilityCache {
+
+    private final Map<YearMonth, MonthCalendar> months = new ConcurrentHashMap<>();
+
+    /** The calendar for month if held and loaded less than maxAgeMillis ago, else null. */
+    public MonthCalendar get(YearMonth month, long maxAgeMillis) {
+        MonthCalendar calendar = months.get(month);
+        if (calendar == null || System.currentTimeMillis() - calendar.loadedAt >= maxAgeMillis) {
+            return null;
+        }
+        return calendar;
+    }
+
+    public void put(MonthCalendar calendar) {
+        months.put(calendar.month, calendar);
+    }
+
+    /** Record a schedule write; months not held pick it up when loaded. */
+    public void update(int doctorId, LocalDate date, String status, String reason) {
+        MonthCalendar calendar = months.get(YearMonth.from(date));
+        if (calendar != null) {
+            calendar.set(doctorId, date.getDayOfMonth(), status, reason);
+        }
+    }
+
+    public void invalidate() {
+        months.clear();
+    }
+
+    public static class MonthCalendar {
+        private final YearMonth month;
+        private final long loadedAt = System.currentTimeMillis();
+        private final Map<Integer, DoctorMonth> doctors = new ConcurrentHashMap<>();
+
+        /** Build from every doctor_schedules row in month. */
+        public MonthCalendar(YearMonth month, List<DoctorSchedule> schedules) {
+            this.month = month;
+            for (DoctorSchedule schedule : schedules) {
+                set(schedule.getDoctorId(), schedule.getScheduleDate().getDayOfMonth(),
+                        schedule.getStatus(), schedule.getReason());
+            }
+        }
+
+        /** True unless the doctor has a schedule row for date that is not DUTY. */
+        public boolean isOnDuty(int doctorId, LocalDate date) {
+            DoctorMonth doctor = doctors.get(doctorId);
+            return doctor == null || (doctor.offDutyDays & bit(date)) == 0;
+        }
+
+        public boolean hasSchedule(int doctorId, LocalDate date) {
+            DoctorMonth doctor = doctors.get(doctorId);
+            return doctor != null && (doctor.scheduledDays & bit(date)) != 0;
+        }
+
+        public String getReason(int doctorId, LocalDate date) {
+            DoctorMonth doctor = doctors.get(doctorId);
+            return doctor == null ? null : doctor.reasons.get(date.getDayOfMonth());
+        }
+
+        private void set(int doctorId, int day, String status, String reason) {
+            DoctorMonth current = doctors.getOrDefault(doctorId, DoctorMonth.EMPTY);
+            doctors.put(doctorId, current.with(day, !"DUTY".equalsIgnoreCase(status), reason));
+        }
+
+        private static int bit(LocalDate date) {
+            return 1 << (date.getDayOfMonth() - 1);
+        }
+    }
+
+    private static final class DoctorMonth {
+        static final DoctorMonth EMPTY = new DoctorMonth(0, 0, Collections.emptyMap());
+
+        final int scheduledDays;
+        final int offDutyDays;
+        // Day of month -> reason; only days that have one
+        final Map<Integer, String> reasons;
+
+        DoctorMonth(int scheduledDays, int offDutyDays, Map<Integer, String> reasons) {
+            this.scheduledDays = scheduledDays;
+            this.offDutyDays = offDutyDays;
+            this.reasons = reasons;
+        }
+
+        DoctorMonth with(int day, boolean offDuty, String reason) {
+            int bit = 1 << (day - 1);
+            Map<Integer, String> newReasons = new HashMap<>(reasons);
+            if (reason != null && !reason.isEmpty()) {
+                newReasons.put(day, reason);
+            } else {
+                newReasons.remove(day);
+            }
+            return new DoctorMonth(scheduledDays | bit,
+                    offDuty ? offDutyDays | bit : offDutyDays & ~bit,
+                    newReasons.isEmpty() ? Collections.emptyMap() : newReasons);
+        }
+    }
+}
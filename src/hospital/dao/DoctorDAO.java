@@ -8,52 +8,35 @@ import java.util.List;
 
 public class DoctorDAO extends BaseDAO {
 
-       public List<String> getDepartments() {
-        List<String> departments = new ArrayList<>();
-        String sql = "SELECT DISTINCT specialization FROM doctors " +
-                "WHERE is_available = true " +
-                "ORDER BY specialization";
-
-        try (Connection conn = getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(sql)) {
+    // Doctors change rarely; reads come from a shared snapshot that is
+    // replaced when this machine edits a doctor and reloaded after this long
+    // to pick up edits made elsewhere
+    private static final long DIRECTORY_MAX_AGE_MILLIS = 5 * 60_000L;
+    private static final Object directoryLock = new Object();
+    private static volatile DoctorDirectory directory;
 
-            while (rs.next()) {
-                String spec = rs.getString("specialization");
-                if (spec != null && !spec.trim().isEmpty()) {
-                    departments.add(spec);
-                }
-            }
+       public List<String> getDepartments() {
+        try {
+            return directory().getDepartments();
         } catch (SQLException e) {
             e.printStackTrace();
         }
-        return departments;
+        return new ArrayList<>();
     }
 
      public List<String> getDoctorsByDepartment(String department, LocalDate date) {
         List<String> doctors = new ArrayList<>();
-        String sql = "SELECT d.user_id, d.full_name, d.specialization, d.consultation_fee " +
-                "FROM doctors d " +
-                "LEFT JOIN doctor_schedules ds ON d.doctor_id = ds.doctor_id AND ds.schedule_date = ? " +
-                "WHERE d.is_available = true " +
-                "AND d.specialization = ? " +
-                "AND (ds.status IS NULL OR ds.status = 'DUTY') " +
-                "ORDER BY d.full_name";
-
-        try (Connection conn = getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setDate(1, Date.valueOf(date));
-            pstmt.setString(2, department);
-
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                int userId = rs.getInt("user_id");  // Use user_id instead of doctor_id
-                String fullName = rs.getString("full_name");
-                String spec = rs.getString("specialization");
-                double fee = rs.getDouble("consultation_fee");
-                doctors.add(userId + " - " + fullName + " (" + spec + ") - ₹" + fee);
+        // Schedules are keyed by user_id; leave is checked against the cached calendar
+        DoctorScheduleDAO scheduleDAO = new DoctorScheduleDAO();
+
+        try {
+            for (Doctor doctor : directory().getDepartment(department)) {
+                int userId = doctor.getUserId();  // Use user_id instead of doctor_id
+                if (!scheduleDAO.isDoctorAvailable(userId, date)) {
+                    continue;
+                }
+                doctors.add(userId + " - " + doctor.getUsername() + " (" + doctor.getSpecialization()
+                        + ") - ₹" + doctor.getConsultationFee());
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -93,10 +76,58 @@ public class DoctorDAO extends BaseDAO {
 
 
     // Get all doctors - FIXED
+    /** All doctors, from the shared directory; the objects must not be modified. */
     public List<Doctor> getAllDoctors() throws SQLException {
+        return directory().getDoctors();
+    }
+
+    // Get consultation fee for a doctor - NEW METHOD
+    public double getConsultationFeeByUserId(int userId) throws SQLException {
+        Doctor doctor = findByUserId(userId);
+        return doctor != null ? doctor.getConsultationFee() : 0.0;
+    }
+
+    /**
+     * The current directory, reloading it if it is missing or too old.
+     * Concurrent callers wait for a single reload.
+     */
+    public DoctorDirectory directory() throws SQLException {
+        DoctorDirectory current = directory;
+        if (current != null && !current.isOlderThan(DIRECTORY_MAX_AGE_MILLIS)) {
+            return current;
+        }
+
+        synchronized (directoryLock) {
+            current = directory;
+            if (current == null || current.isOlderThan(DIRECTORY_MAX_AGE_MILLIS)) {
+                current = new DoctorDirectory(loadDoctors());
+                directory = current;
+            }
+            return current;
+        }
+    }
+
+    // A doctor added on another machine isn't in the directory until it is
+    // reloaded, so a miss reloads once before giving up
+    private Doctor findByUserId(int userId) throws SQLException {
+        Doctor doctor = directory().getByUserId(userId);
+        if (doctor == null) {
+            invalidateDirectory();
+            doctor = directory().getByUserId(userId);
+        }
+        return doctor;
+    }
+
+    /** Drop the directory so the next read reloads it. */
+    public static void invalidateDirectory() {
+        directory = null;
+    }
+
+    private List<Doctor> loadDoctors() throws SQLException {
         List<Doctor> doctors = new ArrayList<>();
-        String sql = "SELECT doctor_id, user_id, full_name, specialization, email, phone, " +
-                "consultation_fee, is_available, created_at FROM doctors";
+        String sql = "SELECT doctor_id, user_id, full_name, specialization, experience_years, " +
+                "email, phone, consultation_fee, is_available, created_at FROM doctors " +
+                "ORDER BY doctor_id";
 
         try (Connection conn = getConnection();
                 Statement stmt = conn.createStatement();
@@ -108,34 +139,21 @@ public class DoctorDAO extends BaseDAO {
                 doctor.setUserId(rs.getInt("user_id"));
                 doctor.setUsername(rs.getString("full_name"));
                 doctor.setSpecialization(rs.getString("specialization"));
+                doctor.setExperienceYears(rs.getInt("experience_years"));
                 doctor.setEmail(rs.getString("email"));
                 doctor.setPhone(rs.getString("phone"));
                 doctor.setConsultationFee(rs.getDouble("consultation_fee"));
                 doctor.setAvailable(rs.getBoolean("is_available"));
-                doctor.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                if (createdAt != null) {
+                    doctor.setCreatedAt(createdAt.toLocalDateTime());
+                }
                 doctors.add(doctor);
             }
         }
         return doctors;
     }
 
-    // Get consultation fee for a doctor - NEW METHOD
-    public double getConsultationFeeByUserId(int userId) throws SQLException {
-        String sql = "SELECT consultation_fee FROM doctors WHERE user_id = ?";
-        
-        try (Connection conn = getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-                
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getDouble("consultation_fee");
-            }
-        }
-        return 0.0;
-    }
-
      public Doctor getDoctorById(int doctorId) throws SQLException {
         String sql = "SELECT doctor_id, user_id, full_name, specialization, " +
                 "experience_years, phone, email, consultation_fee, is_available, created_at " +
@@ -251,6 +269,7 @@ public class DoctorDAO extends BaseDAO {
             }
 
             conn.commit();
+            invalidateDirectory();
             return true;
 
         } catch (SQLException e) {
@@ -279,6 +298,7 @@ public class DoctorDAO extends BaseDAO {
             stmt.setInt(8, doctor.getDoctorId());
 
             int rows = stmt.executeUpdate();
+            invalidateDirectory();
             return rows > 0;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -294,7 +314,9 @@ public class DoctorDAO extends BaseDAO {
                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, doctorId);
-            return stmt.executeUpdate() > 0;
+            boolean deleted = stmt.executeUpdate() > 0;
+            invalidateDirectory();
+            return deleted;
         }
     }
     
@@ -306,19 +328,7 @@ public class DoctorDAO extends BaseDAO {
      * @throws SQLException if database error occurs
      */
     public int getDoctorIdByUserId(int userId) throws SQLException {
-        String sql = "SELECT doctor_id FROM doctors WHERE user_id = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, userId);
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                return rs.getInt("doctor_id");
-            }
-            
-            return -1;
-        }
+        Doctor doctor = findByUserId(userId);
+        return doctor != null ? doctor.getDoctorId() : -1;
     }
-}
\ No newline at end of file
+}
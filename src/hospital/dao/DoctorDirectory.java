@@ -0,0 +1,71 @@
+package hospital.dao;
+
+import hospital.models.Doctor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable snapshot of the doctors table, indexed for the lookups the
+ * screens make over and over: by user_id, by doctor_id and by department.
+ * DoctorDAO replaces the snapshot as a whole when doctors change.
+ *
+ * The Doctor objects are shared by every caller and must not be modified.
+ */
+public class DoctorDirectory {
+    private static final Comparator<Doctor> BY_NAME =
+            Comparator.comparing(Doctor::getUsername, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+
+    private final List<Doctor> doctors;
+    private final Map<Integer, Doctor> byUserId = new HashMap<>();
+    private final Map<Integer, Doctor> byDoctorId = new HashMap<>();
+    // Available doctors only, sorted by name; departments in name order
+    private final Map<String, List<Doctor>> byDepartment = new TreeMap<>();
+    private final long loadedAt = System.currentTimeMillis();
+
+    public DoctorDirectory(List<Doctor> doctors) {
+        this.doctors = Collections.unmodifiableList(new ArrayList<>(doctors));
+        for (Doctor doctor : doctors) {
+            byUserId.put(doctor.getUserId(), doctor);
+            byDoctorId.put(doctor.getDoctorId(), doctor);
+            String department = doctor.getSpecialization();
+            if (doctor.isAvailable() && department != null && !department.trim().isEmpty()) {
+                byDepartment.computeIfAbsent(department, d -> new ArrayList<>()).add(doctor);
+            }
+        }
+        for (Map.Entry<String, List<Doctor>> entry : byDepartment.entrySet()) {
+            entry.getValue().sort(BY_NAME);
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    public List<Doctor> getDoctors() {
+        return doctors;
+    }
+
+    public Doctor getByUserId(int userId) {
+        return byUserId.get(userId);
+    }
+
+    public Doctor getByDoctorId(int doctorId) {
+        return byDoctorId.get(doctorId);
+    }
+
+    /** Specializations that have an available doctor, in name order. */
+    public List<String> getDepartments() {
+        return new ArrayList<>(byDepartment.keySet());
+    }
+
+    /** Available doctors with this specialization, by name. */
+    public List<Doctor> getDepartment(String department) {
+        return byDepartment.getOrDefault(department, Collections.emptyList());
+    }
+
+    public boolean isOlderThan(long maxAgeMillis) {
+        return System.currentTimeMillis() - loadedAt >= maxAgeMillis;
+    }
+}
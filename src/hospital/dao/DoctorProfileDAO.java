@@ -76,9 +76,9 @@ public class DoctorProfileDAO extends BaseDAO {
     
     // Set doctor schedule (DUTY/LEAVE)
     public boolean setDoctorSchedule(DoctorSchedule schedule) throws SQLException {
-        String sql = "INSERT INTO doctor_schedules (doctor_id, schedule_date, status, reason) " +
-                    "VALUES (?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE status = ?, reason = ?";
+        String sql = dialect().upsert("doctor_schedules",
+                new String[] {"doctor_id", "schedule_date"},
+                new String[] {"status", "reason"});
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -87,10 +87,12 @@ public class DoctorProfileDAO extends BaseDAO {
             stmt.setDate(2, Date.valueOf(schedule.getScheduleDate()));
             stmt.setString(3, schedule.getStatus());
             stmt.setString(4, schedule.getReason());
-            stmt.setString(5, schedule.getStatus());
-            stmt.setString(6, schedule.getReason());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                DoctorScheduleDAO.scheduleChanged(schedule);
+                return true;
+            }
+            return false;
         }
     }
     
@@ -126,47 +128,30 @@ public class DoctorProfileDAO extends BaseDAO {
     
     // Check if doctor is on duty for a specific date
     public boolean isDoctorOnDuty(int doctorId, LocalDate date) throws SQLException {
-        String sql = "SELECT status FROM doctor_schedules " +
-                    "WHERE doctor_id = ? AND schedule_date = ?";
-        
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, doctorId);
-            stmt.setDate(2, Date.valueOf(date));
-            
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                String status = rs.getString("status");
-                return "DUTY".equals(status);
-            }
-        }
         // If no schedule record, default to ON DUTY
-        return true;
+        return new DoctorScheduleDAO().isDoctorAvailable(doctorId, date);
     }
     
     // Get available doctors by department for a specific date
     public List<Integer> getAvailableDoctorsByDepartment(String department, LocalDate date) 
             throws SQLException {
+        // Leave is checked against the cached calendar instead of joined in
         String sql = "SELECT u.user_id FROM users u " +
-                    "LEFT JOIN doctor_schedules ds ON u.user_id = ds.doctor_id AND ds.schedule_date = ? " +
                     "WHERE u.role = 'DOCTOR' AND u.status = 'Active' " +
-                    "AND u.specialization = ? AND u.profile_completed = TRUE " +
-                    "AND (ds.status IS NULL OR ds.status = 'DUTY')";
+                    "AND u.specialization = ? AND u.profile_completed = TRUE";
         
         List<Integer> doctorIds = new ArrayList<>();
         
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(date));
-            stmt.setString(2, department);
+            stmt.setString(1, department);
             
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 doctorIds.add(rs.getInt("user_id"));
             }
         }
-        return doctorIds;
+        return new DoctorScheduleDAO().filterAvailable(doctorIds, date);
     }
 }
@@ -5,13 +5,47 @@ import hospital.config.DatabaseConfig;
 import hospital.models.DoctorSchedule;
 import java.sql.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DoctorScheduleDAO {
     
+    // Schedules are cached a month at a time. Changes made on this machine
+    // are applied straight away; those from other machines show up when the
+    // month is reloaded. Booking re-checks leave against the database.
+    private static final long MONTH_MAX_AGE_MILLIS = 60_000L;
+    private static final DoctorAvailabilityCache availability = new DoctorAvailabilityCache();
+    private static final Object loadLock = new Object();
+    
     public boolean isDoctorAvailable(int doctorId, LocalDate date) throws SQLException {
-        String sql = "SELECT status FROM doctor_schedules " +
+        // If no schedule entry exists, assume doctor is available (DUTY by default)
+        return calendarFor(date).isOnDuty(doctorId, date);
+    }
+    
+    /** The doctors in doctorIds (users.user_id) on duty on date, in the same order. */
+    public List<Integer> filterAvailable(List<Integer> doctorIds, LocalDate date) throws SQLException {
+        DoctorAvailabilityCache.MonthCalendar calendar = calendarFor(date);
+        List<Integer> available = new ArrayList<>();
+        for (int doctorId : doctorIds) {
+            if (calendar.isOnDuty(doctorId, date)) {
+                available.add(doctorId);
+            }
+        }
+        return available;
+    }
+    
+    public String getLeaveReason(int doctorId, LocalDate date) throws SQLException {
+        return calendarFor(date).getReason(doctorId, date);
+    }
+    
+    public DoctorSchedule getScheduleForDate(int doctorId, LocalDate date) throws SQLException {
+        // Most days have no row; only fetch the full record when there is one
+        if (!calendarFor(date).hasSchedule(doctorId, date)) {
+            return null;
+        }
+        
+        String sql = "SELECT * FROM doctor_schedules " +
                     "WHERE doctor_id = ? AND schedule_date = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -22,37 +56,71 @@ public class DoctorScheduleDAO {
             
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
-                String status = rs.getString("status");
-                return "DUTY".equalsIgnoreCase(status);
+                return mapSchedule(rs);
             }
         }
+        return null;
+    }
+    
+    /** Apply a schedule that was just written to the cached calendar. */
+    static void scheduleChanged(DoctorSchedule schedule) {
+        synchronized (loadLock) {
+            availability.update(schedule.getDoctorId(), schedule.getScheduleDate(),
+                    schedule.getStatus(), schedule.getReason());
+        }
+    }
+    
+    /** Load the calendar for date's month now, so the first availability check doesn't wait for it. */
+    public static void preloadMonth(LocalDate date) throws SQLException {
+        calendarFor(date);
+    }
+    
+    private static DoctorAvailabilityCache.MonthCalendar calendarFor(LocalDate date) throws SQLException {
+        YearMonth month = YearMonth.from(date);
+        DoctorAvailabilityCache.MonthCalendar calendar = availability.get(month, MONTH_MAX_AGE_MILLIS);
+        if (calendar != null) {
+            return calendar;
+        }
         
-        // If no schedule entry exists, assume doctor is available (DUTY by default)
-        return true;
+        synchronized (loadLock) {
+            // Another thread may have loaded it while we waited
+            calendar = availability.get(month, MONTH_MAX_AGE_MILLIS);
+            if (calendar == null) {
+                calendar = new DoctorAvailabilityCache.MonthCalendar(month, loadMonth(month));
+                availability.put(calendar);
+            }
+            return calendar;
+        }
     }
     
-    public DoctorSchedule getScheduleForDate(int doctorId, LocalDate date) throws SQLException {
+    private static List<DoctorSchedule> loadMonth(YearMonth month) throws SQLException {
         String sql = "SELECT * FROM doctor_schedules " +
-                    "WHERE doctor_id = ? AND schedule_date = ?";
+                    "WHERE schedule_date >= ? AND schedule_date < ?";
+        List<DoctorSchedule> schedules = new ArrayList<>();
         
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, doctorId);
-            stmt.setDate(2, Date.valueOf(date));
+            stmt.setDate(1, Date.valueOf(month.atDay(1)));
+            stmt.setDate(2, Date.valueOf(month.plusMonths(1).atDay(1)));
             
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                DoctorSchedule schedule = new DoctorSchedule();
-                schedule.setScheduleId(rs.getInt("schedule_id"));
-                schedule.setDoctorId(rs.getInt("doctor_id"));
-                schedule.setScheduleDate(rs.getDate("schedule_date").toLocalDate());
-                schedule.setStatus(rs.getString("status"));
-                schedule.setReason(rs.getString("reason"));
-                return schedule;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    schedules.add(mapSchedule(rs));
+                }
             }
         }
-        return null;
+        return schedules;
+    }
+    
+    private static DoctorSchedule mapSchedule(ResultSet rs) throws SQLException {
+        DoctorSchedule schedule = new DoctorSchedule();
+        schedule.setScheduleId(rs.getInt("schedule_id"));
+        schedule.setDoctorId(rs.getInt("doctor_id"));
+        schedule.setScheduleDate(rs.getDate("schedule_date").toLocalDate());
+        schedule.setStatus(rs.getString("status"));
+        schedule.setReason(rs.getString("reason"));
+        return schedule;
     }
     
     public List<LocalDate> getDoctorLeaveDates(int doctorId, LocalDate startDate, LocalDate endDate) 
@@ -1,15 +1,41 @@
 package hospital.dao;
 
 import hospital.config.DatabaseConfig;
+import hospital.config.SqlDialect;
 import hospital.models.InventoryItem;
 import hospital.models.Medicine;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InventoryDAO {
 
+    // Pharmacy screens look the same medicines up by name again and again;
+    // a minute keeps prices and stock close to other machines' changes
+    private static final long CATALOG_MAX_AGE_MILLIS = 60_000L;
+    private static final MedicineCatalog catalog = new MedicineCatalog(CATALOG_MAX_AGE_MILLIS);
+    // The full list for getAllMedicines, kept current through the change log
+    // so each call re-reads only the medicines changed since the last one
+    private static final Object allMedicinesLock = new Object();
+    private static final ChangeCursor medicineChanges = new ChangeCursor(ChangeLog.MEDICINES);
+    private static final Map<Integer, Medicine> allMedicines = new HashMap<>();
+    private static List<Medicine> allMedicinesSorted;
+    private static final Comparator<Medicine> BY_NAME = Comparator
+            .comparing(Medicine::getName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingInt(Medicine::getMedicineId);
+    // Relative to the stored count so concurrent dispenses can't overwrite
+    // each other; stops at zero
+    private static final String DEDUCT_STOCK_SQL = "UPDATE medicines SET stock_quantity = " +
+            "CASE WHEN stock_quantity > ? THEN stock_quantity - ? ELSE 0 END " +
+            "WHERE medicine_id = ?";
+
     // ==================== INVENTORYITEM METHODS ====================
     
     /**
@@ -18,26 +44,34 @@ public class InventoryDAO {
     public InventoryItem createInventoryItem(InventoryItem item) throws SQLException {
         String sql = "INSERT INTO medicines (name, category, unit_price, stock_quantity, " +
                 "expiry_date, manufacturer, minimum_stock_level, created_at) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, NOW())";
-
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, item.getItemName());
-            stmt.setString(2, item.getCategory());
-            stmt.setDouble(3, item.getUnitPrice());
-            stmt.setInt(4, item.getQuantity());
-            stmt.setDate(5, item.getExpiryDate() != null ? Date.valueOf(item.getExpiryDate()) : null);
-            stmt.setString(6, item.getSupplier());
-            stmt.setInt(7, 10); // Default minimum stock level
-
-            int result = stmt.executeUpdate();
-            if (result > 0) {
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    item.setItemId(rs.getInt(1));
+                "VALUES (?, ?, ?, ?, ?, ?, ?, " + DatabaseConfig.getDialect().now() + ")";
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                stmt.setString(1, item.getItemName());
+                stmt.setString(2, item.getCategory());
+                stmt.setDouble(3, item.getUnitPrice());
+                stmt.setInt(4, item.getQuantity());
+                stmt.setDate(5, item.getExpiryDate() != null ? Date.valueOf(item.getExpiryDate()) : null);
+                stmt.setString(6, item.getSupplier());
+                stmt.setInt(7, 10); // Default minimum stock level
+
+                int result = stmt.executeUpdate();
+                if (result > 0) {
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    if (rs.next()) {
+                        item.setItemId(rs.getInt(1));
+                        ChangeLog.record(conn, ChangeLog.MEDICINES, ChangeLog.INSERT, item.getItemId());
+                    }
+                    conn.commit();
+                    return item;
                 }
-                return item;
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
         return null;
@@ -89,9 +123,7 @@ public class InventoryDAO {
         String sql = "UPDATE medicines SET name = ?, category = ?, unit_price = ?, " +
                 "stock_quantity = ?, expiry_date = ?, manufacturer = ? WHERE medicine_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        boolean updated = executeLogged(sql, ChangeLog.UPDATE, item.getItemId(), stmt -> {
             stmt.setString(1, item.getItemName());
             stmt.setString(2, item.getCategory());
             stmt.setDouble(3, item.getUnitPrice());
@@ -99,9 +131,9 @@ public class InventoryDAO {
             stmt.setDate(5, item.getExpiryDate() != null ? Date.valueOf(item.getExpiryDate()) : null);
             stmt.setString(6, item.getSupplier());
             stmt.setInt(7, item.getItemId());
-
-            return stmt.executeUpdate() > 0;
-        }
+        }) > 0;
+        catalog.remove(item.getItemId());
+        return updated;
     }
 
     /**
@@ -118,23 +150,23 @@ public class InventoryDAO {
             throw new SQLException("Invalid operation. Use 'ADD' or 'SUBTRACT'");
         }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        int rowsAffected = executeLogged(sql, ChangeLog.UPDATE, itemId, stmt -> {
             stmt.setInt(1, Math.abs(quantityChange));
             stmt.setInt(2, itemId);
 
             if ("SUBTRACT".equals(operation)) {
                 stmt.setInt(3, Math.abs(quantityChange));
             }
+        });
+        if (rowsAffected == 0 && "SUBTRACT".equals(operation)) {
+            throw new SQLException("Insufficient stock");
+        }
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0 && "SUBTRACT".equals(operation)) {
-                throw new SQLException("Insufficient stock");
-            }
-
-            return rowsAffected > 0;
+        if (rowsAffected > 0) {
+            int change = Math.abs(quantityChange);
+            catalog.adjustStock(itemId, "ADD".equals(operation) ? change : -change);
         }
+        return rowsAffected > 0;
     }
 
     /**
@@ -162,10 +194,12 @@ public class InventoryDAO {
      */
     public List<InventoryItem> getExpiringInventoryItems() throws SQLException {
         List<InventoryItem> items = new ArrayList<>();
+        SqlDialect dialect = DatabaseConfig.getDialect();
         String sql = "SELECT medicine_id, name, stock_quantity, unit_price, expiry_date, " +
                 "manufacturer, category FROM medicines WHERE " +
                 "expiry_date IS NOT NULL AND " +
-                "expiry_date BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL 30 DAY) " +
+                "expiry_date BETWEEN " + dialect.currentDate() + " AND " +
+                dialect.addDays(dialect.currentDate(), 30) + " " +
                 "ORDER BY expiry_date";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -186,7 +220,7 @@ public class InventoryDAO {
         List<InventoryItem> items = new ArrayList<>();
         String sql = "SELECT medicine_id, name, stock_quantity, unit_price, expiry_date, " +
                 "manufacturer, category FROM medicines WHERE " +
-                "expiry_date IS NOT NULL AND expiry_date < CURDATE() " +
+                "expiry_date IS NOT NULL AND expiry_date < " + DatabaseConfig.getDialect().currentDate() + " " +
                 "ORDER BY expiry_date DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -232,12 +266,9 @@ public class InventoryDAO {
     public boolean deleteInventoryItem(int itemId) throws SQLException {
         String sql = "DELETE FROM medicines WHERE medicine_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, itemId);
-            return stmt.executeUpdate() > 0;
-        }
+        boolean deleted = executeLogged(sql, ChangeLog.DELETE, itemId, stmt -> stmt.setInt(1, itemId)) > 0;
+        catalog.remove(itemId);
+        return deleted;
     }
 
     /**
@@ -269,47 +300,153 @@ public class InventoryDAO {
                 "created_at) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, medicine.getName());
-            stmt.setString(2, medicine.getGenericName());
-            stmt.setString(3, medicine.getManufacturer());
-            stmt.setString(4, medicine.getCategory());
-            stmt.setDouble(5, medicine.getUnitPrice());
-            stmt.setInt(6, medicine.getStockQuantity());
-            stmt.setInt(7, medicine.getMinimumStockLevel());
-            stmt.setDate(8, medicine.getExpiryDate() != null ? Date.valueOf(medicine.getExpiryDate()) : null);
-            stmt.setTimestamp(9, Timestamp.valueOf(medicine.getCreatedAt()));
-
-            int result = stmt.executeUpdate();
-            if (result > 0) {
-                ResultSet rs = stmt.getGeneratedKeys();
-                if (rs.next()) {
-                    medicine.setMedicineId(rs.getInt(1));
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+                stmt.setString(1, medicine.getName());
+                stmt.setString(2, medicine.getGenericName());
+                stmt.setString(3, medicine.getManufacturer());
+                stmt.setString(4, medicine.getCategory());
+                stmt.setDouble(5, medicine.getUnitPrice());
+                stmt.setInt(6, medicine.getStockQuantity());
+                stmt.setInt(7, medicine.getMinimumStockLevel());
+                stmt.setDate(8, medicine.getExpiryDate() != null ? Date.valueOf(medicine.getExpiryDate()) : null);
+                stmt.setTimestamp(9, Timestamp.valueOf(medicine.getCreatedAt()));
+
+                int result = stmt.executeUpdate();
+                if (result > 0) {
+                    ResultSet rs = stmt.getGeneratedKeys();
+                    boolean hasId = rs.next();
+                    if (hasId) {
+                        medicine.setMedicineId(rs.getInt(1));
+                        ChangeLog.record(conn, ChangeLog.MEDICINES, ChangeLog.INSERT, medicine.getMedicineId());
+                    }
+                    conn.commit();
+                    if (hasId) {
+                        catalog.put(medicine);
+                    }
+                    return medicine;
                 }
-                return medicine;
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
         return null;
     }
 
+    /**
+     * Every medicine, in name order. The table is read in full the first
+     * time; later calls re-read only the medicines the change log reports
+     * as changed since, by this or any other machine. Each call gets its
+     * own copies.
+     */
     public List<Medicine> getAllMedicines() throws SQLException {
+        synchronized (allMedicinesLock) {
+            ChangeLog.Changes changes = allMedicinesSorted != null ? medicineChanges.poll() : null;
+            if (changes == null || changes.isFullReload()) {
+                medicineChanges.reset();
+                allMedicines.clear();
+                allMedicinesSorted = null;
+                try (Connection conn = DatabaseConfig.getConnection();
+                     Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT * FROM medicines")) {
+                    while (rs.next()) {
+                        Medicine medicine = mapResultSetToMedicine(rs);
+                        catalog.put(medicine);
+                        allMedicines.put(medicine.getMedicineId(), medicine);
+                    }
+                }
+            } else if (!changes.isEmpty()) {
+                for (int medicineId : changes.getDeleted()) {
+                    allMedicines.remove(medicineId);
+                }
+                // Re-read rows may since have been deleted; those stay out
+                for (int medicineId : changes.getUpserted()) {
+                    allMedicines.remove(medicineId);
+                }
+                for (Medicine medicine : getMedicinesByIds(changes.getUpserted())) {
+                    catalog.put(medicine);
+                    allMedicines.put(medicine.getMedicineId(), medicine);
+                }
+                allMedicinesSorted = null;
+            }
+
+            if (allMedicinesSorted == null) {
+                allMedicinesSorted = new ArrayList<>(allMedicines.values());
+                allMedicinesSorted.sort(BY_NAME);
+            }
+            List<Medicine> medicines = new ArrayList<>(allMedicinesSorted.size());
+            for (Medicine medicine : allMedicinesSorted) {
+                medicines.add(MedicineCatalog.copy(medicine));
+            }
+            return medicines;
+        }
+    }
+
+    private List<Medicine> getMedicinesByIds(Collection<Integer> medicineIds) throws SQLException {
         List<Medicine> medicines = new ArrayList<>();
-        String sql = "SELECT * FROM medicines ORDER BY name";
+        if (medicineIds.isEmpty()) {
+            return medicines;
+        }
+        String sql = "SELECT * FROM medicines WHERE medicine_id IN (" +
+                String.join(", ", Collections.nCopies(medicineIds.size(), "?")) + ")";
 
         try (Connection conn = DatabaseConfig.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                medicines.add(mapResultSetToMedicine(rs));
+            int i = 1;
+            for (int medicineId : medicineIds) {
+                stmt.setInt(i++, medicineId);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    medicines.add(mapResultSetToMedicine(rs));
+                }
+            }
+        }
+        return medicines;
+    }
+
+    /**
+     * One page of medicines in name order, starting after the given medicine
+     * (or from the start if after is null). Seeks on (name, medicine_id)
+     * rather than using OFFSET.
+     */
+    public List<Medicine> getMedicinesPage(Medicine after, int pageSize) throws SQLException {
+        List<Medicine> medicines = new ArrayList<>();
+        String sql = "SELECT * FROM medicines " +
+                    (after != null ? "WHERE name > ? OR (name = ? AND medicine_id > ?) " : "") +
+                    "ORDER BY name, medicine_id LIMIT ?";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                stmt.setString(i++, after.getName());
+                stmt.setString(i++, after.getName());
+                stmt.setInt(i++, after.getMedicineId());
+            }
+            stmt.setInt(i, pageSize);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    medicines.add(mapResultSetToMedicine(rs));
+                }
             }
         }
         return medicines;
     }
 
     public Medicine getMedicineById(int medicineId) throws SQLException {
+        Medicine cached = catalog.getById(medicineId);
+        if (cached != null) {
+            return cached;
+        }
+
         String sql = "SELECT * FROM medicines WHERE medicine_id = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -319,7 +456,9 @@ public class InventoryDAO {
             ResultSet rs = stmt.executeQuery();
 
             if (rs.next()) {
-                return mapResultSetToMedicine(rs);
+                Medicine medicine = mapResultSetToMedicine(rs);
+                catalog.put(medicine);
+                return medicine;
             }
         }
         return null;
@@ -365,9 +504,11 @@ public class InventoryDAO {
 
     public List<Medicine> getExpiringMedicines() throws SQLException {
         List<Medicine> medicines = new ArrayList<>();
+        SqlDialect dialect = DatabaseConfig.getDialect();
         String sql = "SELECT * FROM medicines WHERE " +
                 "expiry_date IS NOT NULL AND " +
-                "expiry_date BETWEEN CURDATE() AND DATE_ADD(CURDATE(), INTERVAL 3 MONTH) " +
+                "expiry_date BETWEEN " + dialect.currentDate() + " AND " +
+                dialect.addMonths(dialect.currentDate(), 3) + " " +
                 "ORDER BY expiry_date";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -384,7 +525,7 @@ public class InventoryDAO {
     public List<Medicine> getExpiredMedicines() throws SQLException {
         List<Medicine> medicines = new ArrayList<>();
         String sql = "SELECT * FROM medicines WHERE " +
-                "expiry_date IS NOT NULL AND expiry_date < CURDATE() " +
+                "expiry_date IS NOT NULL AND expiry_date < " + DatabaseConfig.getDialect().currentDate() + " " +
                 "ORDER BY expiry_date DESC";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -403,9 +544,7 @@ public class InventoryDAO {
                 "category = ?, unit_price = ?, stock_quantity = ?, " +
                 "minimum_stock_level = ?, expiry_date = ? WHERE medicine_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        boolean updated = executeLogged(sql, ChangeLog.UPDATE, medicine.getMedicineId(), stmt -> {
             stmt.setString(1, medicine.getName());
             stmt.setString(2, medicine.getGenericName());
             stmt.setString(3, medicine.getManufacturer());
@@ -415,9 +554,9 @@ public class InventoryDAO {
             stmt.setInt(7, medicine.getMinimumStockLevel());
             stmt.setDate(8, medicine.getExpiryDate() != null ? Date.valueOf(medicine.getExpiryDate()) : null);
             stmt.setInt(9, medicine.getMedicineId());
-
-            return stmt.executeUpdate() > 0;
-        }
+        }) > 0;
+        catalog.remove(medicine.getMedicineId());
+        return updated;
     }
 
     public boolean updateStock(int medicineId, int quantityChange, String operation) throws SQLException {
@@ -431,37 +570,39 @@ public class InventoryDAO {
             throw new SQLException("Invalid operation. Use 'ADD' or 'SUBTRACT'");
         }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
+        int rowsAffected = executeLogged(sql, ChangeLog.UPDATE, medicineId, stmt -> {
             stmt.setInt(1, Math.abs(quantityChange));
             stmt.setInt(2, medicineId);
 
             if ("SUBTRACT".equals(operation)) {
                 stmt.setInt(3, Math.abs(quantityChange));
             }
+        });
+        if (rowsAffected == 0 && "SUBTRACT".equals(operation)) {
+            throw new SQLException("Insufficient stock");
+        }
 
-            int rowsAffected = stmt.executeUpdate();
-            if (rowsAffected == 0 && "SUBTRACT".equals(operation)) {
-                throw new SQLException("Insufficient stock");
-            }
-
-            return rowsAffected > 0;
+        if (rowsAffected > 0) {
+            int change = Math.abs(quantityChange);
+            catalog.adjustStock(medicineId, "ADD".equals(operation) ? change : -change);
         }
+        return rowsAffected > 0;
     }
 
     public boolean deleteMedicine(int medicineId) throws SQLException {
         String sql = "DELETE FROM medicines WHERE medicine_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, medicineId);
-            return stmt.executeUpdate() > 0;
-        }
+        boolean deleted = executeLogged(sql, ChangeLog.DELETE, medicineId, stmt -> stmt.setInt(1, medicineId)) > 0;
+        catalog.remove(medicineId);
+        return deleted;
     }
 
     public Medicine getMedicineByName(String name) throws SQLException {
+        Medicine cached = catalog.getByName(name);
+        if (cached != null) {
+            return cached;
+        }
+
         String sql = "SELECT * FROM medicines WHERE name = ?";
 
         try (Connection conn = DatabaseConfig.getConnection();
@@ -471,18 +612,8 @@ public class InventoryDAO {
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                Medicine medicine = new Medicine();
-                medicine.setMedicineId(rs.getInt("medicine_id"));
-                medicine.setName(rs.getString("name"));
-                medicine.setCategory(rs.getString("category"));
-                medicine.setUnitPrice(rs.getDouble("unit_price"));
-                medicine.setStockQuantity(rs.getInt("stock_quantity"));
-
-                java.sql.Date expiryDate = rs.getDate("expiry_date");
-                if (expiryDate != null) {
-                    medicine.setExpiryDate(expiryDate.toLocalDate());
-                }
-
+                Medicine medicine = mapResultSetToMedicine(rs);
+                catalog.put(medicine);
                 return medicine;
             }
         }
@@ -490,33 +621,134 @@ public class InventoryDAO {
         return null;
     }
 
-    public boolean updateMedicineStock(int medicineId, int newQuantity) throws SQLException {
-        String sql = "UPDATE medicines SET stock_quantity = ? WHERE medicine_id = ?";
+    /**
+     * Looks up several medicines by name at once, e.g. every line of a
+     * prescription. Names already cached cost nothing and the rest are read
+     * in one query. The map is keyed by the names as given; names not in
+     * the inventory are left out.
+     */
+    public Map<String, Medicine> getMedicinesByNames(Collection<String> names) throws SQLException {
+        Map<String, Medicine> found = new LinkedHashMap<>();
+        Map<String, List<String>> missing = new LinkedHashMap<>();
+
+        for (String name : names) {
+            if (name == null || found.containsKey(name)) {
+                continue;
+            }
+            Medicine cached = catalog.getByName(name);
+            if (cached != null) {
+                found.put(name, cached);
+            } else {
+                missing.computeIfAbsent(MedicineCatalog.normalize(name), n -> new ArrayList<>()).add(name);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        List<String> lookup = new ArrayList<>();
+        for (List<String> asGiven : missing.values()) {
+            lookup.add(asGiven.get(0).trim());
+        }
+        String sql = "SELECT * FROM medicines WHERE name IN (" +
+                String.join(", ", Collections.nCopies(lookup.size(), "?")) + ")";
 
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            for (int i = 0; i < lookup.size(); i++) {
+                pstmt.setString(i + 1, lookup.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Medicine medicine = mapResultSetToMedicine(rs);
+                    catalog.put(medicine);
+                    List<String> asGiven = missing.get(MedicineCatalog.normalize(medicine.getName()));
+                    if (asGiven != null) {
+                        for (String name : asGiven) {
+                            found.put(name, catalog.getById(medicine.getMedicineId()));
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public boolean updateMedicineStock(int medicineId, int newQuantity) throws SQLException {
+        String sql = "UPDATE medicines SET stock_quantity = ? WHERE medicine_id = ?";
+
+        int rowsAffected = executeLogged(sql, ChangeLog.UPDATE, medicineId, pstmt -> {
             pstmt.setInt(1, newQuantity);
             pstmt.setInt(2, medicineId);
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+        });
+        if (rowsAffected > 0) {
+            catalog.setStock(medicineId, newQuantity);
         }
+        return rowsAffected > 0;
     }
 
     public boolean reduceMedicineStock(int medicineId, int quantity) throws SQLException {
         String sql = "UPDATE medicines SET stock_quantity = stock_quantity - ? " +
                 "WHERE medicine_id = ? AND stock_quantity >= ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
+        int rowsAffected = executeLogged(sql, ChangeLog.UPDATE, medicineId, pstmt -> {
             pstmt.setInt(1, quantity);
             pstmt.setInt(2, medicineId);
             pstmt.setInt(3, quantity);
+        });
+        if (rowsAffected > 0) {
+            catalog.adjustStock(medicineId, -quantity);
+        }
+        return rowsAffected > 0;
+    }
 
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+    /**
+     * Takes medicines (ID to quantity) out of stock as one JDBC batch on the
+     * caller's connection, stopping at zero. Call stockDeducted once the
+     * transaction has committed.
+     */
+    public void deductStock(Connection conn, Map<Integer, Integer> quantities) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(DEDUCT_STOCK_SQL)) {
+            for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+                pstmt.setInt(1, entry.getValue());
+                pstmt.setInt(2, entry.getValue());
+                pstmt.setInt(3, entry.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        ChangeLog.record(conn, ChangeLog.MEDICINES, ChangeLog.UPDATE, quantities.keySet());
+    }
+
+    /** Apply a committed batch deduction to the cached stock counts. */
+    public void stockDeducted(Map<Integer, Integer> quantities) {
+        for (Map.Entry<Integer, Integer> entry : quantities.entrySet()) {
+            catalog.adjustStock(entry.getKey(), -entry.getValue());
+        }
+    }
+
+    private interface StatementSetter {
+        void set(PreparedStatement stmt) throws SQLException;
+    }
+
+    // Runs a write to one medicine and its change log entry in one transaction;
+    // returns the rows changed, and logs nothing if there were none
+    private static int executeLogged(String sql, char type, int medicineId, StatementSetter setter) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                setter.set(stmt);
+                int rowsAffected = stmt.executeUpdate();
+                if (rowsAffected > 0) {
+                    ChangeLog.record(conn, ChangeLog.MEDICINES, type, medicineId);
+                }
+                conn.commit();
+                return rowsAffected;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
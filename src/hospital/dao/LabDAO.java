@@ -4,15 +4,26 @@ import hospital.models.TestRequest;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for laboratory requests and results.
  * Handles all database operations for lab tests using test_requests table only.
- * Results are stored directly in the test_requests.result field.
+ * Results are stored directly in the test_requests.result field; numeric
+ * ones are also kept in lab_results, see LabResultDAO.
  */
 public class LabDAO extends BaseDAO {
 
+    /** Receives completed requests one at a time from scanCompletedRequests. */
+    public interface CompletedRequestHandler {
+        void accept(int requestId, int testId, String testName, Timestamp requestDate, Timestamp completedDate);
+    }
+
     /**
      * Fetch pending or completed test requests for lab technician.
      * Joins with patients, doctors, and tests tables for complete info.
@@ -22,17 +33,7 @@ public class LabDAO extends BaseDAO {
      * @throws SQLException if database error occurs
      */
     public List<TestRequest> getLabRequests(String status) throws SQLException {
-        List<TestRequest> requests = new ArrayList<>();
-        
-        String sql = "SELECT tr.request_id, tr.patient_id, tr.doctor_id, tr.test_id, " +
-                    "tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, " +
-                    "CONCAT(p.first_name, ' ', p.last_name) AS patient_name, " +
-                    "d.full_name AS doctor_name, " +
-                    "t.test_name " +
-                    "FROM test_requests tr " +
-                    "JOIN patients p ON tr.patient_id = p.patient_id " +
-                    "JOIN doctors d ON tr.doctor_id = d.doctor_id " +
-                    "JOIN tests t ON tr.test_id = t.test_id " +
+        String sql = labRequestSelect() +
                     "WHERE tr.status = ? " +
                     "ORDER BY tr.request_date DESC";
         
@@ -42,44 +43,121 @@ public class LabDAO extends BaseDAO {
             PreparedStatement stmt = conn.prepareStatement(sql);
             stmt.setString(1, status);
             
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                TestRequest request = new TestRequest();
-                request.setRequestId(rs.getInt("request_id"));
-                request.setPatientId(rs.getInt("patient_id"));
-                request.setDoctorId(rs.getInt("doctor_id"));
-                request.setTestId(rs.getInt("test_id"));
-                
-                Timestamp requestDate = rs.getTimestamp("request_date");
-                if (requestDate != null) {
-                    request.setRequestDate(new java.util.Date(requestDate.getTime()));
-                }
-                
-                request.setStatus(rs.getString("status"));
-                request.setRemarks(rs.getString("remarks"));
-                request.setPatientName(rs.getString("patient_name"));
-                request.setDoctorName(rs.getString("doctor_name"));
-                request.setTestName(rs.getString("test_name"));
-                request.setResult(rs.getString("result"));
-                
-                Timestamp completedDate = rs.getTimestamp("completed_date");
-                if (completedDate != null) {
-                    request.setCompletedDate(new java.util.Date(completedDate.getTime()));
-                }
-                
-                requests.add(request);
+            List<TestRequest> requests = mapLabRequests(stmt.executeQuery());
+            stmt.close();
+            return requests;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw e;
+        } finally {
+            closeConnection(conn);
+        }
+    }
+
+    /**
+     * Fetch the given test requests whatever their status, with the same
+     * joined data as getLabRequests. Used to refresh only the requests the
+     * change log reports; IDs that no longer exist are simply missing.
+     * 
+     * @param requestIds The request IDs
+     * @return The requests found, in no particular order
+     * @throws SQLException if database error occurs
+     */
+    public List<TestRequest> getLabRequestsByIds(Collection<Integer> requestIds) throws SQLException {
+        if (requestIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = labRequestSelect() +
+                    "WHERE tr.request_id IN (" + String.join(", ", Collections.nCopies(requestIds.size(), "?")) + ")";
+        
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            int index = 1;
+            for (int requestId : requestIds) {
+                stmt.setInt(index++, requestId);
             }
             
-            rs.close();
+            List<TestRequest> requests = mapLabRequests(stmt.executeQuery());
             stmt.close();
+            return requests;
         } catch (SQLException e) {
             e.printStackTrace();
             throw e;
         } finally {
             closeConnection(conn);
         }
+    }
+
+    /**
+     * Pass every completed request's test and timestamps to handler, one
+     * row at a time, without building a list; used to seed statistics
+     * over the whole history.
+     * 
+     * @param handler Called for each completed request
+     * @throws SQLException if database error occurs
+     */
+    public void scanCompletedRequests(CompletedRequestHandler handler) throws SQLException {
+        String sql = "SELECT tr.request_id, tr.test_id, t.test_name, tr.request_date, tr.completed_date " +
+                    "FROM test_requests tr " +
+                    "JOIN tests t ON tr.test_id = t.test_id " +
+                    "WHERE tr.status = 'Completed' AND tr.request_date IS NOT NULL " +
+                    "AND tr.completed_date IS NOT NULL";
         
+        try (Connection conn = getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                handler.accept(rs.getInt("request_id"), rs.getInt("test_id"), rs.getString("test_name"),
+                        rs.getTimestamp("request_date"), rs.getTimestamp("completed_date"));
+            }
+        }
+    }
+
+    private String labRequestSelect() {
+        return "SELECT tr.request_id, tr.patient_id, tr.doctor_id, tr.test_id, " +
+               "tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, tr.priority, " +
+               dialect().concat("p.first_name", "' '", "p.last_name") + " AS patient_name, " +
+               "d.full_name AS doctor_name, " +
+               "t.test_name " +
+               "FROM test_requests tr " +
+               "JOIN patients p ON tr.patient_id = p.patient_id " +
+               "JOIN doctors d ON tr.doctor_id = d.doctor_id " +
+               "JOIN tests t ON tr.test_id = t.test_id ";
+    }
+
+    // Reads and closes rs
+    private List<TestRequest> mapLabRequests(ResultSet rs) throws SQLException {
+        List<TestRequest> requests = new ArrayList<>();
+        while (rs.next()) {
+            TestRequest request = new TestRequest();
+            request.setRequestId(rs.getInt("request_id"));
+            request.setPatientId(rs.getInt("patient_id"));
+            request.setDoctorId(rs.getInt("doctor_id"));
+            request.setTestId(rs.getInt("test_id"));
+            
+            Timestamp requestDate = rs.getTimestamp("request_date");
+            if (requestDate != null) {
+                request.setRequestDate(new java.util.Date(requestDate.getTime()));
+            }
+            
+            request.setStatus(rs.getString("status"));
+            request.setRemarks(rs.getString("remarks"));
+            request.setPriority(rs.getString("priority"));
+            request.setPatientName(rs.getString("patient_name"));
+            request.setDoctorName(rs.getString("doctor_name"));
+            request.setTestName(rs.getString("test_name"));
+            request.setResult(rs.getString("result"));
+            
+            Timestamp completedDate = rs.getTimestamp("completed_date");
+            if (completedDate != null) {
+                request.setCompletedDate(new java.util.Date(completedDate.getTime()));
+            }
+            
+            requests.add(request);
+        }
+        rs.close();
         return requests;
     }
 
@@ -94,8 +172,8 @@ public class LabDAO extends BaseDAO {
         TestRequest request = null;
         
         String sql = "SELECT tr.request_id, tr.patient_id, tr.doctor_id, tr.test_id, " +
-                    "tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, " +
-                    "CONCAT(p.first_name, ' ', p.last_name) AS patient_name, " +
+                    "tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, tr.priority, " +
+                    dialect().concat("p.first_name", "' '", "p.last_name") + " AS patient_name, " +
                     "p.gender, p.date_of_birth, " +
                     "d.full_name AS doctor_name, " +
                     "t.test_name, t.description, t.normal_range " +
@@ -127,6 +205,7 @@ public class LabDAO extends BaseDAO {
                 
                 request.setStatus(rs.getString("status"));
                 request.setRemarks(rs.getString("remarks"));
+                request.setPriority(rs.getString("priority"));
                 request.setPatientName(rs.getString("patient_name"));
                 request.setDoctorName(rs.getString("doctor_name"));
                 request.setTestName(rs.getString("test_name"));
@@ -156,27 +235,62 @@ public class LabDAO extends BaseDAO {
      * 
      * @param requestId The test request ID
      * @param resultText The test result text
-     * @return true if update successful
+     * @return true if update successful; false if the request is no longer Pending
      * @throws SQLException if database error occurs
      */
     public boolean submitTestResult(int requestId, String resultText) throws SQLException {
-        String sql = "UPDATE test_requests SET result = ?, status = 'Completed', completed_date = NOW() " +
-                    "WHERE request_id = ?";
+        return submitTestResults(Collections.singletonMap(requestId, resultText)).contains(requestId);
+    }
+
+    /**
+     * Submit the results of several requests, e.g. an analyzer run, as one
+     * JDBC batch in one transaction. Each request is completed only if it
+     * is still Pending, so a result submitted twice, here or at another
+     * bench, is skipped rather than overwriting the first. Numeric results
+     * are also stored in lab_results in the same transaction.
+     * 
+     * @param results Result text by request ID
+     * @return IDs of the requests completed; the rest were no longer Pending
+     * @throws SQLException if database error occurs; no result is saved
+     */
+    public Set<Integer> submitTestResults(Map<Integer, String> results) throws SQLException {
+        String sql = "UPDATE test_requests SET result = ?, status = 'Completed', completed_date = " + dialect().now() + " " +
+                    "WHERE request_id = ? AND status = 'Pending'";
+        
+        Set<Integer> completed = new LinkedHashSet<>();
+        if (results.isEmpty()) {
+            return completed;
+        }
         
         Connection conn = null;
         try {
             conn = getConnection();
+            conn.setAutoCommit(false);
             PreparedStatement stmt = conn.prepareStatement(sql);
-            stmt.setString(1, resultText);
-            stmt.setInt(2, requestId);
+            List<Integer> requestIds = new ArrayList<>(results.size());
+            for (Map.Entry<Integer, String> entry : results.entrySet()) {
+                stmt.setString(1, entry.getValue());
+                stmt.setInt(2, entry.getKey());
+                stmt.addBatch();
+                requestIds.add(entry.getKey());
+            }
             
-            int rowsAffected = stmt.executeUpdate();
+            int[] counts = stmt.executeBatch();
             stmt.close();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                    completed.add(requestIds.get(i));
+                }
+            }
+            ChangeLog.record(conn, ChangeLog.TEST_REQUESTS, ChangeLog.UPDATE, completed);
+            LabResultDAO.recordResults(conn, completed);
+            conn.commit();
             
-            return rowsAffected > 0;
+            return completed;
             
         } catch (SQLException e) {
             e.printStackTrace();
+            rollback(conn);
             throw e;
         } finally {
             closeConnection(conn);
@@ -197,6 +311,7 @@ public class LabDAO extends BaseDAO {
         Connection conn = null;
         try {
             conn = getConnection();
+            conn.setAutoCommit(false);
             PreparedStatement stmt = conn.prepareStatement(sql);
             
             stmt.setString(1, newStatus);
@@ -204,11 +319,16 @@ public class LabDAO extends BaseDAO {
             
             int rowsAffected = stmt.executeUpdate();
             stmt.close();
+            if (rowsAffected > 0) {
+                ChangeLog.record(conn, ChangeLog.TEST_REQUESTS, ChangeLog.UPDATE, requestId);
+            }
+            conn.commit();
             
             return rowsAffected > 0;
             
         } catch (SQLException e) {
             e.printStackTrace();
+            rollback(conn);
             throw e;
         } finally {
             closeConnection(conn);
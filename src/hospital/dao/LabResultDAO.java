@@ -0,0 +1,185 @@
+package hospital.dao;
+
+import hospital.models.LabResultValue;
+import hospital.utils.LabValues;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data Access Object for numeric lab results.
+ *
+ * test_requests.result stays the record of what the lab entered; when that
+ * text is a number it is also stored in lab_results, with the test's unit,
+ * its normal range and a low/high flag. Trends for a patient and test are
+ * then one indexed read of (patient_id, test_id, completed_date) instead of
+ * parsing every historical result. Rows are written on the connection that
+ * completes the request, so they commit or roll back with it.
+ */
+public class LabResultDAO extends BaseDAO {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String NUMERIC_SOURCE =
+            "SELECT tr.request_id, tr.patient_id, tr.test_id, tr.result, " +
+            "COALESCE(tr.completed_date, tr.request_date) AS completed_date, " +
+            "t.normal_range, t.unit " +
+            "FROM test_requests tr " +
+            "JOIN tests t ON tr.test_id = t.test_id " +
+            "WHERE tr.status = 'Completed' AND tr.result IS NOT NULL ";
+
+    /**
+     * Store the numeric results of requests just completed on conn.
+     * Results that are not numbers are left as text only.
+     *
+     * @param conn The connection completing the requests
+     * @param requestIds The requests completed
+     * @return The number of numeric results stored
+     * @throws SQLException if database error occurs
+     */
+    public static int recordResults(Connection conn, Collection<Integer> requestIds) throws SQLException {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+        String sql = NUMERIC_SOURCE +
+                "AND tr.request_id IN (" + String.join(", ", Collections.nCopies(requestIds.size(), "?")) + ")";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int requestId : requestIds) {
+                stmt.setInt(index++, requestId);
+            }
+            return storeNumeric(conn, stmt);
+        }
+    }
+
+    /**
+     * Store the numeric results of completed requests that have none yet,
+     * e.g. those completed before lab_results existed. Safe to run again.
+     *
+     * @param conn The connection to use
+     * @return The number of numeric results stored
+     * @throws SQLException if database error occurs
+     */
+    public static int backfill(Connection conn) throws SQLException {
+        String sql = NUMERIC_SOURCE +
+                "AND NOT EXISTS (SELECT 1 FROM lab_results lr WHERE lr.request_id = tr.request_id)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            return storeNumeric(conn, stmt);
+        }
+    }
+
+    // Runs select, a NUMERIC_SOURCE query, and inserts the rows whose result parses
+    private static int storeNumeric(Connection conn, PreparedStatement select) throws SQLException {
+        String sql = "INSERT INTO lab_results (request_id, patient_id, test_id, result_value, unit, " +
+                     "range_low, range_high, flag, completed_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        int stored = 0;
+        try (ResultSet rs = select.executeQuery();
+             PreparedStatement insert = conn.prepareStatement(sql)) {
+            int pending = 0;
+            while (rs.next()) {
+                Double value = LabValues.parseValue(rs.getString("result"));
+                Timestamp completedDate = rs.getTimestamp("completed_date");
+                if (value == null || completedDate == null) {
+                    continue;
+                }
+                Double[] range = LabValues.parseRange(rs.getString("normal_range"));
+                Double low = range != null ? range[0] : null;
+                Double high = range != null ? range[1] : null;
+
+                insert.setInt(1, rs.getInt("request_id"));
+                insert.setInt(2, rs.getInt("patient_id"));
+                insert.setInt(3, rs.getInt("test_id"));
+                insert.setDouble(4, value);
+                insert.setString(5, rs.getString("unit"));
+                setDouble(insert, 6, low);
+                setDouble(insert, 7, high);
+                insert.setString(8, LabValues.flag(value, low, high));
+                insert.setTimestamp(9, completedDate);
+                insert.addBatch();
+                stored++;
+                if (++pending == BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+        return stored;
+    }
+
+    private static void setDouble(PreparedStatement stmt, int index, Double value) throws SQLException {
+        if (value != null) {
+            stmt.setDouble(index, value);
+        } else {
+            stmt.setNull(index, Types.DOUBLE);
+        }
+    }
+
+    /**
+     * A patient's latest numeric results for one test, newest first.
+     *
+     * @param patientId The patient
+     * @param testId The test
+     * @param limit Maximum number of results
+     * @return Up to limit results, newest first
+     * @throws SQLException if database error occurs
+     */
+    public List<LabResultValue> getResultTrend(int patientId, int testId, int limit) throws SQLException {
+        List<LabResultValue> trend = new ArrayList<>();
+
+        String sql = "SELECT request_id, patient_id, test_id, result_value, unit, range_low, range_high, " +
+                    "flag, completed_date " +
+                    "FROM lab_results " +
+                    "WHERE patient_id = ? AND test_id = ? " +
+                    "ORDER BY completed_date DESC, request_id DESC LIMIT ?";
+
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            stmt.setInt(1, patientId);
+            stmt.setInt(2, testId);
+            stmt.setInt(3, limit);
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                LabResultValue result = new LabResultValue();
+                result.setRequestId(rs.getInt("request_id"));
+                result.setPatientId(rs.getInt("patient_id"));
+                result.setTestId(rs.getInt("test_id"));
+                result.setValue(rs.getDouble("result_value"));
+                result.setUnit(rs.getString("unit"));
+                result.setRangeLow(getDouble(rs, "range_low"));
+                result.setRangeHigh(getDouble(rs, "range_high"));
+                result.setFlag(rs.getString("flag"));
+
+                Timestamp completedDate = rs.getTimestamp("completed_date");
+                if (completedDate != null) {
+                    result.setCompletedDate(new java.util.Date(completedDate.getTime()));
+                }
+                trend.add(result);
+            }
+
+            rs.close();
+            stmt.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw e;
+        } finally {
+            closeConnection(conn);
+        }
+
+        return trend;
+    }
+
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
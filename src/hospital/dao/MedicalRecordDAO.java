@@ -9,12 +9,18 @@ import java.util.List;
 public class MedicalRecordDAO {
 
     public MedicalRecord createMedicalRecord(MedicalRecord record) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return insertMedicalRecord(conn, record);
+        }
+    }
+
+    /** Inserts the record on the caller's connection and sets its ID; null if nothing was inserted. */
+    public MedicalRecord insertMedicalRecord(Connection conn, MedicalRecord record) throws SQLException {
         String sql = "INSERT INTO medical_records (patient_id, doctor_id, appointment_id, " +
                 "visit_date, symptoms, diagnosis) " + // 6 columns
                 "VALUES (?, ?, ?, ?, ?, ?)"; // 6 parameters
 
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setInt(1, record.getPatientId());
             stmt.setInt(2, record.getDoctorId());
@@ -0,0 +1,117 @@
+package hospital.dao;
+
+import hospital.models.Medicine;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Medicines recently read from the database, by ID and by name.
+ *
+ * Names are matched trimmed and case-insensitively, as the medicines.name
+ * lookups do under MySQL's default collation. Each entry is dropped after
+ * maxAgeMillis so price and stock changes made on other machines show up;
+ * InventoryDAO applies its own writes to the cached stock straight away.
+ *
+ * Callers always get their own copy, so editing a returned Medicine never
+ * changes what other screens see.
+ */
+public class MedicineCatalog {
+
+    private final long maxAgeMillis;
+    private final Map<Integer, Entry> byId = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byName = new ConcurrentHashMap<>();
+
+    public MedicineCatalog(long maxAgeMillis) {
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    public Medicine getById(int medicineId) {
+        return fresh(byId.get(medicineId));
+    }
+
+    public Medicine getByName(String name) {
+        return name == null ? null : fresh(byName.get(normalize(name)));
+    }
+
+    public synchronized void put(Medicine medicine) {
+        remove(medicine.getMedicineId());
+        Entry entry = new Entry(copy(medicine), System.currentTimeMillis());
+        byId.put(medicine.getMedicineId(), entry);
+        if (medicine.getName() != null) {
+            byName.put(normalize(medicine.getName()), entry);
+        }
+    }
+
+    public synchronized void remove(int medicineId) {
+        Entry old = byId.remove(medicineId);
+        if (old != null && old.medicine.getName() != null) {
+            byName.remove(normalize(old.medicine.getName()), old);
+        }
+    }
+
+    /** Record a stock change already written to the database. */
+    public synchronized void adjustStock(int medicineId, int change) {
+        Entry entry = byId.get(medicineId);
+        if (entry != null) {
+            setStock(medicineId, Math.max(0, entry.medicine.getStockQuantity() + change));
+        }
+    }
+
+    public synchronized void setStock(int medicineId, int quantity) {
+        Entry entry = byId.get(medicineId);
+        if (entry != null) {
+            Medicine updated = copy(entry.medicine);
+            updated.setStockQuantity(quantity);
+            // Keeps the original load time: the rest of the row is no fresher
+            Entry replacement = new Entry(updated, entry.loadedAt);
+            byId.put(medicineId, replacement);
+            if (updated.getName() != null) {
+                byName.put(normalize(updated.getName()), replacement);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        byId.clear();
+        byName.clear();
+    }
+
+    static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Medicine fresh(Entry entry) {
+        if (entry == null || System.currentTimeMillis() - entry.loadedAt >= maxAgeMillis) {
+            return null;
+        }
+        return copy(entry.medicine);
+    }
+
+    static Medicine copy(Medicine source) {
+        Medicine medicine = new Medicine();
+        medicine.setMedicineId(source.getMedicineId());
+        medicine.setName(source.getName());
+        medicine.setGenericName(source.getGenericName());
+        medicine.setManufacturer(source.getManufacturer());
+        medicine.setCategory(source.getCategory());
+        medicine.setUnitPrice(source.getUnitPrice());
+        medicine.setStockQuantity(source.getStockQuantity());
+        medicine.setMinimumStockLevel(source.getMinimumStockLevel());
+        medicine.setExpiryDate(source.getExpiryDate());
+        medicine.setBatchNumber(source.getBatchNumber());
+        medicine.setStorageLocation(source.getStorageLocation());
+        medicine.setCreatedAt(source.getCreatedAt());
+        return medicine;
+    }
+
+    private static final class Entry {
+        final Medicine medicine;
+        final long loadedAt;
+
+        Entry(Medicine medicine, long loadedAt) {
+            this.medicine = medicine;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -2,36 +2,62 @@ package hospital.dao;
 
 import hospital.config.DatabaseConfig;
 import hospital.models.Patient;
+import hospital.utils.DateUtil;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class PatientDAO {
+    private static final int DEFAULT_SEARCH_LIMIT = 100;
+    // How often a search also picks up patients changed at other workstations
+    private static final long CATCH_UP_INTERVAL_MILLIS = 5_000L;
+    
+    private static volatile PatientSearchIndex searchIndex = new PatientSearchIndex();
+    private static final Object indexLock = new Object();
+    private static volatile boolean indexLoaded;
+    private static volatile long lastCatchUp;
+    // Follows patients registered, renamed or deleted anywhere since the index was built
+    private static final ChangeCursor indexChanges = new ChangeCursor(ChangeLog.PATIENTS);
     
     public Patient createPatient(Patient patient) throws SQLException {
         String sql = "INSERT INTO patients (first_name, last_name, date_of_birth, gender, " +
                     "medical_history, registered_at) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, patient.getFirstName());
-            stmt.setString(2, patient.getLastName());
-            stmt.setDate(3, Date.valueOf(patient.getDateOfBirth()));
-            stmt.setString(4, patient.getGender());
-            stmt.setString(5, patient.getMedicalHistory());
-            stmt.setTimestamp(6, Timestamp.valueOf(patient.getRegisteredAt()));
-            
-            int result = stmt.executeUpdate();
-            if (result > 0) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                
+                stmt.setString(1, patient.getFirstName());
+                stmt.setString(2, patient.getLastName());
+                stmt.setDate(3, Date.valueOf(patient.getDateOfBirth()));
+                stmt.setString(4, patient.getGender());
+                stmt.setString(5, patient.getMedicalHistory());
+                stmt.setTimestamp(6, Timestamp.valueOf(patient.getRegisteredAt()));
+                
+                int result = stmt.executeUpdate();
+                if (result == 0) {
+                    conn.rollback();
+                    return null;
+                }
                 ResultSet rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
                     patient.setPatientId(rs.getInt(1));
                 }
-                return patient;
+                ChangeLog.record(conn, ChangeLog.PATIENTS, ChangeLog.INSERT, patient.getPatientId());
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
-        return null;
+        searchIndex.put(patient.getPatientId(), patient.getFirstName(), patient.getLastName());
+        return patient;
     }
     
     public List<Patient> getAllPatients() throws SQLException {
@@ -49,6 +75,37 @@ public class PatientDAO {
         return patients;
     }
     
+    /**
+     * One page of patients, newest first, starting after the given patient
+     * (or from the newest if after is null). Seeks on patient_id, which is
+     * assigned in registration order and never NULL, instead of using
+     * OFFSET, so later pages are as cheap as the first and patients with no
+     * registered_at are still listed.
+     */
+    public List<Patient> getPatientsPage(Patient after, int pageSize) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        String sql = "SELECT * FROM patients " +
+                    (after != null ? "WHERE patient_id < ? " : "") +
+                    "ORDER BY patient_id DESC LIMIT ?";
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int i = 1;
+            if (after != null) {
+                stmt.setInt(i++, after.getPatientId());
+            }
+            stmt.setInt(i, pageSize);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(mapResultSetToPatient(rs));
+                }
+            }
+        }
+        return patients;
+    }
+    
     public Patient getPatientById(int patientId) throws SQLException {
         String sql = "SELECT * FROM patients WHERE patient_id = ?";
         
@@ -66,10 +123,182 @@ public class PatientDAO {
     }
     
     public List<Patient> searchPatients(String searchTerm) throws SQLException {
+        return searchPatients(searchTerm, DEFAULT_SEARCH_LIMIT);
+    }
+    
+    /**
+     * Best matches for a name or patient ID, at most limit of them. Served
+     * from the in-memory search index once it is loaded; until then this
+     * falls back to a LIKE query.
+     */
+    public List<Patient> searchPatients(String searchTerm, int limit) throws SQLException {
+        if (!indexLoaded) {
+            return searchPatientsByQuery(searchTerm, limit);
+        }
+        catchUpSearchIndex();
+        return getPatientsByIds(searchIndex.search(searchTerm, limit));
+    }
+    
+    /**
+     * Results for term taken from the results already found for a shorter
+     * prefix of it, or null when that would not give the same patients:
+     * before the index is loaded, for patient IDs, and when the term crosses
+     * from word-prefix to substring matching. Order follows prefixResults.
+     */
+    public static List<Patient> narrowSearch(String prefix, List<Patient> prefixResults, String term) {
+        if (!indexLoaded || term.trim().chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        int minSubstring = PatientSearchIndex.getSubstringMinLength();
+        if (prefix.trim().length() < minSubstring && term.trim().length() >= minSubstring) {
+            return null;
+        }
+        
+        List<Patient> narrowed = new ArrayList<>();
+        for (Patient patient : prefixResults) {
+            if (PatientSearchIndex.matches(patient.getFirstName(), patient.getLastName(), term)) {
+                narrowed.add(patient);
+            }
+        }
+        return narrowed;
+    }
+    
+    public static int getDefaultSearchLimit() {
+        return DEFAULT_SEARCH_LIMIT;
+    }
+    
+    /**
+     * Builds the patient search index from the patients table. Safe to call
+     * more than once; a rebuild is swapped in when complete, so searches keep
+     * using the old index meanwhile. Reads only the ID and name columns.
+     */
+    public static void loadSearchIndex() throws SQLException {
+        String sql = "SELECT patient_id, first_name, last_name FROM patients";
+        
+        synchronized (indexLock) {
+            PatientSearchIndex index = new PatientSearchIndex();
+            indexChanges.reset();
+            try (Connection conn = DatabaseConfig.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                
+                stmt.setFetchSize(1000);
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        index.put(rs.getInt(1), rs.getString(2), rs.getString(3));
+                    }
+                }
+            }
+            searchIndex = index;
+            indexLoaded = true;
+            lastCatchUp = System.currentTimeMillis();
+        }
+    }
+    
+    /**
+     * Builds the patient search index unless it is already loaded, e.g. by
+     * an earlier login in this process.
+     */
+    public static void ensureSearchIndex() throws SQLException {
+        if (indexLoaded) {
+            return;
+        }
+        synchronized (indexLock) {
+            if (!indexLoaded) {
+                loadSearchIndex();
+            }
+        }
+    }
+    
+    // Applies patients registered, renamed or deleted anywhere since the last look,
+    // as the change log reports them; rebuilds if the log can't say
+    private static void catchUpSearchIndex() throws SQLException {
+        if (System.currentTimeMillis() - lastCatchUp < CATCH_UP_INTERVAL_MILLIS) {
+            return;
+        }
+        String sql = "SELECT patient_id, first_name, last_name FROM patients WHERE patient_id IN (";
+        
+        synchronized (indexLock) {
+            if (System.currentTimeMillis() - lastCatchUp < CATCH_UP_INTERVAL_MILLIS) {
+                return;
+            }
+            ChangeLog.Changes changes = indexChanges.poll();
+            if (changes.isFullReload()) {
+                loadSearchIndex();
+                return;
+            }
+            for (int patientId : changes.getDeleted()) {
+                searchIndex.remove(patientId);
+            }
+            Set<Integer> upserted = changes.getUpserted();
+            if (!upserted.isEmpty()) {
+                // Re-read rows may since have been deleted; those leave the index
+                Set<Integer> missing = new HashSet<>(upserted);
+                try (Connection conn = DatabaseConfig.getConnection();
+                     PreparedStatement stmt = conn.prepareStatement(
+                         sql + String.join(", ", Collections.nCopies(upserted.size(), "?")) + ")")) {
+                    
+                    int index = 1;
+                    for (int patientId : upserted) {
+                        stmt.setInt(index++, patientId);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            int patientId = rs.getInt(1);
+                            searchIndex.put(patientId, rs.getString(2), rs.getString(3));
+                            missing.remove(patientId);
+                        }
+                    }
+                }
+                for (int patientId : missing) {
+                    searchIndex.remove(patientId);
+                }
+            }
+            lastCatchUp = System.currentTimeMillis();
+        }
+    }
+    
+    // Full rows for the given IDs, in the order given
+    private List<Patient> getPatientsByIds(List<Integer> ids) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return patients;
+        }
+        
+        StringBuilder sql = new StringBuilder("SELECT * FROM patients WHERE patient_id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        
+        Map<Integer, Patient> byId = new HashMap<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setInt(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Patient patient = mapResultSetToPatient(rs);
+                    byId.put(patient.getPatientId(), patient);
+                }
+            }
+        }
+        
+        for (Integer id : ids) {
+            Patient patient = byId.get(id);
+            if (patient != null) {
+                patients.add(patient);
+            }
+        }
+        return patients;
+    }
+    
+    private List<Patient> searchPatientsByQuery(String searchTerm, int limit) throws SQLException {
         List<Patient> patients = new ArrayList<>();
         String sql = "SELECT * FROM patients WHERE " +
                     "first_name LIKE ? OR last_name LIKE ? OR " +
-                    "CONCAT(first_name, ' ', last_name) LIKE ? OR " +
+                    DatabaseConfig.getDialect().concat("first_name", "' '", "last_name") + " LIKE ? OR " +
                     "patient_id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -86,6 +315,7 @@ public class PatientDAO {
                 stmt.setInt(4, -1);
             }
             
+            stmt.setMaxRows(limit);
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
                 patients.add(mapResultSetToPatient(rs));
@@ -98,29 +328,28 @@ public class PatientDAO {
         String sql = "UPDATE patients SET first_name = ?, last_name = ?, date_of_birth = ?, " +
                     "gender = ?, medical_history = ? WHERE patient_id = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        boolean updated = executeLogged(sql, ChangeLog.UPDATE, patient.getPatientId(), stmt -> {
             stmt.setString(1, patient.getFirstName());
             stmt.setString(2, patient.getLastName());
             stmt.setDate(3, Date.valueOf(patient.getDateOfBirth()));
             stmt.setString(4, patient.getGender());
             stmt.setString(5, patient.getMedicalHistory());
             stmt.setInt(6, patient.getPatientId());
-            
-            return stmt.executeUpdate() > 0;
+        });
+        if (updated) {
+            searchIndex.put(patient.getPatientId(), patient.getFirstName(), patient.getLastName());
         }
+        return updated;
     }
     
     public boolean deletePatient(int patientId) throws SQLException {
         String sql = "DELETE FROM patients WHERE patient_id = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, patientId);
-            return stmt.executeUpdate() > 0;
+        boolean deleted = executeLogged(sql, ChangeLog.DELETE, patientId, stmt -> stmt.setInt(1, patientId));
+        if (deleted) {
+            searchIndex.remove(patientId);
         }
+        return deleted;
     }
     
     public int getTotalPatientsCount() throws SQLException {
@@ -135,13 +364,42 @@ public class PatientDAO {
     }
     
     public int getTodayRegistrationsCount() throws SQLException {
-        String sql = "SELECT COUNT(*) FROM patients WHERE DATE(registered_at) = CURDATE()";
+        String sql = "SELECT COUNT(*) FROM patients WHERE registered_at >= ? AND registered_at < ?";
+        LocalDate today = LocalDate.now();
         
         try (Connection conn = DatabaseConfig.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            return rs.next() ? rs.getInt(1) : 0;
+            stmt.setTimestamp(1, DateUtil.dayStart(today));
+            stmt.setTimestamp(2, DateUtil.nextDayStart(today));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    private interface StatementSetter {
+        void set(PreparedStatement stmt) throws SQLException;
+    }
+    
+    // Runs a write to one patient and its change log entry in one transaction;
+    // returns whether a row changed, and logs nothing if none did
+    private static boolean executeLogged(String sql, char type, int patientId, StatementSetter setter) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                setter.set(stmt);
+                boolean changed = stmt.executeUpdate() > 0;
+                if (changed) {
+                    ChangeLog.record(conn, ChangeLog.PATIENTS, type, patientId);
+                }
+                conn.commit();
+                return changed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
     
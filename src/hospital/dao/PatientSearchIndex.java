@@ -0,0 +1,378 @@
+package hospital.dao;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory name index for patient search-as-you-type.
+ *
+ * Names are normalized (lower case, accents stripped, single spaces) and
+ * indexed two ways: trigrams of the full name for substring matches, and a
+ * sorted map of name words for one- and two-character prefix queries. A
+ * query only touches the posting lists of its own grams, so the cost depends
+ * on how many names match rather than on the size of the patients table.
+ *
+ * Entries live in slots that are only ever appended. Updating or removing a
+ * patient empties its old slot; stale postings are skipped when candidates
+ * are verified against the live name, and the index is compacted once they
+ * make up a quarter of all slots.
+ */
+public class PatientSearchIndex {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<Entry> slots = new ArrayList<>();
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+    private final NavigableMap<String, IntList> words = new TreeMap<>();
+    private int emptySlots;
+
+    public void put(int patientId, String firstName, String lastName) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(patientId);
+            addSlot(new Entry(patientId, normalize(firstName), normalize(lastName)));
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int patientId) {
+        lock.writeLock().lock();
+        try {
+            removeSlot(patientId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Patient IDs matching the query, best first, at most limit of them.
+     *
+     * An exact patient ID ranks first, then names starting with the query,
+     * then names with a word starting with it, then any other substring
+     * match. Ties go to the shorter name, then the lower ID.
+     */
+    public List<Integer> search(String query, int limit) {
+        String q = normalize(query);
+        List<Integer> result = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            TopMatches matches = new TopMatches(limit);
+            Integer idSlot = parseId(q);
+            if (idSlot != null) {
+                matches.add(new Match(slots.get(idSlot), 0));
+            }
+
+            if (q.length() < GRAM) {
+                collectWordPrefixMatches(q, idSlot, matches);
+            } else {
+                collectTrigramMatches(q, idSlot, matches);
+            }
+
+            for (Match match : matches.sorted()) {
+                result.add(match.entry.patientId);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether search(term) would match this name: a word prefix for terms
+     * shorter than three characters, a substring otherwise. Patient IDs are
+     * not considered.
+     */
+    public static boolean matches(String firstName, String lastName, String term) {
+        String q = normalize(term);
+        if (q.isEmpty()) {
+            return false;
+        }
+        int rank = new Entry(0, normalize(firstName), normalize(lastName)).rank(q);
+        return q.length() < GRAM ? rank == 1 || rank == 2 : rank > 0;
+    }
+
+    /** Shortest term that is matched by substring rather than word prefix. */
+    public static int getSubstringMinLength() {
+        return GRAM;
+    }
+
+    private Integer parseId(String q) {
+        for (int i = 0; i < q.length(); i++) {
+            if (!Character.isDigit(q.charAt(i))) {
+                return null;
+            }
+        }
+        try {
+            return slotById.get(Integer.parseInt(q));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void collectWordPrefixMatches(String q, Integer idSlot, TopMatches matches) {
+        IntList candidates = new IntList();
+        for (IntList postings : words.subMap(q, true, q + Character.MAX_VALUE, false).values()) {
+            for (int i = 0; i < postings.size; i++) {
+                candidates.add(postings.values[i]);
+            }
+        }
+        for (int slot : candidates.sortedDistinct()) {
+            addIfMatches(slot, q, idSlot, matches);
+        }
+    }
+
+    private void collectTrigramMatches(String q, Integer idSlot, TopMatches matches) {
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            IntList postings = trigrams.get(q.substring(i, i + GRAM));
+            if (postings == null) {
+                return;
+            }
+            lists.add(postings);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+        int[] candidates = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = intersect(candidates, lists.get(i));
+        }
+        for (int slot : candidates) {
+            addIfMatches(slot, q, idSlot, matches);
+        }
+    }
+
+    private void addIfMatches(int slot, String q, Integer idSlot, TopMatches matches) {
+        if (idSlot != null && idSlot == slot) {
+            return;
+        }
+        Entry entry = slots.get(slot);
+        if (entry == null) {
+            return;
+        }
+        int rank = entry.rank(q);
+        if (rank > 0) {
+            matches.add(new Match(entry, rank));
+        }
+    }
+
+    private void compactIfSparse() {
+        if (emptySlots > 1024 && emptySlots * 4 > slots.size()) {
+            compact();
+        }
+    }
+
+    private void addSlot(Entry entry) {
+        int slot = slots.size();
+        slots.add(entry);
+        slotById.put(entry.patientId, slot);
+
+        String name = entry.fullName;
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            String gram = name.substring(i, i + GRAM);
+            // Postings stay sorted because slots only grow; skip repeats within a name
+            IntList postings = trigrams.computeIfAbsent(gram, k -> new IntList());
+            if (postings.size == 0 || postings.values[postings.size - 1] != slot) {
+                postings.add(slot);
+            }
+        }
+        for (String word : SPACES.split(name)) {
+            if (!word.isEmpty()) {
+                IntList postings = words.computeIfAbsent(word, k -> new IntList());
+                if (postings.size == 0 || postings.values[postings.size - 1] != slot) {
+                    postings.add(slot);
+                }
+            }
+        }
+    }
+
+    private void removeSlot(int patientId) {
+        Integer slot = slotById.remove(patientId);
+        if (slot != null) {
+            slots.set(slot, null);
+            emptySlots++;
+        }
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>(slotById.size());
+        for (Entry entry : slots) {
+            if (entry != null) {
+                live.add(entry);
+            }
+        }
+        slots.clear();
+        slotById.clear();
+        trigrams.clear();
+        words.clear();
+        emptySlots = 0;
+        for (Entry entry : live) {
+            addSlot(entry);
+        }
+    }
+
+    private static int[] intersect(int[] a, IntList b) {
+        int[] out = new int[Math.min(a.length, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.size) {
+            int x = a[i], y = b.values[j];
+            if (x == y) {
+                out[n++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static String normalize(String s) {
+        if (s == null) {
+            return "";
+        }
+        String folded = MARKS.matcher(Normalizer.normalize(s, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(folded.toLowerCase().trim()).replaceAll(" ");
+    }
+
+    private static final class Entry {
+        final int patientId;
+        final String firstName;
+        final String lastName;
+        final String fullName;
+
+        Entry(int patientId, String firstName, String lastName) {
+            this.patientId = patientId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.fullName = (firstName + " " + lastName).trim();
+        }
+
+        // 1 = first or last name prefix, 2 = word prefix, 3 = substring, 0 = no match
+        int rank(String q) {
+            if (fullName.startsWith(q) || lastName.startsWith(q)) {
+                return 1;
+            }
+            int at = fullName.indexOf(q);
+            if (at < 0) {
+                return 0;
+            }
+            while (at >= 0) {
+                if (at == 0 || fullName.charAt(at - 1) == ' ') {
+                    return 2;
+                }
+                at = fullName.indexOf(q, at + 1);
+            }
+            return 3;
+        }
+    }
+
+    /**
+     * The best limit matches seen so far. A max-heap whose head is the worst
+     * match kept, so a broad prefix costs O(n log limit) and only the kept
+     * matches are sorted.
+     */
+    private static final class TopMatches {
+        private final int limit;
+        private final PriorityQueue<Match> heap;
+
+        TopMatches(int limit) {
+            this.limit = limit;
+            this.heap = new PriorityQueue<>(Math.min(limit, 64) + 1, Collections.reverseOrder());
+        }
+
+        void add(Match match) {
+            if (heap.size() < limit) {
+                heap.add(match);
+            } else if (match.compareTo(heap.peek()) < 0) {
+                heap.poll();
+                heap.add(match);
+            }
+        }
+
+        List<Match> sorted() {
+            List<Match> matches = new ArrayList<>(heap);
+            matches.sort(null);
+            return matches;
+        }
+    }
+
+    private static final class Match implements Comparable<Match> {
+        final Entry entry;
+        final int rank;
+
+        Match(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (rank != other.rank) {
+                return Integer.compare(rank, other.rank);
+            }
+            int byLength = Integer.compare(entry.fullName.length(), other.entry.fullName.length());
+            if (byLength != 0) {
+                return byLength;
+            }
+            return Integer.compare(entry.patientId, other.entry.patientId);
+        }
+    }
+
+    // Growable int array; boxed Integer sets would cost several times the memory
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] sortedDistinct() {
+            int[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            int n = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (n == 0 || sorted[n - 1] != sorted[i]) {
+                    sorted[n++] = sorted[i];
+                }
+            }
+            return Arrays.copyOf(sorted, n);
+        }
+    }
+}
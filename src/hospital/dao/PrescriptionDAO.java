@@ -1,17 +1,44 @@
 package hospital.dao;
 
 import hospital.config.DatabaseConfig;
+import hospital.config.SqlDialect;
 import hospital.models.Prescription;
 import hospital.models.Medicine;
+import hospital.utils.DateUtil;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 public class PrescriptionDAO {
 
     public List<Prescription> getTodaysPrescriptions() throws SQLException {
+        return findTodaysPrescriptions("", Collections.emptyList());
+    }
+
+    /**
+     * Today's prescriptions of every medical record that has one of the
+     * given prescriptions, so a screen grouping by record can refresh just
+     * the records the change log reports.
+     */
+    public List<Prescription> getTodaysPrescriptionsForRecordsOf(Collection<Integer> prescriptionIds) throws SQLException {
+        if (prescriptionIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(prescriptionIds.size(), "?"));
+        return findTodaysPrescriptions("AND p.record_id IN (SELECT record_id FROM prescriptions " +
+                "WHERE prescription_id IN (" + placeholders + ")) ", prescriptionIds);
+    }
+
+    private List<Prescription> findTodaysPrescriptions(String extraWhere, Collection<Integer> params) throws SQLException {
+        SqlDialect dialect = DatabaseConfig.getDialect();
+        LocalDate today = LocalDate.now();
         String sql = "SELECT p.*, " +
                 "COALESCE(m.name, p.medicine_name) AS medicine_name, " +
-                "COALESCE(CONCAT(pat.first_name, ' ', pat.last_name), 'Unknown Patient') AS patient_name, " +
+                "COALESCE(" + dialect.concat("pat.first_name", "' '", "pat.last_name") + ", 'Unknown Patient') AS patient_name, " +
                 "COALESCE(u.username, 'Unknown Doctor') AS doctor_name, " +  // Changed to users table
                 "mr.diagnosis, " +
                 "COALESCE(p.status, 'Pending') AS prescription_status " +
@@ -20,7 +47,7 @@ public class PrescriptionDAO {
                 "LEFT JOIN patients pat ON mr.patient_id = pat.patient_id " +
                 "LEFT JOIN users u ON mr.doctor_id = u.user_id " +  // Join with users table instead of doctors
                 "LEFT JOIN medicines m ON p.medicine_id = m.medicine_id " +
-                "WHERE DATE(p.created_at) = CURDATE() " +
+                "WHERE p.created_at >= ? AND p.created_at < ? " + extraWhere +
                 "ORDER BY p.created_at DESC, p.record_id";
 
         List<Prescription> prescriptions = new ArrayList<>();
@@ -28,6 +55,13 @@ public class PrescriptionDAO {
         try (Connection conn = DatabaseConfig.getConnection();
                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
+            pstmt.setTimestamp(1, DateUtil.dayStart(today));
+            pstmt.setTimestamp(2, DateUtil.nextDayStart(today));
+            int index = 3;
+            for (int param : params) {
+                pstmt.setInt(index++, param);
+            }
+
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
@@ -58,9 +92,10 @@ public class PrescriptionDAO {
     }
 
     public List<Prescription> getPrescriptionsByRecordId(int recordId) throws SQLException {
+        SqlDialect dialect = DatabaseConfig.getDialect();
         String sql = "SELECT p.*, " +
                 "COALESCE(m.name, p.medicine_name) AS medicine_name, " +
-                "COALESCE(CONCAT(pat.first_name, ' ', pat.last_name), 'Unknown Patient') AS patient_name, " +
+                "COALESCE(" + dialect.concat("pat.first_name", "' '", "pat.last_name") + ", 'Unknown Patient') AS patient_name, " +
                 "COALESCE(u.username, 'Unknown Doctor') AS doctor_name, " +  // Changed to users table
                 "mr.diagnosis, " +
                 "COALESCE(p.status, 'Pending') AS prescription_status " +
@@ -107,9 +142,10 @@ public class PrescriptionDAO {
     }
 
     public List<Prescription> getDispensedHistory() throws SQLException {
+        SqlDialect dialect = DatabaseConfig.getDialect();
         String sql = "SELECT p.*, " +
                 "COALESCE(m.name, p.medicine_name) AS medicine_name, " +
-                "COALESCE(CONCAT(pat.first_name, ' ', pat.last_name), 'Unknown Patient') AS patient_name, " +
+                "COALESCE(" + dialect.concat("pat.first_name", "' '", "pat.last_name") + ", 'Unknown Patient') AS patient_name, " +
                 "COALESCE(u.username, 'Unknown Doctor') AS doctor_name, " +  // Changed to users table
                 "pharm.username AS pharmacist_name " +
                 "FROM prescriptions p " +
@@ -161,44 +197,115 @@ public class PrescriptionDAO {
         String sql = "INSERT INTO prescriptions " +
                      "(record_id, medicine_name, frequency, duration, quantity, total_amount, created_at) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setInt(1, p.getRecordId());
-            stmt.setString(2, p.getMedicineName());
-            stmt.setString(3, p.getFrequency());
-            stmt.setString(4, p.getDuration());
-            stmt.setInt(5, p.getQuantity());
-            stmt.setDouble(6, p.getTotalCost());
-            stmt.setTimestamp(7, java.sql.Timestamp.valueOf(p.getCreatedAt()));
-            stmt.executeUpdate();
-            return p;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, p.getRecordId());
+                stmt.setString(2, p.getMedicineName());
+                stmt.setString(3, p.getFrequency());
+                stmt.setString(4, p.getDuration());
+                stmt.setInt(5, p.getQuantity());
+                stmt.setDouble(6, p.getTotalCost());
+                stmt.setTimestamp(7, java.sql.Timestamp.valueOf(p.getCreatedAt()));
+                stmt.executeUpdate();
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        p.setPrescriptionId(rs.getInt(1));
+                        ChangeLog.record(conn, ChangeLog.PRESCRIPTIONS, ChangeLog.INSERT, p.getPrescriptionId());
+                    }
+                }
+                conn.commit();
+                return p;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Inserts all the prescriptions as one JDBC batch on the caller's
+     * connection. Prescription IDs are not read back.
+     */
+    public void insertPrescriptions(Connection conn, List<Prescription> prescriptions) throws SQLException {
+        String sql = "INSERT INTO prescriptions " +
+                     "(record_id, medicine_name, frequency, duration, quantity, total_amount, created_at) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        Set<Integer> recordIds = new LinkedHashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Prescription p : prescriptions) {
+                stmt.setInt(1, p.getRecordId());
+                stmt.setString(2, p.getMedicineName());
+                stmt.setString(3, p.getFrequency());
+                stmt.setString(4, p.getDuration());
+                stmt.setInt(5, p.getQuantity());
+                stmt.setDouble(6, p.getTotalCost());
+                stmt.setTimestamp(7, java.sql.Timestamp.valueOf(p.getCreatedAt()));
+                stmt.addBatch();
+                recordIds.add(p.getRecordId());
+            }
+            stmt.executeBatch();
+        }
+        for (int recordId : recordIds) {
+            ChangeLog.recordByParent(conn, ChangeLog.PRESCRIPTIONS, ChangeLog.INSERT,
+                    "prescription_id", "record_id", recordId);
         }
     }
 
     public boolean deletePrescription(int prescriptionId) throws SQLException {
         String sql = "DELETE FROM prescriptions WHERE prescription_id = ?";
 
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setInt(1, prescriptionId);
-            return stmt.executeUpdate() > 0;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, prescriptionId);
+                boolean deleted = stmt.executeUpdate() > 0;
+                if (deleted) {
+                    ChangeLog.record(conn, ChangeLog.PRESCRIPTIONS, ChangeLog.DELETE, prescriptionId);
+                }
+                conn.commit();
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
     public boolean markAsDispensed(int recordId, int pharmacistId) throws SQLException {
-        String sql = "UPDATE prescriptions SET status = 'Dispensed', " +
-                "dispensed_by = ?, dispensed_at = NOW() " +
-                "WHERE record_id = ?";
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                boolean marked = markAsDispensed(conn, recordId, pharmacistId) > 0;
+                conn.commit();
+                return marked;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 
-        try (Connection conn = DatabaseConfig.getConnection();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    /**
+     * Marks the record's prescriptions that are not yet dispensed, on the
+     * caller's connection. Returns how many were marked; 0 means another
+     * pharmacist already dispensed them. The updated rows stay locked until
+     * the transaction ends.
+     */
+    public int markAsDispensed(Connection conn, int recordId, int pharmacistId) throws SQLException {
+        String sql = "UPDATE prescriptions SET status = 'Dispensed', " +
+                "dispensed_by = ?, dispensed_at = " + DatabaseConfig.getDialect().now() + " " +
+                "WHERE record_id = ? AND COALESCE(status, 'Pending') <> 'Dispensed'";
 
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, pharmacistId);
             pstmt.setInt(2, recordId);
-
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            int marked = pstmt.executeUpdate();
+            if (marked > 0) {
+                ChangeLog.recordByParent(conn, ChangeLog.PRESCRIPTIONS, ChangeLog.UPDATE,
+                        "prescription_id", "record_id", recordId);
+            }
+            return marked;
         }
     }
 }
\ No newline at end of file
@@ -2,8 +2,12 @@ package hospital.dao;
 
 
 import hospital.config.DatabaseConfig;
+import hospital.config.SqlDialect;
+import hospital.utils.DateUtil;
 import java.sql.*;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 
 public class ReportDAO {
     
@@ -29,6 +33,7 @@ public class ReportDAO {
         report.append("DAILY REVENUE REPORT\n");
         report.append("Date: ").append(LocalDate.now()).append("\n");
         report.append("=".repeat(60)).append("\n\n");
+        LocalDate today = LocalDate.now();
         
         try (Connection conn = DatabaseConfig.getConnection()) {
             String sql = "SELECT " +
@@ -36,15 +41,18 @@ public class ReportDAO {
                         "SUM(total_amount) as total_revenue, " +
                         "SUM(paid_amount) as paid_amount, " +
                         "SUM(total_amount - paid_amount) as pending_amount " +
-                        "FROM bills WHERE DATE(created_at) = CURDATE()";
+                        "FROM bills WHERE created_at >= ? AND created_at < ?";
             
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
-                if (rs.next()) {
-                    report.append(String.format("Total Bills: %d\n", rs.getInt("total_bills")));
-                    report.append(String.format("Total Revenue: ₹%.2f\n", rs.getDouble("total_revenue")));
-                    report.append(String.format("Paid Amount: ₹%.2f\n", rs.getDouble("paid_amount")));
-                    report.append(String.format("Pending Amount: ₹%.2f\n", rs.getDouble("pending_amount")));
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, DateUtil.dayStart(today));
+                stmt.setTimestamp(2, DateUtil.nextDayStart(today));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        report.append(String.format("Total Bills: %d\n", rs.getInt("total_bills")));
+                        report.append(String.format("Total Revenue: ₹%.2f\n", rs.getDouble("total_revenue")));
+                        report.append(String.format("Paid Amount: ₹%.2f\n", rs.getDouble("paid_amount")));
+                        report.append(String.format("Pending Amount: ₹%.2f\n", rs.getDouble("pending_amount")));
+                    }
                 }
             }
         }
@@ -58,21 +66,24 @@ public class ReportDAO {
         report.append("Month: ").append(LocalDate.now().getMonth()).append(" ")
               .append(LocalDate.now().getYear()).append("\n");
         report.append("=".repeat(60)).append("\n\n");
+        LocalDate monthStart = LocalDate.now().withDayOfMonth(1);
         
         try (Connection conn = DatabaseConfig.getConnection()) {
             String sql = "SELECT " +
                         "COUNT(*) as total_bills, " +
                         "SUM(total_amount) as total_revenue, " +
                         "SUM(paid_amount) as paid_amount " +
-                        "FROM bills WHERE MONTH(created_at) = MONTH(CURDATE()) " +
-                        "AND YEAR(created_at) = YEAR(CURDATE())";
+                        "FROM bills WHERE created_at >= ? AND created_at < ?";
             
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
-                if (rs.next()) {
-                    report.append(String.format("Total Bills: %d\n", rs.getInt("total_bills")));
-                    report.append(String.format("Total Revenue: ₹%.2f\n", rs.getDouble("total_revenue")));
-                    report.append(String.format("Collected: ₹%.2f\n", rs.getDouble("paid_amount")));
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setTimestamp(1, DateUtil.dayStart(monthStart));
+                stmt.setTimestamp(2, DateUtil.dayStart(monthStart.plusMonths(1)));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        report.append(String.format("Total Bills: %d\n", rs.getInt("total_bills")));
+                        report.append(String.format("Total Revenue: ₹%.2f\n", rs.getDouble("total_revenue")));
+                        report.append(String.format("Collected: ₹%.2f\n", rs.getDouble("paid_amount")));
+                    }
                 }
             }
         }
@@ -84,6 +95,7 @@ public class ReportDAO {
         StringBuilder report = new StringBuilder();
         report.append("PATIENT DEMOGRAPHICS REPORT\n");
         report.append("=".repeat(60)).append("\n\n");
+        SqlDialect dialect = DatabaseConfig.getDialect();
         
         try (Connection conn = DatabaseConfig.getConnection()) {
             // Total patients
@@ -106,12 +118,13 @@ public class ReportDAO {
             }
             
             report.append("\nAge Groups:\n");
+            String age = dialect.yearsBetween("date_of_birth", dialect.currentDate());
             String sql3 = "SELECT " +
                          "CASE " +
-                         "WHEN TIMESTAMPDIFF(YEAR, date_of_birth, CURDATE()) < 18 THEN 'Under 18' " +
-                         "WHEN TIMESTAMPDIFF(YEAR, date_of_birth, CURDATE()) BETWEEN 18 AND 35 THEN '18-35' " +
-                         "WHEN TIMESTAMPDIFF(YEAR, date_of_birth, CURDATE()) BETWEEN 36 AND 50 THEN '36-50' " +
-                         "WHEN TIMESTAMPDIFF(YEAR, date_of_birth, CURDATE()) BETWEEN 51 AND 65 THEN '51-65' " +
+                         "WHEN " + age + " < 18 THEN 'Under 18' " +
+                         "WHEN " + age + " BETWEEN 18 AND 35 THEN '18-35' " +
+                         "WHEN " + age + " BETWEEN 36 AND 50 THEN '36-50' " +
+                         "WHEN " + age + " BETWEEN 51 AND 65 THEN '51-65' " +
                          "ELSE 'Above 65' " +
                          "END as age_group, " +
                          "COUNT(*) as count " +
@@ -133,6 +146,7 @@ public class ReportDAO {
         report.append("DOCTOR WORKLOAD REPORT\n");
         report.append("Period: Last 30 Days\n");
         report.append("=".repeat(60)).append("\n\n");
+        SqlDialect dialect = DatabaseConfig.getDialect();
         
         try (Connection conn = DatabaseConfig.getConnection()) {
             String sql = "SELECT " +
@@ -142,8 +156,8 @@ public class ReportDAO {
                         "SUM(CASE WHEN a.status = 'CANCELLED' THEN 1 ELSE 0 END) as cancelled " +
                         "FROM doctors d " +
                         "LEFT JOIN appointments a ON d.doctor_id = a.doctor_id " +
-                        "AND a.appointment_datetime >= DATE_SUB(CURDATE(), INTERVAL 30 DAY) " +
-                        "GROUP BY d.doctor_id " +
+                        "AND a.appointment_datetime >= " + dialect.addDays(dialect.currentDate(), -30) + " " +
+                        "GROUP BY d.doctor_id, d.full_name, d.specialization " +
                         "ORDER BY total_appointments DESC";
             
             try (Statement stmt = conn.createStatement();
@@ -172,48 +186,54 @@ public class ReportDAO {
         report.append("APPOINTMENT SUMMARY REPORT\n");
         report.append("Date: ").append(LocalDate.now()).append("\n");
         report.append("=".repeat(60)).append("\n\n");
+        LocalDate today = LocalDate.now();
         
         try (Connection conn = DatabaseConfig.getConnection()) {
             // Today's summary
             String sql1 = "SELECT status, COUNT(*) as count FROM appointments " +
-                         "WHERE DATE(appointment_datetime) = CURDATE() GROUP BY status";
+                         "WHERE appointment_datetime >= ? AND appointment_datetime < ? " +
+                         "GROUP BY status";
             
             report.append("Today's Appointments:\n");
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql1)) {
-                int total = 0;
-                while (rs.next()) {
-                    int count = rs.getInt("count");
-                    total += count;
-                    report.append(String.format("  %s: %d\n", rs.getString("status"), count));
+            try (PreparedStatement stmt = conn.prepareStatement(sql1)) {
+                stmt.setTimestamp(1, DateUtil.dayStart(today));
+                stmt.setTimestamp(2, DateUtil.nextDayStart(today));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    int total = 0;
+                    while (rs.next()) {
+                        int count = rs.getInt("count");
+                        total += count;
+                        report.append(String.format("  %s: %d\n", rs.getString("status"), count));
+                    }
+                    report.append(String.format("  TOTAL: %d\n\n", total));
                 }
-                report.append(String.format("  TOTAL: %d\n\n", total));
             }
             
-            // This week's summary
-            String sql2 = "SELECT COUNT(*) as count FROM appointments " +
-                         "WHERE YEARWEEK(appointment_datetime) = YEARWEEK(CURDATE())";
+            String countSql = "SELECT COUNT(*) as count FROM appointments " +
+                             "WHERE appointment_datetime >= ? AND appointment_datetime < ?";
             
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql2)) {
-                if (rs.next()) {
-                    report.append(String.format("This Week's Total: %d\n", rs.getInt("count")));
-                }
-            }
+            // This week's summary (Sunday-based week, as MySQL's YEARWEEK)
+            LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+            report.append(String.format("This Week's Total: %d\n",
+                    countInRange(conn, countSql, weekStart, weekStart.plusDays(7))));
             
             // This month's summary
-            String sql3 = "SELECT COUNT(*) as count FROM appointments " +
-                         "WHERE MONTH(appointment_datetime) = MONTH(CURDATE()) " +
-                         "AND YEAR(appointment_datetime) = YEAR(CURDATE())";
-            
-            try (Statement stmt = conn.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql3)) {
-                if (rs.next()) {
-                    report.append(String.format("This Month's Total: %d\n", rs.getInt("count")));
-                }
-            }
+            LocalDate monthStart = today.withDayOfMonth(1);
+            report.append(String.format("This Month's Total: %d\n",
+                    countInRange(conn, countSql, monthStart, monthStart.plusMonths(1))));
         }
         
         return report.toString();
     }
+    
+    // Runs a COUNT query whose two parameters are the [from, to) day range
+    private int countInRange(Connection conn, String sql, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, DateUtil.dayStart(from));
+            stmt.setTimestamp(2, DateUtil.dayStart(to));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -3,9 +3,11 @@ package hospital.dao;
 import hospital.models.Patient;
 import hospital.models.Test;
 import hospital.models.TestRequest;
+import hospital.utils.Constants;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,6 +15,10 @@ import java.util.List;
  * Handles test requests, test catalog, and test results.
  */
 public class TestDAO extends BaseDAO {
+    private static final long CATALOG_MAX_AGE_MILLIS = 5 * 60 * 1000L;
+
+    private static volatile List<Test> catalog;
+    private static volatile long catalogLoadedAt;
 
     /**
      * Get all test requests for a specific doctor, optionally filtered by status.
@@ -28,7 +34,7 @@ public class TestDAO extends BaseDAO {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT tr.request_id, tr.patient_id, tr.doctor_id, tr.test_id, ");
         sql.append("tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, ");
-        sql.append("CONCAT(p.first_name, ' ', p.last_name) AS patient_name, ");
+        sql.append(dialect().concat("p.first_name", "' '", "p.last_name")).append(" AS patient_name, ");
         sql.append("t.test_name ");
         sql.append("FROM test_requests tr ");
         sql.append("JOIN patients p ON tr.patient_id = p.patient_id ");
@@ -105,7 +111,7 @@ public class TestDAO extends BaseDAO {
         
         String sql = "SELECT tr.request_id, tr.patient_id, tr.doctor_id, tr.test_id, " +
                     "tr.request_date, tr.status, tr.remarks, tr.result, tr.completed_date, " +
-                    "CONCAT(p.first_name, ' ', p.last_name) AS patient_name, " +
+                    dialect().concat("p.first_name", "' '", "p.last_name") + " AS patient_name, " +
                     "p.gender, p.date_of_birth, " +
                     "t.test_name, t.description, t.normal_range, t.unit " +
                     "FROM test_requests tr " +
@@ -158,7 +164,7 @@ public class TestDAO extends BaseDAO {
     }
 
     /**
-     * Insert a new test request.
+     * Insert a new routine test request.
      * 
      * @param doctorId Doctor ordering the test
      * @param patientId Patient receiving the test
@@ -168,26 +174,50 @@ public class TestDAO extends BaseDAO {
      * @throws SQLException if database error occurs
      */
     public boolean insertTestRequest(int doctorId, int patientId, int testId, String remarks) throws SQLException {
-        String sql = "INSERT INTO test_requests (patient_id, doctor_id, test_id, remarks, status) " +
-                    "VALUES (?, ?, ?, ?, 'Pending')";
+        return insertTestRequest(doctorId, patientId, testId, remarks, Constants.LAB_PRIORITY_ROUTINE);
+    }
+
+    /**
+     * Insert a new test request.
+     * 
+     * @param doctorId Doctor ordering the test
+     * @param patientId Patient receiving the test
+     * @param testId Test to be performed
+     * @param remarks Doctor's remarks/instructions
+     * @param priority STAT, Urgent or Routine
+     * @return true if insert successful
+     * @throws SQLException if database error occurs
+     */
+    public boolean insertTestRequest(int doctorId, int patientId, int testId, String remarks, String priority) throws SQLException {
+        String sql = "INSERT INTO test_requests (patient_id, doctor_id, test_id, remarks, priority, status) " +
+                    "VALUES (?, ?, ?, ?, ?, 'Pending')";
         
         Connection conn = null;
         try {
             conn = getConnection();
+            conn.setAutoCommit(false);
             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             
             stmt.setInt(1, patientId);
             stmt.setInt(2, doctorId);
             stmt.setInt(3, testId);
             stmt.setString(4, remarks);
+            stmt.setString(5, priority != null ? priority : Constants.LAB_PRIORITY_ROUTINE);
             
             int rowsAffected = stmt.executeUpdate();
+            ResultSet rs = stmt.getGeneratedKeys();
+            if (rs.next()) {
+                ChangeLog.record(conn, ChangeLog.TEST_REQUESTS, ChangeLog.INSERT, rs.getInt(1));
+            }
+            rs.close();
             stmt.close();
+            conn.commit();
             
             return rowsAffected > 0;
             
         } catch (SQLException e) {
             e.printStackTrace();
+            rollback(conn);
             throw e;
         } finally {
             closeConnection(conn);
@@ -196,11 +226,24 @@ public class TestDAO extends BaseDAO {
 
     /**
      * Get all available tests from the tests catalog.
+     * The catalog is only edited in the database, so it is kept for
+     * CATALOG_MAX_AGE_MILLIS; the Test objects are shared and must not be
+     * modified.
      * 
      * @return List of all tests
      * @throws SQLException if database error occurs
      */
     public List<Test> getAllTests() throws SQLException {
+        List<Test> tests = catalog;
+        if (tests == null || System.currentTimeMillis() - catalogLoadedAt >= CATALOG_MAX_AGE_MILLIS) {
+            tests = Collections.unmodifiableList(loadTests());
+            catalogLoadedAt = System.currentTimeMillis();
+            catalog = tests;
+        }
+        return new ArrayList<>(tests);
+    }
+
+    private List<Test> loadTests() throws SQLException {
         List<Test> tests = new ArrayList<>();
         String sql = "SELECT * FROM tests ORDER BY test_name ASC";
         
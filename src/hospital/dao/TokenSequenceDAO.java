@@ -0,0 +1,153 @@
+package hospital.dao;
+
+import hospital.utils.DateUtil;
+import java.sql.*;
+import java.time.LocalDate;
+
+/**
+ * Hands out appointment token numbers per doctor and day.
+ *
+ * Each (doctor, day) has a row in token_sequences holding the next token.
+ * Allocation locks only that row, inside the caller's transaction, so
+ * desks booking different doctors never wait on each other and two desks
+ * booking the same doctor can't both get the same number. Tokens freed by
+ * a cancellation go to token_releases and are handed out again, lowest
+ * first, before the sequence advances.
+ *
+ * Both methods expect a connection with auto-commit off; the token is only
+ * taken or returned if that transaction commits.
+ */
+public class TokenSequenceDAO {
+
+    private static final String LOCK_SQL =
+            "SELECT next_token FROM token_sequences WHERE doctor_id = ? AND token_date = ? FOR UPDATE";
+    // Locks the sequence row and finds the lowest released token in one trip;
+    // token_releases for the day is only changed while holding that lock
+    private static final String ALLOCATE_SQL =
+            "SELECT s.next_token, (SELECT MIN(r.token_number) FROM token_releases r " +
+            "WHERE r.doctor_id = s.doctor_id AND r.token_date = s.token_date) AS released " +
+            "FROM token_sequences s WHERE s.doctor_id = ? AND s.token_date = ? FOR UPDATE";
+
+    /** Takes the next token for the doctor (a users.user_id) on date. */
+    public int allocate(Connection conn, int doctorId, LocalDate date) throws SQLException {
+        while (true) {
+            try (PreparedStatement stmt = conn.prepareStatement(ALLOCATE_SQL)) {
+                stmt.setInt(1, doctorId);
+                stmt.setDate(2, Date.valueOf(date));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        int next = rs.getInt(1);
+                        int released = rs.getInt(2);
+                        if (!rs.wasNull()) {
+                            deleteRelease(conn, doctorId, date, released);
+                            return released;
+                        }
+                        setNextToken(conn, doctorId, date, next + 1);
+                        return next;
+                    }
+                }
+            }
+
+            // First booking for the day: create the row already advanced
+            // past the token we take. If another desk created it first, go
+            // round again and wait for its lock.
+            int seed = firstTokenOfDay(conn, doctorId, date);
+            if (createSequence(conn, doctorId, date, seed + 1)) {
+                return seed;
+            }
+        }
+    }
+
+    /** Returns a cancelled appointment's token so the next booking reuses it. */
+    public void release(Connection conn, int doctorId, LocalDate date, int tokenNumber) throws SQLException {
+        Integer next = readLocked(conn, doctorId, date);
+        if (next == null || tokenNumber <= 0 || tokenNumber >= next) {
+            // Not issued by this sequence
+            return;
+        }
+
+        if (tokenNumber == next - 1) {
+            setNextToken(conn, doctorId, date, tokenNumber);
+            return;
+        }
+
+        String sql = "INSERT INTO token_releases (doctor_id, token_date, token_number) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, doctorId);
+            stmt.setDate(2, Date.valueOf(date));
+            stmt.setInt(3, tokenNumber);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            // Already released
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+        }
+    }
+
+    // Start after any tokens already given out for the day before the
+    // sequence existed
+    private int firstTokenOfDay(Connection conn, int doctorId, LocalDate date) throws SQLException {
+        String sql = "SELECT COALESCE(MAX(token_number), 0) + 1 FROM appointments " +
+                "WHERE doctor_id = ? AND appointment_datetime >= ? AND appointment_datetime < ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, doctorId);
+            stmt.setTimestamp(2, DateUtil.dayStart(date));
+            stmt.setTimestamp(3, DateUtil.nextDayStart(date));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 1;
+            }
+        }
+    }
+
+    private boolean createSequence(Connection conn, int doctorId, LocalDate date, int next) throws SQLException {
+        String sql = "INSERT INTO token_sequences (doctor_id, token_date, next_token) VALUES (?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, doctorId);
+            stmt.setDate(2, Date.valueOf(date));
+            stmt.setInt(3, next);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (!isDuplicateKey(e)) {
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    private Integer readLocked(Connection conn, int doctorId, LocalDate date) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(LOCK_SQL)) {
+            stmt.setInt(1, doctorId);
+            stmt.setDate(2, Date.valueOf(date));
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    private void setNextToken(Connection conn, int doctorId, LocalDate date, int next) throws SQLException {
+        String sql = "UPDATE token_sequences SET next_token = ? WHERE doctor_id = ? AND token_date = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, next);
+            stmt.setInt(2, doctorId);
+            stmt.setDate(3, Date.valueOf(date));
+            stmt.executeUpdate();
+        }
+    }
+
+    private void deleteRelease(Connection conn, int doctorId, LocalDate date, int tokenNumber) throws SQLException {
+        String sql = "DELETE FROM token_releases WHERE doctor_id = ? AND token_date = ? AND token_number = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, doctorId);
+            stmt.setDate(2, Date.valueOf(date));
+            stmt.setInt(3, tokenNumber);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean isDuplicateKey(SQLException e) {
+        // SQLState class 23 is an integrity constraint violation
+        return e.getSQLState() != null && e.getSQLState().startsWith("23");
+    }
+}
@@ -94,6 +94,36 @@ public class UserDAO extends BaseDAO {
         return users;
     }
 
+    /**
+     * One page of users, newest first, starting after the given user (or
+     * from the newest if after is null). Seeks on user_id, which is
+     * assigned in creation order and never NULL, rather than using OFFSET,
+     * so users with no created_at are still listed.
+     */
+    public List<User> getUsersPage(User after, int pageSize) throws SQLException {
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM users " +
+                (after != null ? "WHERE user_id < ? " : "") +
+                "ORDER BY user_id DESC LIMIT ?";
+
+        try (Connection conn = getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int i = 1;
+            if (after != null) {
+                stmt.setInt(i++, after.getUserId());
+            }
+            stmt.setInt(i, pageSize);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(mapResultSetToUser(rs));
+                }
+            }
+        }
+        return users;
+    }
+
     public boolean updateUser(User user) throws SQLException {
         String sql = "UPDATE users SET username = ?, email = ?, role = ?, is_active = ? WHERE user_id = ?";
 
@@ -21,6 +21,7 @@ public class HospitalManagementApp {
         
         // Test database connection
         DatabaseConfig.testConnection();
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConfig::shutdown));
         
         // Start the application
         SwingUtilities.invokeLater(() -> {
@@ -0,0 +1,114 @@
+package hospital.models;
+
+import java.util.Date;
+
+/**
+ * A numeric lab result, as stored in lab_results: one point in a
+ * patient's trend for a test. The normal range and flag are those in
+ * force when the result was entered.
+ */
+public class LabResultValue {
+    private int requestId; // Foreign key to test_requests
+    private int patientId;
+    private int testId;
+    private double value;
+    private String unit;
+    private Double rangeLow; // null if the range has no lower bound
+    private Double rangeHigh; // null if the range has no upper bound
+    private String flag; // "L", "H" or null when within range
+    private Date completedDate;
+
+    // No-args constructor
+    public LabResultValue() {
+    }
+
+    // Getters and Setters
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(int requestId) {
+        this.requestId = requestId;
+    }
+
+    public int getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(int patientId) {
+        this.patientId = patientId;
+    }
+
+    public int getTestId() {
+        return testId;
+    }
+
+    public void setTestId(int testId) {
+        this.testId = testId;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    public void setValue(double value) {
+        this.value = value;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public void setUnit(String unit) {
+        this.unit = unit;
+    }
+
+    public Double getRangeLow() {
+        return rangeLow;
+    }
+
+    public void setRangeLow(Double rangeLow) {
+        this.rangeLow = rangeLow;
+    }
+
+    public Double getRangeHigh() {
+        return rangeHigh;
+    }
+
+    public void setRangeHigh(Double rangeHigh) {
+        this.rangeHigh = rangeHigh;
+    }
+
+    public String getFlag() {
+        return flag;
+    }
+
+    public void setFlag(String flag) {
+        this.flag = flag;
+    }
+
+    public boolean isOutOfRange() {
+        return flag != null;
+    }
+
+    public Date getCompletedDate() {
+        return completedDate;
+    }
+
+    public void setCompletedDate(Date completedDate) {
+        this.completedDate = completedDate;
+    }
+
+    @Override
+    public String toString() {
+        return "LabResultValue{" +
+                "requestId=" + requestId +
+                ", patientId=" + patientId +
+                ", testId=" + testId +
+                ", value=" + value +
+                ", unit='" + unit + '\'' +
+                ", flag=" + flag +
+                ", completedDate=" + completedDate +
+                '}';
+    }
+}
@@ -13,6 +13,7 @@ public class TestRequest {
     private Date requestDate;
     private String status; // "Pending" or "Completed"
     private String remarks;
+    private String priority; // "STAT", "Urgent" or "Routine"
     
     // Additional fields for joined data
     private String patientName;
@@ -93,6 +94,14 @@ public class TestRequest {
         this.remarks = remarks;
     }
 
+    public String getPriority() {
+        return priority;
+    }
+
+    public void setPriority(String priority) {
+        this.priority = priority;
+    }
+
     public String getPatientName() {
         return patientName;
     }
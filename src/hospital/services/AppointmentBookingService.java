@@ -0,0 +1,119 @@
+package hospital.services;
+
+import hospital.config.DatabaseConfig;
+import hospital.dao.AppointmentDAO;
+import hospital.dao.DoctorDAO;
+import hospital.dao.TokenSequenceDAO;
+import hospital.models.Appointment;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * Books appointments in a single transaction on one connection.
+ *
+ * The doctor's token row is locked first, so bookings for the same doctor
+ * and day are serialised and the duplicate checks that follow can't race
+ * another desk. All checks (leave, the patient's other appointments that
+ * day) are one query, then the insert; a normal booking is five statements
+ * including the commit. The consultation fee comes from the cached doctor
+ * directory. The returned appointment is filled in from what is already
+ * known instead of being read back.
+ */
+public class AppointmentBookingService {
+    // Attempts for a booking whose transaction lost a deadlock
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final AppointmentDAO appointmentDAO;
+    private final TokenSequenceDAO tokenSequenceDAO;
+    private final DoctorDAO doctorDAO;
+
+    public AppointmentBookingService() {
+        this(new AppointmentDAO(), new TokenSequenceDAO(), new DoctorDAO());
+    }
+
+    public AppointmentBookingService(AppointmentDAO appointmentDAO, TokenSequenceDAO tokenSequenceDAO,
+                                     DoctorDAO doctorDAO) {
+        this.appointmentDAO = appointmentDAO;
+        this.tokenSequenceDAO = tokenSequenceDAO;
+        this.doctorDAO = doctorDAO;
+    }
+
+    /**
+     * Books appointment, whose patient, doctor (a users.user_id), date/time,
+     * status and creator must be set; the patient and doctor names are kept
+     * for the result. On success the ID, token and consultation fee are set
+     * on it and it is returned.
+     *
+     * @param allowOtherDoctor book even if the patient already has an
+     *        appointment with a different doctor that day, i.e. the user
+     *        confirmed a BOOKED_WITH_OTHER_DOCTOR warning
+     * @throws BookingException if a booking rule refuses it; nothing is written
+     */
+    public Appointment book(Appointment appointment, boolean allowOtherDoctor) throws SQLException {
+        int patientId = appointment.getPatientId();
+        int doctorId = appointment.getDoctorId();
+        LocalDate date = appointment.getAppointmentDateTime().toLocalDate();
+        double consultationFee = doctorDAO.getConsultationFeeByUserId(doctorId);
+
+        for (int attempt = 1; ; attempt++) {
+            try (Connection conn = DatabaseConfig.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    // Rolled back with everything else if a check fails
+                    int tokenNumber = tokenSequenceDAO.allocate(conn, doctorId, date);
+
+                    AppointmentDAO.BookingCheck check =
+                            appointmentDAO.getBookingCheck(conn, patientId, doctorId, date);
+                    validate(check, doctorId, date, allowOtherDoctor);
+
+                    appointment.setTokenNumber(tokenNumber);
+                    appointment.setConsultationFee(consultationFee);
+                    appointment.setAppointmentId(appointmentDAO.insertAppointment(conn, appointment));
+
+                    conn.commit();
+                    DashboardStatsService.getInstance().invalidate();
+                    return appointment;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    if (!isDeadlock(e) || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    private void validate(AppointmentDAO.BookingCheck check, int doctorId, LocalDate date,
+                          boolean allowOtherDoctor) throws BookingException {
+        if (check.isDoctorOnLeave()) {
+            String reason = check.getLeaveReason();
+            throw new BookingException(BookingException.Reason.DOCTOR_ON_LEAVE,
+                    "Doctor is on LEAVE on " + date + (reason != null ? " (" + reason + ")" : ""),
+                    reason, null);
+        }
+
+        Appointment otherDoctor = null;
+        for (Appointment existing : check.getPatientAppointments()) {
+            if (existing.getDoctorId() == doctorId) {
+                throw new BookingException(BookingException.Reason.DUPLICATE_WITH_DOCTOR,
+                        "Patient already has an appointment with this doctor on " + date,
+                        null, existing);
+            }
+            if (otherDoctor == null) {
+                otherDoctor = existing;
+            }
+        }
+
+        if (otherDoctor != null && !allowOtherDoctor) {
+            throw new BookingException(BookingException.Reason.BOOKED_WITH_OTHER_DOCTOR,
+                    "Patient already has an appointment on " + date + " with Dr. " + otherDoctor.getDoctorName(),
+                    null, otherDoctor);
+        }
+    }
+
+    // MySQL reports deadlocks as 40001; the whole transaction was rolled back
+    private static boolean isDeadlock(SQLException e) {
+        return "40001".equals(e.getSQLState());
+    }
+}
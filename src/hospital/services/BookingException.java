@@ -0,0 +1,39 @@
+package hospital.services;
+
+import hospital.models.Appointment;
+import java.sql.SQLException;
+
+/**
+ * A booking refused by the rules rather than by the database. Extends
+ * SQLException so callers that only report errors need no extra handling.
+ */
+public class BookingException extends SQLException {
+
+    public enum Reason {
+        /** The doctor's schedule marks the date as leave. */
+        DOCTOR_ON_LEAVE,
+        /** The patient already has an active appointment with this doctor. */
+        DUPLICATE_WITH_DOCTOR,
+        /** The patient has an appointment with another doctor; book again to confirm. */
+        BOOKED_WITH_OTHER_DOCTOR
+    }
+
+    private final Reason reason;
+    private final String leaveReason;
+    private final Appointment existingAppointment;
+
+    public BookingException(Reason reason, String message, String leaveReason, Appointment existingAppointment) {
+        super(message);
+        this.reason = reason;
+        this.leaveReason = leaveReason;
+        this.existingAppointment = existingAppointment;
+    }
+
+    public Reason getReason() { return reason; }
+
+    /** The reason recorded on the doctor's schedule, if any. */
+    public String getLeaveReason() { return leaveReason; }
+
+    /** The conflicting appointment: doctor ID, doctor name and token only. */
+    public Appointment getExistingAppointment() { return existingAppointment; }
+}
@@ -0,0 +1,78 @@
+package hospital.services;
+
+import hospital.config.DatabaseConfig;
+import hospital.dao.AppointmentDAO;
+import hospital.dao.MedicalRecordDAO;
+import hospital.dao.PrescriptionDAO;
+import hospital.models.MedicalRecord;
+import hospital.models.Prescription;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Closes a consultation in one transaction: completes the appointment and
+ * saves the medical record and its prescriptions. Either all of it is saved
+ * or none of it is. Lab tests are not part of it; they go to the lab as soon
+ * as they are ordered.
+ *
+ * Prescriptions are sent as one JDBC batch, so closing a consultation costs
+ * the same number of round trips however many medicines it has.
+ */
+public class ConsultationService {
+    private final MedicalRecordDAO medicalRecordDAO;
+    private final PrescriptionDAO prescriptionDAO;
+    private final AppointmentDAO appointmentDAO;
+
+    public ConsultationService() {
+        this(new MedicalRecordDAO(), new PrescriptionDAO(), new AppointmentDAO());
+    }
+
+    public ConsultationService(MedicalRecordDAO medicalRecordDAO, PrescriptionDAO prescriptionDAO,
+                               AppointmentDAO appointmentDAO) {
+        this.medicalRecordDAO = medicalRecordDAO;
+        this.prescriptionDAO = prescriptionDAO;
+        this.appointmentDAO = appointmentDAO;
+    }
+
+    /**
+     * Saves record for its appointment and marks the appointment COMPLETED.
+     * The record ID is set on record and on every prescription.
+     *
+     * @param prescriptions medicines prescribed, may be empty; their record IDs are filled in
+     * @return the saved record
+     * @throws SQLException if the appointment was already completed or
+     *         cancelled, or the database failed; nothing is written in
+     *         either case
+     */
+    public MedicalRecord complete(MedicalRecord record, List<Prescription> prescriptions) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // First, so saving the same consultation twice waits here
+                // and then finds the appointment already closed
+                if (appointmentDAO.completeAppointment(conn, record.getAppointmentId()) == 0) {
+                    throw new SQLException("This consultation has already been completed.");
+                }
+
+                if (medicalRecordDAO.insertMedicalRecord(conn, record) == null) {
+                    throw new SQLException("Saving medical record failed.");
+                }
+                for (Prescription prescription : prescriptions) {
+                    prescription.setRecordId(record.getRecordId());
+                }
+                if (!prescriptions.isEmpty()) {
+                    prescriptionDAO.insertPrescriptions(conn, prescriptions);
+                }
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        DashboardStatsService.getInstance().invalidate();
+        return record;
+    }
+}
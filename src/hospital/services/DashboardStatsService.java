@@ -0,0 +1,70 @@
+package hospital.services;
+
+import hospital.dao.DashboardDAO;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Dashboard counters shared by the admin and reception dashboards.
+ *
+ * Results are cached for a short time so several open dashboards refreshing
+ * together cost one query instead of one each. Concurrent callers that find
+ * the cache stale wait for a single reload rather than all querying.
+ */
+public class DashboardStatsService {
+    private static final long DEFAULT_TTL_MILLIS = 15_000L;
+    private static final DashboardStatsService INSTANCE =
+            new DashboardStatsService(new DashboardDAO(), DEFAULT_TTL_MILLIS);
+
+    private final DashboardDAO dashboardDAO;
+    private final long ttlMillis;
+    private final Object loadLock = new Object();
+
+    private volatile Map<String, Object> cachedStats;
+    private volatile long loadedAt;
+
+    public DashboardStatsService(DashboardDAO dashboardDAO, long ttlMillis) {
+        this.dashboardDAO = dashboardDAO;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public static DashboardStatsService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Current stats, at most the TTL old. Keys: totalPatients, totalDoctors,
+     * totalUsers, todayAppointments, todayRegistrations, totalRevenue,
+     * pendingBills.
+     */
+    public Map<String, Object> getStats() throws SQLException {
+        Map<String, Object> stats = cachedStats;
+        if (stats != null && !isExpired()) {
+            return stats;
+        }
+
+        synchronized (loadLock) {
+            // Another thread may have reloaded while we waited
+            if (cachedStats != null && !isExpired()) {
+                return cachedStats;
+            }
+            stats = Collections.unmodifiableMap(dashboardDAO.getDashboardStats());
+            cachedStats = stats;
+            loadedAt = System.currentTimeMillis();
+            return stats;
+        }
+    }
+
+    /**
+     * Drop the cached stats so the next call reloads, e.g. after a booking
+     * or payment that the user expects to see immediately.
+     */
+    public void invalidate() {
+        cachedStats = null;
+    }
+
+    private boolean isExpired() {
+        return System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+}
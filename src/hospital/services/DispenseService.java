@@ -0,0 +1,117 @@
+package hospital.services;
+
+import hospital.config.DatabaseConfig;
+import hospital.dao.BillDAO;
+import hospital.dao.InventoryDAO;
+import hospital.dao.PrescriptionDAO;
+import hospital.models.Bill;
+import hospital.models.BillItem;
+import hospital.models.Medicine;
+import hospital.models.Prescription;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dispenses a prescription in one transaction: marks it dispensed, saves
+ * the bill and its items, and takes the medicines out of stock. Either all
+ * of it happens or none of it does.
+ *
+ * Bill items and stock changes are each sent as one JDBC batch, so a
+ * dispense costs the same number of round trips however many lines the
+ * prescription has. Stock is decremented in SQL, relative to the stored
+ * count, so two pharmacists never overwrite each other's updates.
+ */
+public class DispenseService {
+    private final PrescriptionDAO prescriptionDAO;
+    private final BillDAO billDAO;
+    private final InventoryDAO inventoryDAO;
+
+    public DispenseService() {
+        this(new PrescriptionDAO(), new BillDAO(), new InventoryDAO());
+    }
+
+    public DispenseService(PrescriptionDAO prescriptionDAO, BillDAO billDAO, InventoryDAO inventoryDAO) {
+        this.prescriptionDAO = prescriptionDAO;
+        this.billDAO = billDAO;
+        this.inventoryDAO = inventoryDAO;
+    }
+
+    /**
+     * Dispenses every line of the record's prescription.
+     *
+     * @param medicines inventory entries by medicine name, as returned by
+     *        InventoryDAO.getMedicinesByNames; lines whose medicine is not
+     *        in it are dispensed without a charge or stock change
+     * @return the saved bill
+     * @throws SQLException if the prescription was already dispensed, or
+     *         the database failed; nothing is written in either case
+     */
+    public Bill dispense(int recordId, int patientId, int pharmacistId, List<Prescription> lines,
+                         Map<String, Medicine> medicines) throws SQLException {
+        List<BillItem> items = new ArrayList<>();
+        // Medicine ID -> total quantity, in case a medicine is on two lines
+        Map<Integer, Integer> deductions = new LinkedHashMap<>();
+        double total = 0.0;
+
+        for (Prescription line : lines) {
+            Medicine medicine = medicines.get(line.getMedicineName());
+            if (medicine == null) {
+                continue;
+            }
+            int quantity = line.getQuantity();
+            double price = medicine.getUnitPrice();
+
+            BillItem item = new BillItem();
+            item.setItemType("Medicine");
+            item.setItemName(line.getMedicineName());
+            item.setQuantity(quantity);
+            item.setUnitPrice(price);
+            item.setTotalPrice(price * quantity);
+            items.add(item);
+
+            total += price * quantity;
+            deductions.merge(medicine.getMedicineId(), quantity, Integer::sum);
+        }
+
+        Bill bill = new Bill();
+        bill.setPatientId(patientId);
+        bill.setRecordId(recordId);
+        bill.setTotalAmount(total);
+        bill.setStatus("PAID");
+        bill.setPaymentMethod("CASH");
+        bill.setCreatedBy(pharmacistId);
+
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // First, so a second pharmacist dispensing the same record
+                // waits here and then finds nothing left to dispense
+                if (prescriptionDAO.markAsDispensed(conn, recordId, pharmacistId) == 0) {
+                    throw new SQLException("This prescription has already been dispensed.");
+                }
+
+                billDAO.insertBill(conn, bill);
+                for (BillItem item : items) {
+                    item.setBillId(bill.getBillId());
+                }
+                if (!items.isEmpty()) {
+                    billDAO.insertBillItems(conn, items);
+                    inventoryDAO.deductStock(conn, deductions);
+                }
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+
+        inventoryDAO.stockDeducted(deductions);
+        DashboardStatsService.getInstance().invalidate();
+        return bill;
+    }
+}
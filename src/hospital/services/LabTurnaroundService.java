@@ -0,0 +1,226 @@
+package hospital.services;
+
+import hospital.dao.ChangeCursor;
+import hospital.dao.ChangeLog;
+import hospital.dao.LabDAO;
+import hospital.models.TestRequest;
+import hospital.utils.QuantileSketch;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lab turnaround times, from request to result, as p50/p90/p99 per test
+ * and per hour of the day the test was ordered.
+ *
+ * The history is read once, the first time the figures are asked for.
+ * After that each call adds only the requests completed since, found
+ * through the change log, so results submitted at any bench are counted
+ * without aggregating the whole table again. Percentiles come from
+ * QuantileSketch and are within its RELATIVE_ERROR.
+ */
+public class LabTurnaroundService {
+    private static final LabTurnaroundService INSTANCE = new LabTurnaroundService(new LabDAO());
+
+    private final LabDAO labDAO;
+    private final ChangeCursor changeCursor = new ChangeCursor(ChangeLog.TEST_REQUESTS);
+    private final Object lock = new Object();
+
+    private final Map<Integer, TestSketch> byTest = new HashMap<>();
+    private final QuantileSketch[] byHour = new QuantileSketch[24];
+    // Requests already counted, by ID, in case the change log reports one again
+    private final BitSet counted = new BitSet();
+    private boolean seeded;
+
+    public LabTurnaroundService(LabDAO labDAO) {
+        this.labDAO = labDAO;
+    }
+
+    public static LabTurnaroundService getInstance() {
+        return INSTANCE;
+    }
+
+    /** Current figures, including every result submitted so far. */
+    public Snapshot getSnapshot() throws SQLException {
+        synchronized (lock) {
+            catchUp();
+
+            // Every request is in exactly one test's sketch, so their merge is the whole lab
+            QuantileSketch overall = new QuantileSketch();
+            List<Row> tests = new ArrayList<>();
+            for (TestSketch test : byTest.values()) {
+                tests.add(new Row(test.name, test.sketch));
+                overall.merge(test.sketch);
+            }
+            tests.sort(Comparator.comparing(Row::getLabel, String.CASE_INSENSITIVE_ORDER));
+
+            List<Row> hours = new ArrayList<>();
+            for (int hour = 0; hour < 24; hour++) {
+                if (byHour[hour] != null) {
+                    hours.add(new Row(String.format("%02d:00 - %02d:59", hour, hour), byHour[hour]));
+                }
+            }
+            return new Snapshot(new Row("All tests", overall), tests, hours);
+        }
+    }
+
+    /** The figures as a plain-text report, in the style of the admin reports. */
+    public String getReport() throws SQLException {
+        Snapshot snapshot = getSnapshot();
+        StringBuilder report = new StringBuilder();
+        report.append("LAB TURNAROUND TIME REPORT\n");
+        report.append("From test request to result, all completed tests\n");
+        report.append("=".repeat(75)).append("\n\n");
+        appendRows(report, "Overall", Collections.singletonList(snapshot.getOverall()));
+        appendRows(report, "By Test", snapshot.getByTest());
+        appendRows(report, "By Hour Requested", snapshot.getByHour());
+        return report.toString();
+    }
+
+    private static void appendRows(StringBuilder report, String title, List<Row> rows) {
+        report.append(title).append("\n");
+        report.append(String.format("%-30s %10s %10s %10s %10s\n", "", "Tests", "Median", "90th %", "99th %"));
+        report.append("-".repeat(75)).append("\n");
+        for (Row row : rows) {
+            report.append(String.format("%-30s %10d %10s %10s %10s\n",
+                row.getLabel(), row.getCount(),
+                formatMinutes(row.getP50()), formatMinutes(row.getP90()), formatMinutes(row.getP99())));
+        }
+        report.append("\n");
+    }
+
+    /** A duration in minutes for display, e.g. "45 min", "3.5 h" or "2.1 d". */
+    public static String formatMinutes(double minutes) {
+        if (Double.isNaN(minutes)) {
+            return "-";
+        }
+        if (minutes < 60) {
+            return String.format("%.0f min", minutes);
+        }
+        if (minutes < 24 * 60) {
+            return String.format("%.1f h", minutes / 60);
+        }
+        return String.format("%.1f d", minutes / (24 * 60));
+    }
+
+    private void catchUp() throws SQLException {
+        if (seeded) {
+            ChangeLog.Changes changes = changeCursor.poll();
+            if (!changes.isFullReload()) {
+                for (TestRequest request : labDAO.getLabRequestsByIds(changes.getUpserted())) {
+                    if ("Completed".equalsIgnoreCase(request.getStatus())
+                            && request.getRequestDate() != null && request.getCompletedDate() != null) {
+                        add(request.getRequestId(), request.getTestId(), request.getTestName(),
+                            request.getRequestDate().getTime(), request.getCompletedDate().getTime());
+                    }
+                }
+                return;
+            }
+        }
+
+        // First call, or the change log no longer reaches back to the last one
+        seeded = false;
+        byTest.clear();
+        Arrays.fill(byHour, null);
+        counted.clear();
+
+        changeCursor.reset();
+        labDAO.scanCompletedRequests((requestId, testId, testName, requestDate, completedDate) ->
+            add(requestId, testId, testName, requestDate.getTime(), completedDate.getTime()));
+        seeded = true;
+    }
+
+    private void add(int requestId, int testId, String testName, long requestedAt, long completedAt) {
+        if (counted.get(requestId)) {
+            return;
+        }
+        counted.set(requestId);
+
+        double minutes = (completedAt - requestedAt) / 60_000.0;
+        byTest.computeIfAbsent(testId, id -> new TestSketch(testName)).sketch.add(minutes);
+        int hour = Instant.ofEpochMilli(requestedAt).atZone(ZoneId.systemDefault()).getHour();
+        if (byHour[hour] == null) {
+            byHour[hour] = new QuantileSketch();
+        }
+        byHour[hour].add(minutes);
+    }
+
+    private static final class TestSketch {
+        final String name;
+        final QuantileSketch sketch = new QuantileSketch();
+
+        TestSketch(String name) {
+            this.name = name != null ? name : "Unknown test";
+        }
+    }
+
+    /** Percentiles for one test, hour or the whole lab, in minutes. */
+    public static final class Row {
+        private final String label;
+        private final long count;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+
+        Row(String label, QuantileSketch sketch) {
+            this.label = label;
+            this.count = sketch.getCount();
+            this.p50 = sketch.quantile(0.50);
+            this.p90 = sketch.quantile(0.90);
+            this.p99 = sketch.quantile(0.99);
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP90() {
+            return p90;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+    }
+
+    /** The figures at one moment; rows are by test name and by hour, with no empty rows. */
+    public static final class Snapshot {
+        private final Row overall;
+        private final List<Row> byTest;
+        private final List<Row> byHour;
+
+        Snapshot(Row overall, List<Row> byTest, List<Row> byHour) {
+            this.overall = overall;
+            this.byTest = Collections.unmodifiableList(byTest);
+            this.byHour = Collections.unmodifiableList(byHour);
+        }
+
+        public Row getOverall() {
+            return overall;
+        }
+
+        public List<Row> getByTest() {
+            return byTest;
+        }
+
+        public List<Row> getByHour() {
+            return byHour;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package hospital.services;
+
+import hospital.config.DatabaseConfig;
+import hospital.dao.AsyncDAO;
+import hospital.dao.DoctorDAO;
+import hospital.dao.DoctorScheduleDAO;
+import hospital.dao.InventoryDAO;
+import hospital.dao.PatientDAO;
+import hospital.dao.TestDAO;
+import hospital.models.User;
+import hospital.utils.Constants;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads what a role's first screens need while the login screen is still
+ * up, so the dashboard opens on warm caches instead of loading everything
+ * itself one query at a time.
+ *
+ * The steps for a role run in parallel through AsyncDAO. Each fills one of
+ * the shared caches (doctor directory, medicine catalog, test catalog,
+ * doctor calendar, patient search index, dashboard figures); running the
+ * query also leaves its statement prepared on a pooled connection. A step
+ * that fails is only logged: the screen that needs the data loads it
+ * itself, as it would without the warm-up.
+ */
+public class WarmUpService {
+
+    public interface Progress {
+        /** Called from a background thread as each step finishes. */
+        void stepDone(String step, int done, int total);
+    }
+
+    /** Open the pool's minimum connections; safe to call before the role is known. */
+    public static CompletableFuture<Void> primePool() {
+        return AsyncDAO.run(() -> DatabaseConfig.getPool().warmUp());
+    }
+
+    /** Starts warming up for user's role; the future completes when every step has. */
+    public static CompletableFuture<Void> start(User user, Progress progress) {
+        Map<String, AsyncDAO.Update> steps = stepsFor(normalizeRole(user.getRole()));
+        int total = steps.size();
+        AtomicInteger done = new AtomicInteger();
+
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (Map.Entry<String, AsyncDAO.Update> step : steps.entrySet()) {
+            running.add(AsyncDAO.run(step.getValue()).handle((ignored, error) -> {
+                if (error != null) {
+                    System.err.println("Warm-up step '" + step.getKey() + "' failed: "
+                            + AsyncDAO.unwrap(error).getMessage());
+                }
+                progress.stepDone(step.getKey(), done.incrementAndGet(), total);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static Map<String, AsyncDAO.Update> stepsFor(String role) {
+        Map<String, AsyncDAO.Update> steps = new LinkedHashMap<>();
+        switch (role) {
+            case Constants.ROLE_ADMIN:
+                steps.put("Dashboard figures", () -> DashboardStatsService.getInstance().getStats());
+                steps.put("Doctor directory", () -> new DoctorDAO().directory());
+                break;
+            case Constants.ROLE_DOCTOR:
+                steps.put("Doctor directory", () -> new DoctorDAO().directory());
+                steps.put("Medicine catalog", () -> new InventoryDAO().getAllMedicines());
+                steps.put("Lab test catalog", () -> new TestDAO().getAllTests());
+                break;
+            case Constants.ROLE_RECEPTIONIST:
+                steps.put("Dashboard figures", () -> DashboardStatsService.getInstance().getStats());
+                steps.put("Doctor directory", () -> new DoctorDAO().directory());
+                steps.put("Doctor calendar", () -> DoctorScheduleDAO.preloadMonth(LocalDate.now()));
+                steps.put("Patient index", PatientDAO::ensureSearchIndex);
+                break;
+            case Constants.ROLE_PHARMACY:
+                steps.put("Medicine catalog", () -> new InventoryDAO().getAllMedicines());
+                break;
+            case Constants.ROLE_LAB_ASSISTANT:
+                steps.put("Lab test catalog", () -> new TestDAO().getAllTests());
+                break;
+            default:
+                break;
+        }
+        return steps;
+    }
+
+    // The lab role is stored under several spellings
+    private static String normalizeRole(String role) {
+        String normalized = role == null ? "" : role.toUpperCase(Locale.ROOT).trim();
+        if (normalized.startsWith("LAB")) {
+            return Constants.ROLE_LAB_ASSISTANT;
+        }
+        return normalized;
+    }
+}
@@ -25,6 +25,11 @@ public class Constants {
     public static final String APPOINTMENT_COMPLETED = "COMPLETED";
     public static final String APPOINTMENT_CANCELLED = "CANCELLED";
     
+    // Lab Test Priority, most urgent first
+    public static final String LAB_PRIORITY_STAT = "STAT";
+    public static final String LAB_PRIORITY_URGENT = "Urgent";
+    public static final String LAB_PRIORITY_ROUTINE = "Routine";
+    
     // Application Settings
     public static final String APP_NAME = "Hospital Management System";
     public static final String APP_VERSION = "1.0.0";
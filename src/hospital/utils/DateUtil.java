@@ -1,6 +1,7 @@
 package hospital.utils;
 
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -44,6 +45,19 @@ public class DateUtil {
         }
     }
     
+    /**
+     * Start of the given day. Queries compare against [dayStart(d),
+     * dayStart(d + 1)) instead of DATE(column) = d so indexes on the
+     * column can be used.
+     */
+    public static Timestamp dayStart(LocalDate date) {
+        return Timestamp.valueOf(date.atStartOfDay());
+    }
+    
+    public static Timestamp nextDayStart(LocalDate date) {
+        return Timestamp.valueOf(date.plusDays(1).atStartOfDay());
+    }
+    
     public static int calculateAge(LocalDate dateOfBirth) {
         if (dateOfBirth == null) return 0;
         return (int) ChronoUnit.YEARS.between(dateOfBirth, LocalDate.now());
@@ -0,0 +1,252 @@
+package hospital.utils;
+
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns the frequency and duration a doctor types into a dose schedule.
+ *
+ * Frequencies understood, case-insensitively:
+ *   slot notation        1-0-1, 1-1-1-1 (doses summed)
+ *   abbreviations        OD, BD/BID, TDS/TID, QDS/QID, HS
+ *   words                once, twice, thrice, three times, daily
+ *   counts               3 times, 2x, 3, 3 a day
+ *   intervals            every 8 hours, q6h, every 48 hours, q36h
+ *   longer periods       once a week, 2 times weekly, 1/wk, alternate days,
+ *                        every 3 days, once in 2 days, every 2 weeks
+ * anything else is one dose a day. A number is read as a dose count only
+ * in one of those forms, never from text such as "once daily 500mg".
+ *
+ * Durations are a number with an optional unit (d, days, w, weeks, m,
+ * months; a month is 30 days), or 7 days when there is no number.
+ *
+ * Patterns are compiled once, and the most recently parsed strings are
+ * remembered exactly as typed, so the common phrasings cost a map lookup.
+ */
+public class DosageParser {
+
+    private static final int MEMO_SIZE = 256;
+
+    private static final Pattern SLOTS =
+        Pattern.compile("^(\\d{1,2}(?:\\s*-\\s*\\d{1,2}){1,4})(?![\\d-])");
+    private static final Pattern EVERY_HOURS =
+        Pattern.compile("\\b(?:every|q)\\s*(\\d{1,3})\\s*(?:h|hrs?|hours?)\\b");
+    private static final Pattern EVERY_DAYS =
+        Pattern.compile("\\b(?:every|once in|once every)\\s*(\\d{1,3})\\s*(d|days?|w|wks?|weeks?)\\b");
+    private static final Pattern TIMES =
+        Pattern.compile("\\b(\\d{1,2})\\s*(?:x|times?)\\b");
+    private static final Pattern FOUR = Pattern.compile("\\b(?:qid|qds|four times)\\b");
+    private static final Pattern THREE = Pattern.compile("\\b(?:tid|tds|thrice|three times)\\b");
+    private static final Pattern TWO = Pattern.compile("\\b(?:bid|bd|twice|two times)\\b");
+    // Not a bare "weeks", which is more likely a duration, e.g. "twice daily for 2 weeks"
+    private static final Pattern WEEKLY =
+        Pattern.compile("\\bweekly\\b|(?:\\ba|\\bper|\\bevery|\\beach|/)\\s*(?:weeks?|wks?)\\b");
+    private static final Pattern ALTERNATE =
+        Pattern.compile("\\b(?:alternate days?|every other day|eod)\\b");
+    private static final Pattern ONCE = Pattern.compile("\\b(?:once|od|qd|hs|1 time)\\b");
+    // The whole frequency is a count, e.g. "3" or "3 a day"
+    private static final Pattern BARE_COUNT =
+        Pattern.compile("^(\\d{1,2})(?:\\s*(?:a day|per day|/\\s*day|daily))?$");
+    private static final Pattern NUMBER = Pattern.compile("(\\d{1,4})");
+    private static final Pattern DURATION =
+        Pattern.compile("(\\d{1,4})\\s*(d|days?|w|wks?|weeks?|m|months?)\\b");
+
+    private static final Memo<Frequency> FREQUENCIES = new Memo<>();
+    private static final Memo<Integer> DURATIONS = new Memo<>();
+
+    /** The schedule for a frequency and duration as typed; never null. */
+    public static DoseSchedule parse(String frequency, String duration) {
+        return new DoseSchedule(parseFrequency(frequency), parseDuration(duration));
+    }
+
+    /** Units to dispense for a frequency and duration as typed. */
+    public static int quantity(String frequency, String duration) {
+        return parse(frequency, duration).getQuantity();
+    }
+
+    static Frequency parseFrequency(String frequency) {
+        if (frequency == null) {
+            return Frequency.DAILY;
+        }
+        Frequency parsed = FREQUENCIES.get(frequency);
+        if (parsed == null) {
+            parsed = readFrequency(frequency.toLowerCase(Locale.ROOT).trim());
+            FREQUENCIES.put(frequency, parsed);
+        }
+        return parsed;
+    }
+
+    static int parseDuration(String duration) {
+        if (duration == null) {
+            return 7;
+        }
+        Integer parsed = DURATIONS.get(duration);
+        if (parsed == null) {
+            parsed = readDuration(duration.toLowerCase(Locale.ROOT).trim());
+            DURATIONS.put(duration, parsed);
+        }
+        return parsed;
+    }
+
+    private static Frequency readFrequency(String text) {
+        int periodDays = 1;
+        Matcher matcher = EVERY_DAYS.matcher(text);
+        if (matcher.find()) {
+            periodDays = Math.max(1, Integer.parseInt(matcher.group(1)));
+            if (matcher.group(2).charAt(0) == 'w') {
+                periodDays *= 7;
+            }
+        } else if (WEEKLY.matcher(text).find()) {
+            periodDays = 7;
+        } else if (ALTERNATE.matcher(text).find()) {
+            periodDays = 2;
+        }
+
+        matcher = SLOTS.matcher(text);
+        if (matcher.find()) {
+            return new Frequency(sumDigits(matcher.group(1)), periodDays);
+        }
+
+        matcher = EVERY_HOURS.matcher(text);
+        if (matcher.find()) {
+            int hours = Integer.parseInt(matcher.group(1));
+            if (hours == 0) {
+                return Frequency.DAILY;
+            }
+            if (hours <= 24) {
+                return new Frequency(24 / hours, 1);
+            }
+            // Over a day apart: the doses in the shortest whole number of days,
+            // e.g. every 48 hours is 1 every 2 days, every 36 hours 2 every 3 days
+            int cycleHours = hours / gcd(hours, 24) * 24;
+            return new Frequency(cycleHours / hours, cycleHours / 24);
+        }
+
+        if (FOUR.matcher(text).find()) return new Frequency(4, periodDays);
+        if (THREE.matcher(text).find()) return new Frequency(3, periodDays);
+        if (TWO.matcher(text).find()) return new Frequency(2, periodDays);
+
+        matcher = TIMES.matcher(text);
+        if (matcher.find()) {
+            return new Frequency(Integer.parseInt(matcher.group(1)), periodDays);
+        }
+
+        if (ONCE.matcher(text).find()) {
+            return periodDays == 1 ? Frequency.DAILY : new Frequency(1, periodDays);
+        }
+
+        matcher = BARE_COUNT.matcher(text);
+        if (matcher.find()) {
+            return new Frequency(Integer.parseInt(matcher.group(1)), periodDays);
+        }
+        return periodDays == 1 ? Frequency.DAILY : new Frequency(1, periodDays);
+    }
+
+    private static int readDuration(String text) {
+        Matcher matcher = DURATION.matcher(text);
+        if (matcher.find()) {
+            int number = Integer.parseInt(matcher.group(1));
+            char unit = matcher.group(2).charAt(0);
+            if (unit == 'w') return number * 7;
+            if (unit == 'm') return number * 30;
+            return number; // days
+        }
+
+        matcher = NUMBER.matcher(text);
+        if (matcher.find()) {
+            return Integer.parseInt(matcher.group(1));
+        }
+        return 7; // Default 7 days
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // Sum of the numbers in slot notation, e.g. 1-0-1 -> 2
+    private static int sumDigits(String text) {
+        int sum = 0;
+        int current = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                current = current * 10 + (c - '0');
+            } else {
+                sum += current;
+                current = 0;
+            }
+        }
+        return sum + current;
+    }
+
+    /** A number of doses taken every periodDays days. */
+    static final class Frequency {
+        static final Frequency DAILY = new Frequency(1, 1);
+
+        final int doses;
+        final int periodDays;
+
+        Frequency(int doses, int periodDays) {
+            this.doses = doses;
+            this.periodDays = periodDays;
+        }
+    }
+
+    /** How often and for how long a medicine is taken. */
+    public static final class DoseSchedule {
+        private final int doses;
+        private final int periodDays;
+        private final int days;
+
+        DoseSchedule(Frequency frequency, int days) {
+            this.doses = frequency.doses;
+            this.periodDays = frequency.periodDays;
+            this.days = days;
+        }
+
+        /** Doses taken in each period, e.g. 2 for twice daily. */
+        public int getDoses() {
+            return doses;
+        }
+
+        /** Length of a period in days: 1 for daily, 2 for alternate days, 7 for weekly. */
+        public int getPeriodDays() {
+            return periodDays;
+        }
+
+        public int getDays() {
+            return days;
+        }
+
+        /** Units needed for the whole course, counting a part period as a full one. */
+        public int getQuantity() {
+            return (days * doses + periodDays - 1) / periodDays;
+        }
+
+        public double cost(double unitPrice) {
+            return unitPrice * getQuantity();
+        }
+    }
+
+    // Least recently used entries are dropped beyond MEMO_SIZE
+    private static final class Memo<V> {
+        private final Map<String, V> entries = new LinkedHashMap<String, V>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MEMO_SIZE;
+            }
+        };
+
+        synchronized V get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, V value) {
+            entries.put(key, value);
+        }
+    }
+}
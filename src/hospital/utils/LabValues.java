@@ -0,0 +1,72 @@
+package hospital.utils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads numbers out of the free-text lab results and normal ranges.
+ *
+ * A result is numeric when it is a number optionally followed by a unit,
+ * e.g. "5.6" or "5.6 mmol/L"; "Positive" or "120/80" are not. A normal
+ * range is "low - high" (also "low to high"), "< high" or "> low", with an
+ * optional unit after it. Anything else is left as text.
+ */
+public final class LabValues {
+    public static final String FLAG_LOW = "L";
+    public static final String FLAG_HIGH = "H";
+
+    private static final String NUMBER = "(-?\\d+(?:\\.\\d+)?)";
+    // A unit starts with a letter, % or the micro sign, e.g. "mg/dL" or "x10^9/L"
+    private static final String UNIT = "(?:\\s*[\\p{L}%\u00b5].*)?";
+    private static final Pattern VALUE = Pattern.compile("^" + NUMBER + UNIT + "$");
+    private static final Pattern BETWEEN = Pattern.compile("^" + NUMBER + "\\s*(?:-|\u2013|to)\\s*" + NUMBER + UNIT + "$");
+    private static final Pattern BELOW = Pattern.compile("^(?:<|<=|\u2264|up to)\\s*" + NUMBER + UNIT + "$");
+    private static final Pattern ABOVE = Pattern.compile("^(?:>|>=|\u2265)\\s*" + NUMBER + UNIT + "$");
+
+    private LabValues() {
+    }
+
+    /** The numeric value of a result, or null if it is not a number. */
+    public static Double parseValue(String result) {
+        if (result == null) {
+            return null;
+        }
+        Matcher m = VALUE.matcher(result.trim());
+        return m.matches() ? Double.valueOf(m.group(1)) : null;
+    }
+
+    /**
+     * The bounds of a normal range as {low, high}, either of which is null
+     * when the range is open on that side; null if it cannot be read.
+     */
+    public static Double[] parseRange(String normalRange) {
+        if (normalRange == null) {
+            return null;
+        }
+        String range = normalRange.trim().toLowerCase();
+        Matcher m = BETWEEN.matcher(range);
+        if (m.matches()) {
+            return new Double[]{Double.valueOf(m.group(1)), Double.valueOf(m.group(2))};
+        }
+        m = BELOW.matcher(range);
+        if (m.matches()) {
+            return new Double[]{null, Double.valueOf(m.group(1))};
+        }
+        m = ABOVE.matcher(range);
+        if (m.matches()) {
+            return new Double[]{Double.valueOf(m.group(1)), null};
+        }
+        return null;
+    }
+
+    /** FLAG_LOW or FLAG_HIGH if value is outside the bounds, otherwise null. */
+    public static String flag(double value, Double low, Double high) {
+        if (low != null && value < low) {
+            return FLAG_LOW;
+        }
+        if (high != null && value > high) {
+            return FLAG_HIGH;
+        }
+        return null;
+    }
+}
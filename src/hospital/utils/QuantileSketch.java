@@ -0,0 +1,75 @@
+package hospital.utils;
+
+/**
+ * Approximate percentiles of a stream of positive values, in fixed memory.
+ *
+ * Values are counted in buckets whose bounds grow geometrically, so any
+ * percentile is within RELATIVE_ERROR of a value actually added, however
+ * many values there are. Adding is O(1); a percentile walks the buckets
+ * once. Values below MIN_VALUE share one bucket and count as zero; values
+ * above MAX_VALUE count as MAX_VALUE.
+ *
+ * Not thread-safe.
+ */
+public class QuantileSketch {
+    public static final double RELATIVE_ERROR = 0.02;
+    public static final double MIN_VALUE = 0.1;
+    public static final double MAX_VALUE = 1_000_000;
+
+    private static final double GAMMA = (1 + RELATIVE_ERROR) / (1 - RELATIVE_ERROR);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int OFFSET = bucketKey(MIN_VALUE);
+    private static final int BUCKETS = bucketKey(MAX_VALUE) - OFFSET + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long zeroCount;
+    private long count;
+
+    public void add(double value) {
+        if (!(value >= MIN_VALUE)) {
+            zeroCount++; // also NaN and negative values, e.g. clock skew
+        } else {
+            counts[bucketKey(Math.min(value, MAX_VALUE)) - OFFSET]++;
+        }
+        count++;
+    }
+
+    public void merge(QuantileSketch other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The value below which the fraction q of the values fall, e.g. 0.9 for
+     * the 90th percentile; NaN if nothing has been added.
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(Math.max(0, Math.min(1, q)) * (count - 1));
+        long seen = zeroCount;
+        if (rank < seen) {
+            return 0;
+        }
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (rank < seen) {
+                // Midpoint of the bucket in relative terms
+                return 2 * Math.pow(GAMMA, i + OFFSET) / (GAMMA + 1);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    private static int bucketKey(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+}
@@ -3,13 +3,14 @@ package hospital.views.admin;
 import hospital.models.User;
 import hospital.utils.Constants;
 import hospital.views.common.BaseFrame;
+import hospital.views.common.LazyCardPanel;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
 
 public class AdminDashboard extends BaseFrame {
     private User currentUser;
-    private JPanel contentPanel;
+    private LazyCardPanel contentPanel;
     private JPanel sidePanel;
     
     // Menu buttons
@@ -19,12 +20,6 @@ public class AdminDashboard extends BaseFrame {
     private JButton systemConfigBtn;
     private JButton logoutBtn;
     
-    // Content panels
-    private DashboardPanel dashboardPanel;
-    private StaffManagementPanel staffManagementPanel;
-    private ReportsPanel reportsPanel;
-    private SystemConfigPanel systemConfigPanel;
-    
     public AdminDashboard(User user) {
         super("Admin Dashboard - " + Constants.APP_NAME);
         this.currentUser = user;
@@ -46,7 +41,7 @@ public class AdminDashboard extends BaseFrame {
         sidePanel.setLayout(new BoxLayout(sidePanel, BoxLayout.Y_AXIS));
         
         // Create content panel
-        contentPanel = new JPanel(new CardLayout());
+        contentPanel = new LazyCardPanel();
         contentPanel.setBackground(Constants.BACKGROUND_COLOR);
         
         // Create menu buttons
@@ -56,11 +51,11 @@ public class AdminDashboard extends BaseFrame {
         systemConfigBtn = createMenuButton("System Config", "config");
         logoutBtn = createMenuButton("Logout", "logout");
         
-        // Create content panels
-        dashboardPanel = new DashboardPanel(currentUser);
-        staffManagementPanel = new StaffManagementPanel(currentUser);
-        reportsPanel = new ReportsPanel(currentUser);
-        systemConfigPanel = new SystemConfigPanel(currentUser);
+        // Register content panels; each is built the first time it is shown
+        contentPanel.register("dashboard", () -> new DashboardPanel(currentUser), DashboardPanel::refreshData);
+        contentPanel.register("staff", () -> new StaffManagementPanel(currentUser), StaffManagementPanel::refreshData);
+        contentPanel.register("reports", () -> new ReportsPanel(currentUser), ReportsPanel::refreshData);
+        contentPanel.register("config", () -> new SystemConfigPanel(currentUser), null);
     }
     
     @Override
@@ -68,12 +63,6 @@ public class AdminDashboard extends BaseFrame {
         setLayout(new BorderLayout());
         setupSidePanel();
         
-        // Add content panels to card layout
-        contentPanel.add(dashboardPanel, "dashboard");
-        contentPanel.add(staffManagementPanel, "staff");
-        contentPanel.add(reportsPanel, "reports");
-        contentPanel.add(systemConfigPanel, "config");
-        
         add(sidePanel, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
     }
@@ -148,22 +137,19 @@ public class AdminDashboard extends BaseFrame {
     protected void setupEventHandlers() {
         ActionListener menuActionListener = e -> {
             String command = e.getActionCommand();
-            CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
             
             switch (command) {
                 case "dashboard":
                     showDashboard();
                     break;
                 case "staff":
-                    cardLayout.show(contentPanel, "staff");
-                    staffManagementPanel.refreshData();
+                    contentPanel.show("staff");
                     break;
                 case "reports":
-                    cardLayout.show(contentPanel, "reports");
-                    reportsPanel.refreshData();
+                    contentPanel.show("reports");
                     break;
                 case "config":
-                    cardLayout.show(contentPanel, "config");
+                    contentPanel.show("config");
                     break;
                 case "logout":
                     handleLogout();
@@ -179,9 +165,8 @@ public class AdminDashboard extends BaseFrame {
     }
     
     private void showDashboard() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "dashboard");
-        dashboardPanel.refreshData();
+        contentPanel.show("dashboard");
+        contentPanel.prefetch("staff");
     }
     
     private void handleLogout() {
@@ -1,7 +1,7 @@
 package hospital.views.admin;
 
-import hospital.dao.DashboardDAO;
 import hospital.models.User;
+import hospital.services.DashboardStatsService;
 import hospital.utils.Constants;
 import javax.swing.*;
 import java.awt.*;
@@ -10,7 +10,7 @@ import java.util.Map;
 
 class DashboardPanel extends JPanel {
     private User currentUser;
-    private DashboardDAO dashboardDAO;
+    private DashboardStatsService statsService;
     private JLabel totalPatientsLabel;
     private JLabel totalDoctorsLabel;
     private JLabel todayAppointmentsLabel;
@@ -20,7 +20,7 @@ class DashboardPanel extends JPanel {
     
     public DashboardPanel(User user) {
         this.currentUser = user;
-        this.dashboardDAO = new DashboardDAO();
+        this.statsService = DashboardStatsService.getInstance();
         initializeComponents();
         setupLayout();
     }
@@ -104,7 +104,7 @@ class DashboardPanel extends JPanel {
         SwingWorker<Map<String, Object>, Void> worker = new SwingWorker<>() {
             @Override
             protected Map<String, Object> doInBackground() throws Exception {
-                return dashboardDAO.getDashboardStats();
+                return statsService.getStats();
             }
             
             @Override
@@ -2,6 +2,7 @@ package hospital.views.admin;
 
 import hospital.dao.ReportDAO;
 import hospital.models.User;
+import hospital.services.LabTurnaroundService;
 import hospital.utils.Constants;
 import javax.swing.*;
 import java.awt.*;
@@ -10,6 +11,9 @@ import java.time.LocalDate;
 // import com.toedter.calendar.JDateChooser;
 
 class ReportsPanel extends JPanel {
+    // Kept up to date in memory rather than queried, see LabTurnaroundService
+    private static final String LAB_TURNAROUND_REPORT = "Lab Turnaround Times";
+
     private User currentUser;
     private ReportDAO reportDAO;
     private JComboBox<String> reportTypeCombo;
@@ -35,7 +39,8 @@ class ReportsPanel extends JPanel {
             "Monthly Revenue Report",
             "Patient Demographics",
             "Doctor Workload Report",
-            "Appointment Summary"
+            "Appointment Summary",
+            LAB_TURNAROUND_REPORT
         };
         reportTypeCombo = new JComboBox<>(reportTypes);
         reportTypeCombo.setPreferredSize(new Dimension(250, 35));
@@ -91,6 +96,9 @@ class ReportsPanel extends JPanel {
         SwingWorker<String, Void> worker = new SwingWorker<>() {
             @Override
             protected String doInBackground() throws Exception {
+                if (LAB_TURNAROUND_REPORT.equals(reportType)) {
+                    return LabTurnaroundService.getInstance().getReport();
+                }
                 return reportDAO.generateReport(reportType);
             }
             
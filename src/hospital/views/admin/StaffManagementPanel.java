@@ -6,8 +6,8 @@ import hospital.models.User;
 import hospital.models.Doctor;
 import hospital.utils.Constants;
 import hospital.utils.ValidationUtil;
+import hospital.views.common.LazyTableModel;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -19,7 +19,7 @@ class StaffManagementPanel extends JPanel {
     private UserDAO userDAO;
     private DoctorDAO doctorDAO;
     private JTable staffTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<User> tableModel;
     private JComboBox<String> staffTypeCombo;
     private JButton addStaffBtn;
     private JButton editStaffBtn;
@@ -48,12 +48,13 @@ class StaffManagementPanel extends JPanel {
         
         // Table setup
         String[] columns = {"ID", "Type", "Name", "Email", "Phone", "Role/Specialization", "Status"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<>(columns, StaffManagementPanel::toRow);
+        tableModel.setErrorHandler(e -> {
+            JOptionPane.showMessageDialog(StaffManagementPanel.this,
+                "Error loading staff: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE);
+            e.printStackTrace();
+        });
         
         staffTable = new JTable(tableModel);
         staffTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -123,51 +124,26 @@ class StaffManagementPanel extends JPanel {
     private void loadStaff() {
         String staffType = (String) staffTypeCombo.getSelectedItem();
         
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                tableModel.setRowCount(0);
-                
-                if ("All Staff".equals(staffType) || "Users Only".equals(staffType)) {
-                    loadUsers();
-                }
-                
-                // if ("All Staff".equals(staffType) || "Doctors".equals(staffType)) {
-                //     loadDoctors();
-                // }
-                
-                return null;
-            }
-            
-            @Override
-            protected void done() {
-                try {
-                    get();
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(StaffManagementPanel.this,
-                        "Error loading staff: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-                    e.printStackTrace();
-                }
-            }
-        };
-        worker.execute();
+        if ("All Staff".equals(staffType) || "Users Only".equals(staffType)) {
+            // Pages are fetched in the background as the table scrolls
+            tableModel.load(userDAO::getUsersPage);
+        }
+        
+        // if ("All Staff".equals(staffType) || "Doctors".equals(staffType)) {
+        //     loadDoctors();
+        // }
     }
     
-    private void loadUsers() throws SQLException {
-        List<User> users = userDAO.getAllUsers();
-        for (User user : users) {
-            Object[] row = {
-                user.getUserId(),
-                "User",
-                user.getUsername(),
-                user.getEmail(),
-                "-",
-                user.getRole(),
-                user.isActive() ? "Active" : "Inactive"
-            };
-            tableModel.addRow(row);
-        }
+    private static Object[] toRow(User user) {
+        return new Object[] {
+            user.getUserId(),
+            "User",
+            user.getUsername(),
+            user.getEmail(),
+            "-",
+            user.getRole(),
+            user.isActive() ? "Active" : "Inactive"
+        };
     }
     
     // private void loadDoctors() throws SQLException {
@@ -224,6 +200,9 @@ class StaffManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a staff member to edit!");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            return; // Its page is still loading
+        }
         
         String type = (String) tableModel.getValueAt(selectedRow, 1);
         int id = (int) tableModel.getValueAt(selectedRow, 0);
@@ -251,6 +230,9 @@ class StaffManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a staff member to delete!");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            return; // Its page is still loading
+        }
         
         String type = (String) tableModel.getValueAt(selectedRow, 1);
         int id = (int) tableModel.getValueAt(selectedRow, 0);
@@ -296,6 +278,9 @@ class StaffManagementPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Please select a user to change password!");
             return;
         }
+        if (tableModel.getRow(selectedRow) == null) {
+            return; // Its page is still loading
+        }
         
         String type = (String) tableModel.getValueAt(selectedRow, 1);
         if (!"User".equals(type)) {
@@ -0,0 +1,229 @@
+package hospital.views.common;
+
+import hospital.dao.AppointmentDAO;
+import hospital.dao.AsyncDAO;
+import hospital.dao.ChangeCursor;
+import hospital.dao.ChangeLog;
+import hospital.models.Appointment;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import javax.swing.table.DefaultTableModel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Today's appointments shown in a table, kept current from the change log.
+ *
+ * reload() reads the whole day. After that, while the owner is showing,
+ * the queue polls the appointments change log and re-reads only the
+ * appointments booked, cancelled or moved on since, at this or any other
+ * workstation, updating just their rows. Rows stay in token order, with
+ * the appointment behind each row available from getAppointment(). Call
+ * start() and stop() as the owner is added and removed. Must be used on
+ * the event dispatch thread.
+ */
+public class AppointmentQueue {
+    private static final int POLL_INTERVAL_MS = 5000;
+
+    private final JComponent owner;
+    private final DefaultTableModel tableModel;
+    private final AsyncDAO.Query<List<Appointment>> loader;
+    private final Predicate<Appointment> filter;
+    private final LazyTableModel.RowMapper<Appointment> rowMapper;
+    private final Consumer<? super Throwable> onError;
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final ChangeCursor changeCursor = new ChangeCursor(ChangeLog.APPOINTMENTS);
+    private final Timer pollTimer;
+
+    // The appointment shown in each row, in row order
+    private final List<Appointment> appointments = new ArrayList<>();
+    // One load or poll runs at a time, so changes always apply to the rows they follow
+    private boolean busy;
+    private boolean reloadQueued;
+    private LocalDate loadedDate;
+
+    /**
+     * @param loader Reads the whole day's queue, in token order
+     * @param filter Which of today's appointments belong in the queue; must agree with loader
+     */
+    public AppointmentQueue(JComponent owner, DefaultTableModel tableModel,
+                            AsyncDAO.Query<List<Appointment>> loader, Predicate<Appointment> filter,
+                            LazyTableModel.RowMapper<Appointment> rowMapper,
+                            Consumer<? super Throwable> onError) {
+        this.owner = owner;
+        this.tableModel = tableModel;
+        this.loader = loader;
+        this.filter = filter;
+        this.rowMapper = rowMapper;
+        this.onError = onError;
+        this.pollTimer = new Timer(POLL_INTERVAL_MS, e -> pollChanges());
+    }
+
+    public void start() {
+        pollTimer.start();
+    }
+
+    public void stop() {
+        pollTimer.stop();
+    }
+
+    /** The appointment shown in row, or null if there is none. */
+    public Appointment getAppointment(int row) {
+        return row >= 0 && row < appointments.size() ? appointments.get(row) : null;
+    }
+
+    /** Reads the whole day again, e.g. when the user asks to refresh. */
+    public void reload() {
+        if (busy) {
+            reloadQueued = true;
+            return;
+        }
+        busy = true;
+        AsyncDAO.load(() -> {
+            changeCursor.reset();
+            return loader.run();
+        }, loaded -> {
+            loadedDate = LocalDate.now();
+            if (!finishLoad()) {
+                show(loaded);
+            }
+        }, error -> {
+            if (!finishLoad()) {
+                onError.accept(error);
+            }
+        });
+    }
+
+    /** Picks up changes now rather than at the next poll, e.g. one just made from this screen. */
+    public void pollNow() {
+        pollChanges();
+    }
+
+    private void pollChanges() {
+        if (busy || loadedDate == null || !owner.isShowing()) {
+            return;
+        }
+        if (!LocalDate.now().equals(loadedDate)) {
+            reload();
+            return;
+        }
+        busy = true;
+        AsyncDAO.load(() -> {
+            ChangeLog.Changes changes = changeCursor.poll();
+            if (changes.isFullReload()) {
+                return null; // reload everything
+            }
+            return new Changed(changes, appointmentDAO.getTodaysAppointmentsByIds(changes.getUpserted()));
+        }, changed -> {
+            if (finishLoad()) {
+                return;
+            }
+            if (changed == null) {
+                reload();
+            } else if (!changed.changes.isEmpty()) {
+                apply(changed);
+            }
+        }, error -> {
+            finishLoad();
+            error.printStackTrace();
+        });
+    }
+
+    // Returns true if a reload was asked for meanwhile and has now started
+    private boolean finishLoad() {
+        busy = false;
+        if (reloadQueued) {
+            reloadQueued = false;
+            reload();
+            return true;
+        }
+        return false;
+    }
+
+    private void show(List<Appointment> loaded) {
+        appointments.clear();
+        tableModel.setRowCount(0);
+        for (Appointment appointment : loaded) {
+            if (appointment != null) {
+                appointments.add(appointment);
+                tableModel.addRow(rowMapper.toRow(appointment));
+            }
+        }
+    }
+
+    /**
+     * Updates the rows of the changed appointments: those no longer in
+     * today's queue are removed, those still in it are updated in place or
+     * moved to their token's position, and new ones are inserted there.
+     */
+    private void apply(Changed changed) {
+        Map<Integer, Appointment> current = new LinkedHashMap<>();
+        for (Appointment appointment : changed.today) {
+            if (filter.test(appointment)) {
+                current.put(appointment.getAppointmentId(), appointment);
+            }
+        }
+        Set<Integer> gone = new HashSet<>(changed.changes.getUpserted());
+        gone.addAll(changed.changes.getDeleted());
+        gone.removeAll(current.keySet());
+
+        for (int row = appointments.size() - 1; row >= 0; row--) {
+            if (gone.contains(appointments.get(row).getAppointmentId())) {
+                removeRow(row);
+            }
+        }
+        for (Appointment appointment : current.values()) {
+            int row = findRow(appointment.getAppointmentId());
+            if (row >= 0 && appointments.get(row).getTokenNumber() == appointment.getTokenNumber()) {
+                appointments.set(row, appointment);
+                Object[] values = rowMapper.toRow(appointment);
+                for (int column = 0; column < values.length; column++) {
+                    tableModel.setValueAt(values[column], row, column);
+                }
+                continue;
+            }
+            if (row >= 0) {
+                removeRow(row);
+            }
+            int position = 0;
+            while (position < appointments.size()
+                    && appointments.get(position).getTokenNumber() <= appointment.getTokenNumber()) {
+                position++;
+            }
+            appointments.add(position, appointment);
+            tableModel.insertRow(position, rowMapper.toRow(appointment));
+        }
+    }
+
+    private void removeRow(int row) {
+        appointments.remove(row);
+        tableModel.removeRow(row);
+    }
+
+    private int findRow(int appointmentId) {
+        for (int row = 0; row < appointments.size(); row++) {
+            if (appointments.get(row).getAppointmentId() == appointmentId) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    // The changes found by a poll and today's state of the appointments they name
+    private static final class Changed {
+        final ChangeLog.Changes changes;
+        final List<Appointment> today;
+
+        Changed(ChangeLog.Changes changes, List<Appointment> today) {
+            this.changes = changes;
+            this.today = today;
+        }
+    }
+}
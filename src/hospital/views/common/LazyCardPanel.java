@@ -0,0 +1,96 @@
+package hospital.views.common;
+
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import java.awt.CardLayout;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A CardLayout panel whose cards are built the first time they are needed.
+ *
+ * Dashboards register a factory for each screen instead of constructing
+ * every panel up front, so logging in only pays for the screen that is
+ * shown. A card can also be prefetched: it is built a moment later, once
+ * the screen being shown has had time to load, so switching to it is
+ * instant.
+ *
+ * Must be used on the event dispatch thread.
+ */
+public class LazyCardPanel extends JPanel {
+    private static final int PREFETCH_DELAY_MS = 1500;
+
+    private final CardLayout cardLayout = new CardLayout();
+    private final Map<String, Card<?>> cards = new HashMap<>();
+
+    public LazyCardPanel() {
+        setLayout(cardLayout);
+    }
+
+    /**
+     * Registers a card. factory builds it on first use; onShow, if not
+     * null, runs every time it is shown, e.g. to refresh its data.
+     */
+    public <T extends JComponent> void register(String name, Supplier<T> factory, Consumer<? super T> onShow) {
+        cards.put(name, new Card<>(factory, onShow));
+    }
+
+    /** Builds the card if needed, shows it and runs its onShow. */
+    public void show(String name) {
+        Card<?> card = cards.get(name);
+        if (card == null) {
+            throw new IllegalArgumentException("No card registered as " + name);
+        }
+        build(name, card);
+        cardLayout.show(this, name);
+        card.shown();
+    }
+
+    /** Builds the card shortly, unless it is shown or built before then. */
+    public void prefetch(String name) {
+        Card<?> card = cards.get(name);
+        if (card == null || card.component != null) {
+            return;
+        }
+        Timer timer = new Timer(PREFETCH_DELAY_MS, e -> build(name, card));
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    /** The card's component, or null if it has not been built yet. */
+    public JComponent getCard(String name) {
+        Card<?> card = cards.get(name);
+        return card != null ? card.component : null;
+    }
+
+    private void build(String name, Card<?> card) {
+        if (card.component == null) {
+            card.create();
+            add(card.component, name);
+        }
+    }
+
+    private static final class Card<T extends JComponent> {
+        private final Supplier<T> factory;
+        private final Consumer<? super T> onShow;
+        private T component;
+
+        Card(Supplier<T> factory, Consumer<? super T> onShow) {
+            this.factory = factory;
+            this.onShow = onShow;
+        }
+
+        void create() {
+            component = factory.get();
+        }
+
+        void shown() {
+            if (onShow != null) {
+                onShow.accept(component);
+            }
+        }
+    }
+}
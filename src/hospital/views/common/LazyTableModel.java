@@ -0,0 +1,239 @@
+package hospital.views.common;
+
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Read-only table model that loads its rows a page at a time.
+ *
+ * Pages come from a PageLoader that seeks past the last row of the previous
+ * page (keyset pagination), so every page costs the same however far down
+ * the user has scrolled. The next page is fetched in the background when the
+ * table renders rows near the end of what has been loaded; the row count
+ * grows as it arrives. Only the most recently used pages are kept, plus the
+ * last row of each page as the starting point for reloading it, so memory
+ * stays bounded no matter how large the table is.
+ *
+ * Rows whose page is not loaded yet read as null and are filled in when it
+ * arrives. A page that fails to load is reported once and not asked for
+ * again until load or reload. Must be used on the event dispatch thread.
+ */
+public class LazyTableModel<T> extends AbstractTableModel {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+
+    public interface PageLoader<T> {
+        /** Up to pageSize rows following after, or the first rows if after is null. */
+        List<T> loadPage(T after, int pageSize) throws Exception;
+    }
+
+    public interface RowMapper<T> {
+        Object[] toRow(T item);
+    }
+
+    private final String[] columns;
+    private final RowMapper<T> rowMapper;
+    private final int pageSize;
+
+    private final Map<Integer, Page<T>> pages =
+            new LinkedHashMap<Integer, Page<T>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Page<T>> eldest) {
+                    return size() > MAX_CACHED_PAGES;
+                }
+            };
+    // Entry i is the row that page i starts after; null for the first page
+    private final List<T> pageStarts = new ArrayList<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // Pages whose load failed; not retried on repaint, only by load or reload
+    private final Set<Integer> failed = new HashSet<>();
+
+    private PageLoader<T> loader;
+    private Page<T> fixedRows;
+    private int rowCount;
+    private boolean exhausted;
+    private long generation;
+    private Consumer<Exception> errorHandler = Exception::printStackTrace;
+
+    public LazyTableModel(String[] columns, RowMapper<T> rowMapper) {
+        this(columns, rowMapper, DEFAULT_PAGE_SIZE);
+    }
+
+    public LazyTableModel(String[] columns, RowMapper<T> rowMapper, int pageSize) {
+        this.columns = columns;
+        this.rowMapper = rowMapper;
+        this.pageSize = pageSize;
+    }
+
+    public void setErrorHandler(Consumer<Exception> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /** Discard all rows and start paging from the beginning with loader. */
+    public void load(PageLoader<T> loader) {
+        clear();
+        this.loader = loader;
+        pageStarts.add(null);
+        fireTableDataChanged();
+        requestPage(0);
+    }
+
+    /** Reload from the beginning with the current loader. */
+    public void reload() {
+        if (loader != null) {
+            load(loader);
+        }
+    }
+
+    /** Show a fixed list instead of paging, e.g. search results. */
+    public void setRows(List<T> items) {
+        clear();
+        fixedRows = new Page<>(items, rowMapper);
+        rowCount = items.size();
+        exhausted = true;
+        fireTableDataChanged();
+    }
+
+    /** The item shown in row, or null if its page is not loaded. */
+    public T getRow(int row) {
+        Page<T> page = pageFor(row);
+        int offset = offsetInPage(row);
+        return page != null && offset < page.items.size() ? page.items.get(offset) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Page<T> page = pageFor(row);
+        if (fixedRows == null) {
+            int index = row / pageSize;
+            if (page == null) {
+                requestPage(index);
+            } else if (!exhausted && row >= rowCount - pageSize / 2) {
+                requestPage(pageStarts.size() - 1);
+            }
+        }
+        int offset = offsetInPage(row);
+        if (page == null || offset >= page.rows.size()) {
+            return null;
+        }
+        return page.rows.get(offset)[column];
+    }
+
+    private Page<T> pageFor(int row) {
+        if (fixedRows != null) {
+            return fixedRows;
+        }
+        return pages.get(row / pageSize);
+    }
+
+    private int offsetInPage(int row) {
+        return fixedRows != null ? row : row % pageSize;
+    }
+
+    private void clear() {
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        loading.clear();
+        failed.clear();
+        fixedRows = null;
+        loader = null;
+        rowCount = 0;
+        exhausted = false;
+    }
+
+    private void requestPage(int index) {
+        if (loader == null || index >= pageStarts.size() || pages.containsKey(index)
+                || failed.contains(index) || !loading.add(index)) {
+            return;
+        }
+
+        PageLoader<T> pageLoader = loader;
+        T after = pageStarts.get(index);
+        long requestGeneration = generation;
+
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() throws Exception {
+                return pageLoader.loadPage(after, pageSize);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading.remove(index);
+                try {
+                    pageLoaded(index, get());
+                } catch (Exception e) {
+                    failed.add(index);
+                    Throwable cause = e.getCause();
+                    errorHandler.accept(cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        }.execute();
+    }
+
+    private void pageLoaded(int index, List<T> items) {
+        pages.put(index, new Page<>(items, rowMapper));
+        int first = index * pageSize;
+
+        if (index == pageStarts.size() - 1) {
+            // The furthest page so far: it decides how many rows there are
+            int oldCount = rowCount;
+            rowCount = first + items.size();
+            if (items.size() == pageSize) {
+                pageStarts.add(items.get(items.size() - 1));
+            } else {
+                exhausted = true;
+            }
+            if (rowCount > oldCount) {
+                fireTableRowsInserted(oldCount, rowCount - 1);
+            }
+        }
+        if (!items.isEmpty()) {
+            fireTableRowsUpdated(first, Math.min(first + items.size(), rowCount) - 1);
+        }
+    }
+
+    private static final class Page<T> {
+        final List<T> items;
+        final List<Object[]> rows;
+
+        Page(List<T> items, RowMapper<T> rowMapper) {
+            this.items = items;
+            this.rows = new ArrayList<>(items.size());
+            for (T item : items) {
+                rows.add(rowMapper.toRow(item));
+            }
+        }
+    }
+}
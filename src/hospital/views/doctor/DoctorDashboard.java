@@ -3,12 +3,13 @@ package hospital.views.doctor;
 import hospital.models.User;
 import hospital.utils.Constants;
 import hospital.views.common.BaseFrame;
+import hospital.views.common.LazyCardPanel;
 import javax.swing.*;
 import java.awt.*;
 
 public class DoctorDashboard extends BaseFrame {
     private User currentUser;
-    private JPanel contentPanel;
+    private LazyCardPanel contentPanel;
     private JPanel sidePanel;
     
     // Menu buttons
@@ -16,9 +17,6 @@ public class DoctorDashboard extends BaseFrame {
     private JButton scheduleBtn;
     private JButton logoutBtn;
     
-    // Content panels
-    private PrescriptionAndHistoryPanel prescriptionPanel;
-    private SchedulePanel schedulePanel;
     
     public DoctorDashboard(User user) {
         super("Doctor Dashboard - " + Constants.APP_NAME);
@@ -42,7 +40,7 @@ public class DoctorDashboard extends BaseFrame {
         sidePanel.setPreferredSize(new Dimension(220, 0));
         sidePanel.setLayout(new BoxLayout(sidePanel, BoxLayout.Y_AXIS));
         
-        contentPanel = new JPanel(new CardLayout());
+        contentPanel = new LazyCardPanel();
         contentPanel.setBackground(Constants.BACKGROUND_COLOR);
         
         // Create menu buttons
@@ -50,9 +48,9 @@ public class DoctorDashboard extends BaseFrame {
         scheduleBtn = createMenuButton("Duty/Leave Schedule", "schedule");
         logoutBtn = createMenuButton("Logout", "logout");
         
-        // Create content panels
-        prescriptionPanel = new PrescriptionAndHistoryPanel(currentUser);
-        schedulePanel = new SchedulePanel(currentUser);
+        // Register content panels; each is built the first time it is shown
+        contentPanel.register("consultations", () -> new PrescriptionAndHistoryPanel(currentUser), null);
+        contentPanel.register("schedule", () -> new SchedulePanel(currentUser), SchedulePanel::refreshData);
     }
     
     @Override
@@ -60,9 +58,6 @@ public class DoctorDashboard extends BaseFrame {
         setLayout(new BorderLayout());
         setupSidePanel();
         
-        // Add both panels to card layout
-        contentPanel.add(prescriptionPanel, "consultations");
-        contentPanel.add(schedulePanel, "schedule");
         
         add(sidePanel, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
@@ -138,14 +133,12 @@ public class DoctorDashboard extends BaseFrame {
     }
     
     private void showConsultations() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "consultations");
+        contentPanel.show("consultations");
+        contentPanel.prefetch("schedule");
     }
     
     private void showSchedule() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "schedule");
-        schedulePanel.refreshData();
+        contentPanel.show("schedule");
     }
     
     private void handleLogout() {
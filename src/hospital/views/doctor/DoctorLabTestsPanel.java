@@ -1,27 +1,37 @@
 package hospital.views.doctor;
 
+import hospital.dao.AsyncDAO;
 import hospital.dao.DoctorDAO;
+import hospital.dao.LabResultDAO;
 import hospital.dao.TestDAO;
+import hospital.models.LabResultValue;
 import hospital.models.Patient;
 import hospital.models.Test;
 import hospital.models.TestRequest;
 import hospital.models.User;
 import hospital.utils.Constants;
+import hospital.utils.LabValues;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.List;
 
 /**
- * Panel for doctors to manage lab test requests and view results.
+ * Panel for doctors to manage lab test requests and view results, with the
+ * patient's recent numeric results for the selected test.
  */
 public class DoctorLabTestsPanel extends JPanel {
+    // Numeric results shown for the selected patient and test
+    private static final int TREND_SIZE = 10;
+    
     private User currentUser;
     private TestDAO testDAO;
     private DoctorDAO doctorDAO;
+    private LabResultDAO labResultDAO;
     
     // Left side - test list
     private JTable testsTable;
@@ -40,10 +50,15 @@ public class DoctorLabTestsPanel extends JPanel {
     
     private int doctorId;
     
+    // Bumped by each refresh; an older refresh finishing late is ignored
+    private long refreshGeneration;
+    private int loadingRequestId;
+    
     public DoctorLabTestsPanel(User user) {
         this.currentUser = user;
         this.testDAO = new TestDAO();
         this.doctorDAO = new DoctorDAO();
+        this.labResultDAO = new LabResultDAO();
         
         // Get doctor ID from user
         try {
@@ -214,15 +229,20 @@ public class DoctorLabTestsPanel extends JPanel {
     }
     
     public void refreshData() {
-        tableModel.setRowCount(0);
+        long generation = ++refreshGeneration;
         
         if (doctorId == -1) {
+            tableModel.setRowCount(0);
             detailsArea.setText("Error: Could not find doctor profile for this user.");
             return;
         }
         
-        try {
-            List<TestRequest> requests = testDAO.getDoctorTests(doctorId, currentFilter);
+        String filter = currentFilter;
+        AsyncDAO.load(() -> testDAO.getDoctorTests(doctorId, filter), requests -> {
+            if (generation != refreshGeneration) {
+                return;
+            }
+            tableModel.setRowCount(0);
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
             
             for (TestRequest request : requests) {
@@ -235,95 +255,164 @@ public class DoctorLabTestsPanel extends JPanel {
                 };
                 tableModel.addRow(row);
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
+            if (generation != refreshGeneration) {
+                return;
+            }
             JOptionPane.showMessageDialog(this, 
                 "Error loading test requests: " + e.getMessage(),
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     private void loadTestDetails(int requestId) {
-        try {
+        loadingRequestId = requestId;
+        
+        // The request and the patient's trend for its test, read together in the background
+        AsyncDAO.load(() -> {
             TestRequest request = testDAO.getTestRequestById(requestId);
-            
             if (request == null) {
-                detailsArea.setText("Test request not found.");
-                return;
+                return new RequestDetails(null, List.of());
             }
-            
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            StringBuilder details = new StringBuilder();
-            
+            return new RequestDetails(request, labResultDAO.getResultTrend(
+                request.getPatientId(), request.getTestId(), TREND_SIZE));
+        }, loaded -> {
+            // A later selection has already replaced this one
+            if (requestId != loadingRequestId) return;
+            showTestDetails(loaded.request, loaded.trend);
+        }, e -> {
+            e.printStackTrace();
+            if (requestId != loadingRequestId) return;
+            detailsArea.setText("Error loading test details: " + e.getMessage());
+        });
+    }
+    
+    private void showTestDetails(TestRequest request, List<LabResultValue> trend) {
+        if (request == null) {
+            detailsArea.setText("Test request not found.");
+            return;
+        }
+        
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        StringBuilder details = new StringBuilder();
+        
+        details.append("═══════════════════════════════════════\n");
+        details.append("TEST REQUEST DETAILS\n");
+        details.append("═══════════════════════════════════════\n\n");
+        
+        details.append("Request ID: ").append(request.getRequestId()).append("\n");
+        details.append("Patient: ").append(request.getPatientName()).append("\n");
+        details.append("Test: ").append(request.getTestName()).append("\n");
+        details.append("Status: ").append(request.getStatus()).append("\n");
+        details.append("Request Date: ").append(dateFormat.format(request.getRequestDate())).append("\n\n");
+        
+        details.append("Doctor Remarks:\n");
+        details.append(request.getRemarks() != null ? request.getRemarks() : "No remarks provided").append("\n\n");
+        
+        if ("Completed".equals(request.getStatus())) {
             details.append("═══════════════════════════════════════\n");
-            details.append("TEST REQUEST DETAILS\n");
+            details.append("TEST RESULTS\n");
             details.append("═══════════════════════════════════════\n\n");
             
-            details.append("Request ID: ").append(request.getRequestId()).append("\n");
-            details.append("Patient: ").append(request.getPatientName()).append("\n");
-            details.append("Test: ").append(request.getTestName()).append("\n");
-            details.append("Status: ").append(request.getStatus()).append("\n");
-            details.append("Request Date: ").append(dateFormat.format(request.getRequestDate())).append("\n\n");
-            
-            details.append("Doctor Remarks:\n");
-            details.append(request.getRemarks() != null ? request.getRemarks() : "No remarks provided").append("\n\n");
-            
-            if ("Completed".equals(request.getStatus())) {
-                details.append("═══════════════════════════════════════\n");
-                details.append("TEST RESULTS\n");
-                details.append("═══════════════════════════════════════\n\n");
-                
-                details.append("Result Value: ").append(request.getResultValue() != null ? request.getResultValue() : "N/A").append("\n");
-                details.append("Lab Comments: ").append(request.getResultComments() != null ? request.getResultComments() : "N/A").append("\n");
-                details.append("Result File: ").append(request.getResultFile() != null ? request.getResultFile() : "No file uploaded").append("\n");
-                
-                if (request.getUploadDate() != null) {
-                    details.append("Upload Date: ").append(dateFormat.format(request.getUploadDate())).append("\n");
+            details.append("Result: ").append(request.getResult() != null ? request.getResult() : "N/A");
+            for (LabResultValue value : trend) {
+                if (value.getRequestId() == request.getRequestId() && value.isOutOfRange()) {
+                    details.append("   ").append(flagText(value));
                 }
             }
+            details.append("\n");
             
-            detailsArea.setText(details.toString());
-            detailsArea.setCaretPosition(0);
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            detailsArea.setText("Error loading test details: " + e.getMessage());
+            if (request.getCompletedDate() != null) {
+                details.append("Completed Date: ").append(dateFormat.format(request.getCompletedDate())).append("\n");
+            }
+            details.append("\n");
         }
+        
+        appendTrend(details, request, trend, dateFormat);
+        
+        detailsArea.setText(details.toString());
+        detailsArea.setCaretPosition(0);
+    }
+    
+    // Latest numeric results of the patient for the test, newest first
+    private void appendTrend(StringBuilder details, TestRequest request, List<LabResultValue> trend,
+                             SimpleDateFormat dateFormat) {
+        details.append("═══════════════════════════════════════\n");
+        details.append("RECENT RESULTS (last ").append(TREND_SIZE).append(")\n");
+        details.append("═══════════════════════════════════════\n\n");
+        
+        if (trend.isEmpty()) {
+            details.append("No numeric results for this patient and test yet.\n");
+            return;
+        }
+        
+        String range = formatRange(trend.get(0));
+        if (range != null) {
+            details.append("Normal Range: ").append(range).append("\n\n");
+        }
+        
+        for (LabResultValue value : trend) {
+            String unit = value.getUnit() != null ? " " + value.getUnit() : "";
+            details.append(String.format("%-17s %12s  %-4s%s\n",
+                value.getCompletedDate() != null ? dateFormat.format(value.getCompletedDate()) : "",
+                formatNumber(value.getValue()) + unit,
+                value.isOutOfRange() ? value.getFlag() : "",
+                value.getRequestId() == request.getRequestId() ? " <- this request" : ""));
+        }
+        details.append("\nL = below normal range, H = above normal range\n");
+    }
+    
+    private static String flagText(LabResultValue value) {
+        return LabValues.FLAG_LOW.equals(value.getFlag()) ? "(LOW)" : "(HIGH)";
+    }
+    
+    private static String formatRange(LabResultValue value) {
+        String unit = value.getUnit() != null ? " " + value.getUnit() : "";
+        if (value.getRangeLow() != null && value.getRangeHigh() != null) {
+            return formatNumber(value.getRangeLow()) + " - " + formatNumber(value.getRangeHigh()) + unit;
+        }
+        if (value.getRangeHigh() != null) {
+            return "< " + formatNumber(value.getRangeHigh()) + unit;
+        }
+        if (value.getRangeLow() != null) {
+            return "> " + formatNumber(value.getRangeLow()) + unit;
+        }
+        return null;
+    }
+    
+    private static String formatNumber(double number) {
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
     }
     
     private void loadPatients() {
-        try {
-            List<Patient> patients = testDAO.getAllPatients();
+        AsyncDAO.load(() -> testDAO.getAllPatients(), patients -> {
             patientCombo.removeAllItems();
             
             for (Patient patient : patients) {
                 patientCombo.addItem(new PatientItem(patient));
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, 
                 "Error loading patients: " + e.getMessage(),
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     private void loadTests() {
-        try {
-            List<Test> tests = testDAO.getAllTests();
+        AsyncDAO.load(() -> testDAO.getAllTests(), tests -> {
             testCombo.removeAllItems();
             
             for (Test test : tests) {
                 testCombo.addItem(test);
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, 
                 "Error loading tests: " + e.getMessage(),
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
     
     private void handleSubmitRequest() {
@@ -350,14 +439,15 @@ public class DoctorLabTestsPanel extends JPanel {
             }
         }
         
-        try {
-            boolean success = testDAO.insertTestRequest(
-                doctorId,
-                selectedPatient.patient.getPatientId(),
-                selectedTest.getTestId(),
-                remarks
-            );
-            
+        // Submitted in the background; the button stays disabled until it is done
+        submitRequestBtn.setEnabled(false);
+        AsyncDAO.load(() -> testDAO.insertTestRequest(
+            doctorId,
+            selectedPatient.patient.getPatientId(),
+            selectedTest.getTestId(),
+            remarks
+        ), success -> {
+            submitRequestBtn.setEnabled(true);
             if (success) {
                 JOptionPane.showMessageDialog(this, 
                     "Test request submitted successfully!",
@@ -376,12 +466,23 @@ public class DoctorLabTestsPanel extends JPanel {
                     "Failed to submit test request.",
                     "Error", JOptionPane.ERROR_MESSAGE);
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
+            submitRequestBtn.setEnabled(true);
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, 
                 "Database error: " + e.getMessage(),
                 "Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+    
+    // A request and the patient's trend for its test, loaded together
+    private static class RequestDetails {
+        final TestRequest request;
+        final List<LabResultValue> trend;
+        
+        RequestDetails(TestRequest request, List<LabResultValue> trend) {
+            this.request = request;
+            this.trend = trend;
         }
     }
     
@@ -2,7 +2,10 @@ package hospital.views.doctor;
 
 import hospital.dao.*;
 import hospital.models.*;
+import hospital.services.ConsultationService;
 import hospital.utils.Constants;
+import hospital.utils.DosageParser;
+import hospital.views.common.AppointmentQueue;
 import javax.swing.*;
 import javax.swing.border.*;
 import java.awt.*;
@@ -17,19 +20,25 @@ public class PrescriptionAndHistoryPanel extends JPanel {
     private PatientDAO patientDAO;
     private AppointmentDAO appointmentDAO;
     private MedicalRecordDAO medicalRecordDAO;
-    private PrescriptionDAO prescriptionDAO;
     private InventoryDAO inventoryDAO;
     private TestDAO testDAO;
     private DoctorDAO doctorDAO;
+    private ConsultationService consultationService;
 
     // UI Components
     private JTable appointmentTable;
     private DefaultTableModel appointmentTableModel;
+    // New bookings and status changes show up without reloading the whole day
+    private AppointmentQueue appointmentQueue;
+    // The appointment in the selected row; tells a new selection from rows moving under it
+    private int selectedRowAppointmentId;
     private JTextArea patientDetailsArea;
     private JTextArea previousHistoryArea;
-    private JTextArea prescriptionArea;
+    private JTable prescriptionTable;
+    private PrescriptionDraftTableModel prescriptionDraft;
     private JComboBox<String> medicineCombo;
     private JComboBox<Test> testCombo;
+    private JComboBox<String> priorityCombo;
     private JTextField frequencyField, durationField;
     private JTextArea diagnosisArea, symptomsArea;
     private JLabel totalCostLabel;
@@ -38,6 +47,8 @@ public class PrescriptionAndHistoryPanel extends JPanel {
     private Patient selectedPatient;
     private List<Medicine> medicinesList;
     private List<Test> testsList;
+    // Lab tests already sent to the lab for the selected appointment
+    private int labTestsOrdered;
     private int doctorId;
 
     public PrescriptionAndHistoryPanel(User user) {
@@ -45,10 +56,10 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         this.patientDAO = new PatientDAO();
         this.appointmentDAO = new AppointmentDAO();
         this.medicalRecordDAO = new MedicalRecordDAO();
-        this.prescriptionDAO = new PrescriptionDAO();
         this.inventoryDAO = new InventoryDAO();
         this.testDAO = new TestDAO();
         this.doctorDAO = new DoctorDAO();
+        this.consultationService = new ConsultationService();
         
         // Get doctor ID
         try {
@@ -65,6 +76,19 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         loadTests();
     }
 
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        appointmentQueue.start();
+    }
+
+    // Stops polling once the dashboard is closed
+    @Override
+    public void removeNotify() {
+        appointmentQueue.stop();
+        super.removeNotify();
+    }
+
     private void initializeUI() {
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -92,6 +116,16 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         
         appointmentTable = new JTable(appointmentTableModel);
         appointmentTable.setRowHeight(25);
+        int userId = currentUser.getUserId();
+        appointmentQueue = new AppointmentQueue(this, appointmentTableModel,
+            () -> appointmentDAO.getTodaysAppointments(userId), apt -> apt.getDoctorId() == userId,
+            apt -> new Object[]{
+                apt.getTokenNumber(),
+                apt.getPatientName(),
+                apt.getAppointmentDateTime().format(DateTimeFormatter.ofPattern("HH:mm")),
+                apt.getStatus()
+            },
+            e -> showError("Error loading appointments: " + e.getMessage()));
         appointmentTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) loadSelectedPatient();
         });
@@ -192,6 +226,11 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         testCombo = new JComboBox<>();
         formPanel.add(new JLabel("Lab Test:"));
         formPanel.add(testCombo);
+        priorityCombo = new JComboBox<>(new String[] {
+            Constants.LAB_PRIORITY_ROUTINE, Constants.LAB_PRIORITY_URGENT, Constants.LAB_PRIORITY_STAT
+        });
+        formPanel.add(new JLabel("Test Priority:"));
+        formPanel.add(priorityCombo);
         
         // Request Test button
         JButton requestTestBtn = new JButton("Request Test");
@@ -209,18 +248,28 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         formPanel.add(totalCostLabel);
 
         // Prescription display with calculated quantities
-        prescriptionArea = new JTextArea(6, 30);
-        prescriptionArea.setEditable(false);
+        prescriptionDraft = new PrescriptionDraftTableModel();
+        prescriptionDraft.addTableModelListener(e -> updateTotalCost());
+        prescriptionTable = new JTable(prescriptionDraft);
+        prescriptionTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        prescriptionTable.setPreferredScrollableViewportSize(new Dimension(400, 100));
+
+        // Remove and save buttons
+        JButton removeBtn = new JButton("Remove Medicine");
+        removeBtn.addActionListener(e -> removeMedicineFromPrescription());
 
-        // Save button
         JButton saveBtn = new JButton("Save Prescription & Complete");
         saveBtn.setBackground(Color.GREEN);
         saveBtn.setForeground(Color.BLACK);
         saveBtn.addActionListener(e -> savePrescription());
 
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 2, 5, 5));
+        buttonPanel.add(removeBtn);
+        buttonPanel.add(saveBtn);
+
         JPanel southPanel = new JPanel(new BorderLayout());
-        southPanel.add(new JScrollPane(prescriptionArea), BorderLayout.CENTER);
-        southPanel.add(saveBtn, BorderLayout.SOUTH);
+        southPanel.add(new JScrollPane(prescriptionTable), BorderLayout.CENTER);
+        southPanel.add(buttonPanel, BorderLayout.SOUTH);
 
         panel.add(formPanel, BorderLayout.NORTH);
         panel.add(southPanel, BorderLayout.CENTER);
@@ -231,43 +280,33 @@ public class PrescriptionAndHistoryPanel extends JPanel {
     // ============ DATA METHODS ============
 
     private void loadTodaysAppointments() {
-        try {
-            List<Appointment> appointments = appointmentDAO.getTodaysAppointments(currentUser.getUserId());
-            appointmentTableModel.setRowCount(0);
-            
-            for (Appointment apt : appointments) {
-                appointmentTableModel.addRow(new Object[]{
-                    apt.getTokenNumber(),
-                    apt.getPatientName(),
-                    apt.getAppointmentDateTime().format(DateTimeFormatter.ofPattern("HH:mm")),
-                    apt.getStatus()
-                });
-            }
-        } catch (SQLException e) {
-            showError("Error loading appointments: " + e.getMessage());
-        }
+        appointmentQueue.reload();
     }
 
     private void loadSelectedPatient() {
-        int row = appointmentTable.getSelectedRow();
-        if (row < 0) return;
-
-        try {
-            int token = (Integer) appointmentTableModel.getValueAt(row, 0);
-            List<Appointment> appointments = appointmentDAO.getTodaysAppointments(currentUser.getUserId());
+        Appointment appointment = appointmentQueue.getAppointment(appointmentTable.getSelectedRow());
+        int appointmentId = appointment != null ? appointment.getAppointmentId() : 0;
+        // Still the same appointment, only moved by rows added or removed above it
+        if (appointmentId == selectedRowAppointmentId) return;
+        selectedRowAppointmentId = appointmentId;
+        if (appointment == null) return;
+
+        // Nothing can be saved until the newly selected patient has loaded
+        selectedAppointment = null;
+        selectedPatient = null;
+        labTestsOrdered = 0;
+
+        AsyncDAO.load(() -> patientDAO.getPatientById(appointment.getPatientId()), patient -> {
+            // A later selection has already replaced this one
+            if (appointmentId != selectedRowAppointmentId) return;
             
-            selectedAppointment = appointments.stream()
-                .filter(a -> a.getTokenNumber() == token)
-                .findFirst().orElse(null);
-                
+            selectedAppointment = appointment;
+            selectedPatient = patient;
             if (selectedAppointment != null) {
-                selectedPatient = patientDAO.getPatientById(selectedAppointment.getPatientId());
                 displayPatientDetails();
                 loadPatientHistory();
             }
-        } catch (SQLException e) {
-            showError("Error loading patient: " + e.getMessage());
-        }
+        }, e -> showError("Error loading patient: " + e.getMessage()));
     }
 
     private void displayPatientDetails() {
@@ -286,9 +325,9 @@ public class PrescriptionAndHistoryPanel extends JPanel {
     private void loadPatientHistory() {
         if (selectedPatient == null) return;
         
-        try {
-            List<MedicalRecord> records = medicalRecordDAO.getPatientMedicalHistory(
-                selectedPatient.getPatientId());
+        Patient patient = selectedPatient;
+        AsyncDAO.load(() -> medicalRecordDAO.getPatientMedicalHistory(patient.getPatientId()), records -> {
+            if (selectedPatient != patient) return;
                 
             if (records.isEmpty()) {
                 previousHistoryArea.setText("No previous records found.");
@@ -302,15 +341,12 @@ public class PrescriptionAndHistoryPanel extends JPanel {
                 history.append("Diagnosis: ").append(record.getDiagnosis()).append("\n\n");
             }
             previousHistoryArea.setText(history.toString());
-            
-        } catch (SQLException e) {
-            showError("Error loading history: " + e.getMessage());
-        }
+        }, e -> showError("Error loading history: " + e.getMessage()));
     }
 
     private void loadMedicines() {
-        try {
-            medicinesList = inventoryDAO.getAllMedicines();
+        AsyncDAO.load(inventoryDAO::getAllMedicines, medicines -> {
+            medicinesList = medicines;
             medicineCombo.removeAllItems();
             medicineCombo.addItem("-- Select Medicine --");
             
@@ -319,23 +355,19 @@ public class PrescriptionAndHistoryPanel extends JPanel {
                     medicine.getName(), medicine.getUnitPrice(), medicine.getStockQuantity());
                 medicineCombo.addItem(display);
             }
-        } catch (SQLException e) {
-            showError("Error loading medicines: " + e.getMessage());
-        }
+        }, e -> showError("Error loading medicines: " + e.getMessage()));
     }
 
     private void loadTests() {
-        try {
-            testsList = testDAO.getAllTests();
+        AsyncDAO.load(testDAO::getAllTests, tests -> {
+            testsList = tests;
             testCombo.removeAllItems();
             testCombo.addItem(null); // Placeholder for empty selection
             
             for (Test test : testsList) {
                 testCombo.addItem(test);
             }
-        } catch (SQLException e) {
-            showError("Error loading tests: " + e.getMessage());
-        }
+        }, e -> showError("Error loading tests: " + e.getMessage()));
     }
 
     // ============ ACTION METHODS ============
@@ -349,7 +381,7 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         try {
             appointmentDAO.updateAppointmentStatus(selectedAppointment.getAppointmentId(), "IN_PROGRESS");
             JOptionPane.showMessageDialog(this, "Consultation started!");
-            loadTodaysAppointments();
+            appointmentQueue.pollNow();
         } catch (SQLException e) {
             showError("Error: " + e.getMessage());
         }
@@ -372,37 +404,40 @@ public class PrescriptionAndHistoryPanel extends JPanel {
             return;
         }
         
+        String remarks = JOptionPane.showInputDialog(this, 
+            "Enter remarks/instructions for the lab test (optional):", 
+            "Test Remarks", 
+            JOptionPane.PLAIN_MESSAGE);
+        
+        if (remarks == null) {
+            // User cancelled
+            return;
+        }
+        
+        // Sent to the lab now, so it can start before the consultation is saved
+        String priority = (String) priorityCombo.getSelectedItem();
         try {
-            String remarks = JOptionPane.showInputDialog(this, 
-                "Enter remarks/instructions for the lab test (optional):", 
-                "Test Remarks", 
-                JOptionPane.PLAIN_MESSAGE);
-            
-            if (remarks == null) {
-                // User cancelled
-                return;
-            }
-            
             boolean success = testDAO.insertTestRequest(
-                doctorId, 
-                selectedPatient.getPatientId(), 
-                selectedTest.getTestId(), 
-                remarks.trim().isEmpty() ? null : remarks.trim()
+                doctorId,
+                selectedPatient.getPatientId(),
+                selectedTest.getTestId(),
+                remarks.trim().isEmpty() ? null : remarks.trim(),
+                priority
             );
             
             if (success) {
+                labTestsOrdered++;
                 JOptionPane.showMessageDialog(this, 
-                    "Lab test requested successfully!", 
+                    priority + " lab test requested successfully!", 
                     "Success", 
                     JOptionPane.INFORMATION_MESSAGE);
                 testCombo.setSelectedIndex(0); // Reset selection
+                priorityCombo.setSelectedIndex(0);
             } else {
                 showError("Failed to request lab test.");
             }
-            
         } catch (SQLException e) {
             showError("Error requesting lab test: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -427,10 +462,7 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         }
         
         // Auto-calculate quantity
-        int quantity = calculateMedicineQuantity(frequency, duration);
-        
-        // Auto-calculate cost
-        double cost = selectedMedicine.getUnitPrice() * quantity;
+        int quantity = DosageParser.quantity(frequency, duration);
         
         // Check stock availability
         if (selectedMedicine.getStockQuantity() < quantity) {
@@ -443,18 +475,8 @@ public class PrescriptionAndHistoryPanel extends JPanel {
             }
         }
         
-        // Add to prescription with auto-calculated values
-        String entry = String.format("• %s | %s for %s | Qty: %d | Cost: ₹%.2f\n", 
-            selectedMedicine.getName(),
-            frequency, 
-            duration, 
-            quantity,
-            cost);
-        
-        prescriptionArea.append(entry);
-        
-        // Update total cost
-        updateTotalCost();
+        // Add to prescription with auto-calculated values; the total follows
+        prescriptionDraft.addLine(selectedMedicine, frequency, duration, quantity);
         
         // Clear fields
         frequencyField.setText("");
@@ -462,6 +484,15 @@ public class PrescriptionAndHistoryPanel extends JPanel {
         medicineCombo.setSelectedIndex(0);
     }
 
+    private void removeMedicineFromPrescription() {
+        int row = prescriptionTable.getSelectedRow();
+        if (row < 0) {
+            showError("Please select a medicine to remove.");
+            return;
+        }
+        prescriptionDraft.removeLine(prescriptionTable.convertRowIndexToModel(row));
+    }
+
     private void savePrescription() {
         if (selectedAppointment == null || selectedPatient == null) {
             showError("Please select a patient first.");
@@ -476,8 +507,8 @@ public class PrescriptionAndHistoryPanel extends JPanel {
             return;
         }
         
-        if (prescriptionArea.getText().trim().isEmpty()) {
-            showError("Please add at least one medicine.");
+        if (prescriptionDraft.isEmpty() && labTestsOrdered == 0) {
+            showError("Please add at least one medicine or lab test.");
             return;
         }
 
@@ -489,155 +520,42 @@ public class PrescriptionAndHistoryPanel extends JPanel {
             record.setAppointmentId(selectedAppointment.getAppointmentId());
             record.setVisitDate(LocalDateTime.now());
             record.setDiagnosis(diagnosis);
+            record.setSymptoms(symptoms);
             record.setNotes(symptoms);
             
-            MedicalRecord savedRecord = medicalRecordDAO.createMedicalRecord(record);
+            List<Prescription> prescriptions = prescriptionDraft.toPrescriptions();
             
-            if (savedRecord != null) {
-                // Parse and save prescriptions with calculated quantities
-                String[] lines = prescriptionArea.getText().split("\n");
-                for (String line : lines) {
-                    if (line.trim().isEmpty()) continue;
-                    
-                    // Parse line: "• Medicine | Frequency for Duration | Qty: X | Cost: ₹Y"
-                    String cleanLine = line.replace("• ", "");
-                    String[] parts = cleanLine.split(" \\| ");
-                    
-                    if (parts.length >= 3) {
-                        String medicineName = parts[0];
-                        String frequencyDuration = parts[1];
-                        String quantityStr = parts[2].replace("Qty: ", "");
-                        String costStr = parts[3].replace("Cost: ₹", "");
-                        
-                        // Extract frequency and duration
-                        String[] fdParts = frequencyDuration.split(" for ");
-                        String frequency = fdParts[0];
-                        String duration = fdParts[1];
-                        
-                        int quantity = Integer.parseInt(quantityStr);
-                        double cost = Double.parseDouble(costStr);
-                        
-                        Prescription prescription = new Prescription();
-                        prescription.setRecordId(savedRecord.getRecordId());
-                        prescription.setMedicineName(medicineName);
-                        prescription.setFrequency(frequency);
-                        prescription.setDuration(duration);
-                        prescription.setQuantity(quantity);
-                        prescription.setTotalCost(cost);
-                        prescription.setCreatedAt(LocalDateTime.now());
-                        
-                        prescriptionDAO.createPrescription(prescription);
-                    }
-                }
-                
-                // Complete appointment
-                appointmentDAO.updateAppointmentStatus(selectedAppointment.getAppointmentId(), "COMPLETED");
-                
-                JOptionPane.showMessageDialog(this, 
-                    String.format("Prescription saved successfully!\nTotal Cost: %s", 
-                    totalCostLabel.getText()));
-                clearForm();
-                loadTodaysAppointments();
-            }
+            // Record, prescriptions and completion in one transaction
+            consultationService.complete(record, prescriptions);
+            
+            JOptionPane.showMessageDialog(this, 
+                String.format("Prescription saved successfully!\nTotal Cost: %s", 
+                totalCostLabel.getText()));
+            clearForm();
+            appointmentQueue.pollNow();
             
         } catch (SQLException e) {
             showError("Error saving: " + e.getMessage());
-        } catch (Exception e) {
-            showError("Error parsing prescription data: " + e.getMessage());
         }
     }
 
     private void clearForm() {
         symptomsArea.setText("");
         diagnosisArea.setText("");
-        prescriptionArea.setText("");
+        prescriptionDraft.clear();
+        labTestsOrdered = 0;
         frequencyField.setText("");
         durationField.setText("");
         medicineCombo.setSelectedIndex(0);
-        totalCostLabel.setText("Total Cost: ₹0.00");
     }
 
     // ============ CALCULATION METHODS ============
 
     /**
-     * Auto-calculate medicine quantity based on frequency and duration
-     */
-    private int calculateMedicineQuantity(String frequency, String duration) {
-        try {
-            int dosesPerDay = parseFrequency(frequency);
-            int totalDays = parseDuration(duration);
-            return dosesPerDay * totalDays;
-        } catch (Exception e) {
-            showError("Error calculating quantity: " + e.getMessage());
-            return 1;
-        }
-    }
-
-    private int parseFrequency(String frequency) {
-        frequency = frequency.toLowerCase().trim();
-        
-        if (frequency.contains("once") || frequency.contains("1 time")) return 1;
-        if (frequency.contains("twice") || frequency.contains("2 times")) return 2;
-        if (frequency.contains("thrice") || frequency.contains("3 times")) return 3;
-        if (frequency.contains("4 times")) return 4;
-        
-        // Extract number from patterns
-        java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("(\\d+)");
-        java.util.regex.Matcher matcher = pattern.matcher(frequency);
-        if (matcher.find()) {
-            return Integer.parseInt(matcher.group(1));
-        }
-        
-        return 1; // Default
-    }
-
-    private int parseDuration(String duration) {
-        duration = duration.toLowerCase().trim();
-        
-        // Extract number and unit
-        java.util.regex.Pattern pattern = java.util.regex.Pattern
-                .compile("(\\d+)\\s*(day|days|week|weeks|month|months)");
-        java.util.regex.Matcher matcher = pattern.matcher(duration);
-
-        if (matcher.find()) {
-            int number = Integer.parseInt(matcher.group(1));
-            String unit = matcher.group(2);
-
-            if (unit.startsWith("week")) return number * 7;
-            if (unit.startsWith("month")) return number * 30;
-            return number; // days
-        }
-
-        // Try to extract just a number
-        pattern = java.util.regex.Pattern.compile("(\\d+)");
-        matcher = pattern.matcher(duration);
-        if (matcher.find()) {
-            return Integer.parseInt(matcher.group(1));
-        }
-
-        return 7; // Default 7 days
-    }
-
-    /**
-     * Update total cost by parsing all prescription entries
+     * Show the draft's running total; called whenever its lines change
      */
     private void updateTotalCost() {
-        double total = 0.0;
-        String[] lines = prescriptionArea.getText().split("\n");
-        
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
-            
-            // Extract cost from line: "... Cost: ₹123.45"
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile("Cost: ₹([0-9.]+)");
-            java.util.regex.Matcher matcher = pattern.matcher(line);
-            
-            if (matcher.find()) {
-                total += Double.parseDouble(matcher.group(1));
-            }
-        }
-        
-        totalCostLabel.setText(String.format("Total Cost: ₹%.2f", total));
+        totalCostLabel.setText(String.format("Total Cost: ₹%.2f", prescriptionDraft.getTotal()));
     }
 
     // ============ HELPER METHODS ============
@@ -0,0 +1,116 @@
+package hospital.views.doctor;
+
+import hospital.models.Medicine;
+import hospital.models.Prescription;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The prescription a doctor is writing, one row per medicine.
+ *
+ * Lines are kept as Prescription objects carrying the medicine ID,
+ * frequency, duration, quantity and cost, so saving needs no parsing. The
+ * total is kept in paise and adjusted as lines are added and removed
+ * rather than summed again on every change.
+ *
+ * Must be used on the event dispatch thread.
+ */
+public class PrescriptionDraftTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Medicine", "Frequency", "Duration", "Qty", "Cost (₹)"};
+
+    private final List<Prescription> lines = new ArrayList<>();
+    private long totalPaise;
+
+    /** Adds a line for medicine at its current unit price. */
+    public Prescription addLine(Medicine medicine, String frequency, String duration, int quantity) {
+        Prescription line = new Prescription();
+        line.setMedicineId(medicine.getMedicineId());
+        line.setMedicineName(medicine.getName());
+        line.setFrequency(frequency);
+        line.setDuration(duration);
+        line.setQuantity(quantity);
+        line.setTotalCost(medicine.getUnitPrice() * quantity);
+
+        lines.add(line);
+        totalPaise += toPaise(line.getTotalCost());
+        fireTableRowsInserted(lines.size() - 1, lines.size() - 1);
+        return line;
+    }
+
+    public void removeLine(int row) {
+        Prescription line = lines.remove(row);
+        totalPaise -= toPaise(line.getTotalCost());
+        fireTableRowsDeleted(row, row);
+    }
+
+    public void clear() {
+        lines.clear();
+        totalPaise = 0;
+        fireTableDataChanged();
+    }
+
+    public boolean isEmpty() {
+        return lines.isEmpty();
+    }
+
+    public double getTotal() {
+        return totalPaise / 100.0;
+    }
+
+    /** Copies of the lines, stamped with the current time, ready to save. */
+    public List<Prescription> toPrescriptions() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Prescription> prescriptions = new ArrayList<>(lines.size());
+        for (Prescription line : lines) {
+            Prescription prescription = new Prescription();
+            prescription.setMedicineId(line.getMedicineId());
+            prescription.setMedicineName(line.getMedicineName());
+            prescription.setFrequency(line.getFrequency());
+            prescription.setDuration(line.getDuration());
+            prescription.setQuantity(line.getQuantity());
+            prescription.setTotalCost(line.getTotalCost());
+            prescription.setCreatedAt(now);
+            prescriptions.add(prescription);
+        }
+        return prescriptions;
+    }
+
+    @Override
+    public int getRowCount() {
+        return lines.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 3 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Prescription line = lines.get(row);
+        switch (column) {
+            case 0: return line.getMedicineName();
+            case 1: return line.getFrequency();
+            case 2: return line.getDuration();
+            case 3: return line.getQuantity();
+            case 4: return String.format("%.2f", line.getTotalCost());
+            default: return null;
+        }
+    }
+
+    private static long toPaise(double amount) {
+        return Math.round(amount * 100);
+    }
+}
@@ -3,6 +3,7 @@ package hospital.views.doctor;
 
 import hospital.models.User;
 import hospital.models.DoctorSchedule;
+import hospital.dao.AsyncDAO;
 import hospital.dao.DoctorProfileDAO;
 import hospital.utils.Constants;
 import javax.swing.*;
@@ -24,6 +25,9 @@ public class SchedulePanel extends JPanel {
     private JButton markLeaveBtn;
     private JButton refreshBtn;
     private JLabel statusLabel;
+
+    // Bumped by each load; an older load finishing late is ignored
+    private long loadGeneration;
     
     public SchedulePanel(User user) {
         this.currentUser = user;
@@ -31,7 +35,6 @@ public class SchedulePanel extends JPanel {
         initializeComponents();
         setupLayout();
         setupEventHandlers();
-        loadSchedule();
     }
     
     private void initializeComponents() {
@@ -163,15 +166,16 @@ public class SchedulePanel extends JPanel {
     }
     
     private void loadSchedule() {
-        tableModel.setRowCount(0);
+        long generation = ++loadGeneration;
         
         LocalDate startDate = LocalDate.now();
         LocalDate endDate = startDate.plusDays(30);
         
-        try {
-            List<DoctorSchedule> schedules = profileDAO.getDoctorSchedules(
-                currentUser.getUserId(), startDate, endDate);
-            
+        AsyncDAO.load(() -> profileDAO.getDoctorSchedules(currentUser.getUserId(), startDate, endDate), schedules -> {
+            if (generation != loadGeneration) {
+                return;
+            }
+            tableModel.setRowCount(0);
             Map<LocalDate, DoctorSchedule> scheduleMap = new HashMap<>();
             for (DoctorSchedule schedule : schedules) {
                 scheduleMap.put(schedule.getScheduleDate(), schedule);
@@ -194,10 +198,13 @@ public class SchedulePanel extends JPanel {
                 };
                 tableModel.addRow(row);
             }
-        } catch (SQLException ex) {
+        }, ex -> {
             ex.printStackTrace();
+            if (generation != loadGeneration) {
+                return;
+            }
             JOptionPane.showMessageDialog(this, 
                 "Error loading schedule: " + ex.getMessage());
-        }
+        });
     }
 }
\ No newline at end of file
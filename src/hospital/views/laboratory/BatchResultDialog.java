@@ -0,0 +1,230 @@
+package hospital.views.laboratory;
+
+import hospital.dao.AsyncDAO;
+import hospital.dao.LabDAO;
+import hospital.models.TestRequest;
+import hospital.utils.Constants;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Result entry for a whole run of samples, e.g. an analyzer batch.
+ *
+ * Lists the pending requests, optionally narrowed to one test, with a
+ * result cell for each. Results typed for requests hidden by the filter are
+ * kept. Every non-blank result is submitted together in one transaction;
+ * requests already completed elsewhere are skipped and reported.
+ */
+class BatchResultDialog extends JDialog {
+    private static final String ALL_TESTS = "All tests";
+
+    private final LabDAO labDAO;
+    private final List<TestRequest> pending;
+    private final BatchTableModel tableModel = new BatchTableModel();
+
+    private JTable table;
+    private JComboBox<String> testFilter;
+    private JButton submitBtn;
+    private JButton cancelBtn;
+    private JLabel countLabel;
+
+    BatchResultDialog(Window parent, LabDAO labDAO, List<TestRequest> pending) {
+        super(parent, "Batch Result Entry", ModalityType.APPLICATION_MODAL);
+        this.labDAO = labDAO;
+        this.pending = pending;
+        initComponents();
+        setupLayout();
+        showTest(ALL_TESTS);
+        setSize(800, 500);
+        setLocationRelativeTo(parent);
+    }
+
+    private void initComponents() {
+        Set<String> testNames = new TreeSet<>();
+        for (TestRequest request : pending) {
+            if (request.getTestName() != null) {
+                testNames.add(request.getTestName());
+            }
+        }
+        testFilter = new JComboBox<>();
+        testFilter.addItem(ALL_TESTS);
+        for (String testName : testNames) {
+            testFilter.addItem(testName);
+        }
+        testFilter.addActionListener(e -> showTest((String) testFilter.getSelectedItem()));
+
+        table = new JTable(tableModel);
+        table.setRowHeight(25);
+        table.setSurrendersFocusOnKeystroke(true);
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        table.getColumnModel().getColumn(BatchTableModel.RESULT_COLUMN).setPreferredWidth(250);
+
+        countLabel = new JLabel();
+        tableModel.addTableModelListener(e -> updateCount());
+
+        submitBtn = new JButton("Submit Results");
+        submitBtn.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+        submitBtn.setBackground(new Color(34, 139, 34));
+        submitBtn.setForeground(Color.WHITE);
+        submitBtn.addActionListener(e -> handleSubmit());
+
+        cancelBtn = new JButton("Cancel");
+        cancelBtn.addActionListener(e -> dispose());
+    }
+
+    private void setupLayout() {
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Test:"));
+        filterPanel.add(testFilter);
+        filterPanel.add(new JLabel("  Type each result in the Result column; blank rows are skipped."));
+        panel.add(filterPanel, BorderLayout.NORTH);
+
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(countLabel, BorderLayout.WEST);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(submitBtn);
+        buttonPanel.add(cancelBtn);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        panel.add(bottomPanel, BorderLayout.SOUTH);
+
+        add(panel);
+    }
+
+    private void showTest(String testName) {
+        stopEditing();
+        List<TestRequest> shown = new ArrayList<>();
+        for (TestRequest request : pending) {
+            if (ALL_TESTS.equals(testName) || testName.equals(request.getTestName())) {
+                shown.add(request);
+            }
+        }
+        tableModel.show(shown);
+    }
+
+    private void updateCount() {
+        countLabel.setText(tableModel.getResults().size() + " result(s) entered");
+    }
+
+    private void handleSubmit() {
+        stopEditing();
+        Map<Integer, String> results = tableModel.getResults();
+        if (results.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                "Enter at least one result before submitting.",
+                "No Results", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        int confirm = JOptionPane.showConfirmDialog(this,
+            "Submit " + results.size() + " result(s)?\n\n" +
+            "Each of these tests will be marked as completed.",
+            "Confirm Submission",
+            JOptionPane.YES_NO_OPTION);
+        if (confirm != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        submitBtn.setEnabled(false);
+        cancelBtn.setEnabled(false);
+        AsyncDAO.load(() -> labDAO.submitTestResults(results), completed -> {
+            int skipped = results.size() - completed.size();
+            String message = completed.size() + " result(s) submitted successfully.";
+            if (skipped > 0) {
+                message += "\n\n" + skipped + " test(s) had already been completed and were skipped.";
+            }
+            JOptionPane.showMessageDialog(this, message, "Success", JOptionPane.INFORMATION_MESSAGE);
+            dispose();
+        }, e -> {
+            e.printStackTrace();
+            submitBtn.setEnabled(true);
+            cancelBtn.setEnabled(true);
+            JOptionPane.showMessageDialog(this,
+                "Error submitting results: " + e.getMessage() + "\n\nNo results were saved.",
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private void stopEditing() {
+        if (table.isEditing()) {
+            table.getCellEditor().stopCellEditing();
+        }
+    }
+
+    private static class BatchTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Request ID", "Priority", "Patient", "Test Name", "Result"};
+        static final int RESULT_COLUMN = 4;
+
+        private List<TestRequest> shown = new ArrayList<>();
+        // Kept across filter changes, in the order typed
+        private final Map<Integer, String> results = new LinkedHashMap<>();
+
+        void show(List<TestRequest> requests) {
+            shown = requests;
+            fireTableDataChanged();
+        }
+
+        /** The non-blank results, by request ID. */
+        Map<Integer, String> getResults() {
+            Map<Integer, String> entered = new LinkedHashMap<>();
+            for (Map.Entry<Integer, String> entry : results.entrySet()) {
+                if (!entry.getValue().trim().isEmpty()) {
+                    entered.put(entry.getKey(), entry.getValue().trim());
+                }
+            }
+            return entered;
+        }
+
+        @Override
+        public int getRowCount() {
+            return shown.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return column == RESULT_COLUMN;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            TestRequest request = shown.get(row);
+            switch (column) {
+                case 0: return request.getRequestId();
+                case 1: return request.getPriority() != null ? request.getPriority() : Constants.LAB_PRIORITY_ROUTINE;
+                case 2: return request.getPatientName();
+                case 3: return request.getTestName();
+                case 4: return results.getOrDefault(request.getRequestId(), "");
+                default: return null;
+            }
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            if (column == RESULT_COLUMN) {
+                results.put(shown.get(row).getRequestId(), value != null ? value.toString() : "");
+                fireTableCellUpdated(row, column);
+            }
+        }
+    }
+}
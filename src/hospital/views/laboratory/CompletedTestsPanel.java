@@ -1,5 +1,6 @@
 package hospital.views.laboratory;
 
+import hospital.dao.AsyncDAO;
 import hospital.dao.LabDAO;
 import hospital.models.TestRequest;
 import hospital.models.User;
@@ -7,7 +8,6 @@ import hospital.models.User;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.List;
 
@@ -25,6 +25,9 @@ public class CompletedTestsPanel extends JPanel {
     // Right side: read-only details
     private JTextArea requestDetailsArea;
 
+    // Bumped by each refresh; an older refresh finishing late is ignored
+    private long refreshGeneration;
+
     public CompletedTestsPanel(User user) {
         this.currentUser = user;
         this.labDAO = new LabDAO();
@@ -93,10 +96,13 @@ public class CompletedTestsPanel extends JPanel {
      * Refresh data in the table. Queries DB for completed lab requests.
      */
     public void refreshData() {
-        tableModel.setRowCount(0);
+        long generation = ++refreshGeneration;
         
-        try {
-            List<TestRequest> requests = labDAO.getLabRequests("Completed");
+        AsyncDAO.load(() -> labDAO.getLabRequests("Completed"), requests -> {
+            if (generation != refreshGeneration) {
+                return;
+            }
+            tableModel.setRowCount(0);
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
             
             for (TestRequest request : requests) {
@@ -109,19 +115,19 @@ public class CompletedTestsPanel extends JPanel {
                 };
                 tableModel.addRow(row);
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
+            if (generation != refreshGeneration) {
+                return;
+            }
             JOptionPane.showMessageDialog(this, 
                 "Error loading completed tests: " + e.getMessage(),
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void loadTestDetails(int requestId) {
-        try {
-            TestRequest request = labDAO.getRequestDetails(requestId);
-            
+        AsyncDAO.load(() -> labDAO.getRequestDetails(requestId), request -> {
             if (request == null) {
                 requestDetailsArea.setText("Test request not found.");
                 return;
@@ -165,11 +171,10 @@ public class CompletedTestsPanel extends JPanel {
             
             requestDetailsArea.setText(details.toString());
             requestDetailsArea.setCaretPosition(0);
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             requestDetailsArea.setText("Error loading test details: " + e.getMessage());
-        }
+        });
     }
 
     private String getDoctorName(TestRequest request) {
@@ -0,0 +1,175 @@
+package hospital.views.laboratory;
+
+import hospital.models.TestRequest;
+import hospital.utils.Constants;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The lab's pending test requests in the order they should be worked:
+ * STAT, then urgent, then routine, oldest first within each.
+ *
+ * Rows are kept sorted as requests arrive and leave, so a change to a few
+ * requests inserts or removes just their rows instead of rebuilding the
+ * table; the table keeps its selection and scroll position. The Waiting
+ * column is worked out when it is drawn.
+ *
+ * Must be used on the event dispatch thread.
+ */
+public class LabWorklistModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Request ID", "Priority", "Patient", "Doctor", "Test Name", "Requested", "Waiting"};
+    static final int PRIORITY_COLUMN = 1;
+    static final int WAITING_COLUMN = 6;
+
+    static final Comparator<TestRequest> ORDER = Comparator
+            .comparingInt((TestRequest r) -> priorityRank(r.getPriority()))
+            .thenComparing(r -> r.getRequestDate() != null ? r.getRequestDate() : new Date(Long.MAX_VALUE))
+            .thenComparingInt(TestRequest::getRequestId);
+
+    private final List<TestRequest> rows = new ArrayList<>();
+    private final Map<Integer, TestRequest> byId = new HashMap<>();
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+
+    /** Replaces the whole list; requests that are not pending are left out. */
+    public void setRequests(Collection<TestRequest> requests) {
+        rows.clear();
+        byId.clear();
+        for (TestRequest request : requests) {
+            if (isPending(request)) {
+                rows.add(request);
+                byId.put(request.getRequestId(), request);
+            }
+        }
+        rows.sort(ORDER);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Applies the current state of some requests: pending ones are added or
+     * updated in place, others are removed, as are the deleted IDs.
+     */
+    public void applyChanges(Collection<TestRequest> changed, Collection<Integer> deleted) {
+        for (int requestId : deleted) {
+            remove(requestId);
+        }
+        for (TestRequest request : changed) {
+            TestRequest current = byId.get(request.getRequestId());
+            if (!isPending(request)) {
+                remove(request.getRequestId());
+            } else if (current != null && ORDER.compare(current, request) == 0) {
+                int row = indexOf(current);
+                rows.set(row, request);
+                byId.put(request.getRequestId(), request);
+                fireTableRowsUpdated(row, row);
+            } else {
+                remove(request.getRequestId());
+                int row = -Collections.binarySearch(rows, request, ORDER) - 1;
+                rows.add(row, request);
+                byId.put(request.getRequestId(), request);
+                fireTableRowsInserted(row, row);
+            }
+        }
+    }
+
+    /** Redraws the Waiting column; the rows and selection are untouched. */
+    public void refreshWaitingTimes() {
+        if (!rows.isEmpty()) {
+            fireTableChanged(new TableModelEvent(this, 0, rows.size() - 1, WAITING_COLUMN));
+        }
+    }
+
+    /** A copy of the rows, in worklist order. */
+    public List<TestRequest> getRequests() {
+        return new ArrayList<>(rows);
+    }
+
+    public TestRequest getRequestAt(int row) {
+        return rows.get(row);
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 0 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        TestRequest request = rows.get(row);
+        switch (column) {
+            case 0: return request.getRequestId();
+            case 1: return request.getPriority() != null ? request.getPriority() : Constants.LAB_PRIORITY_ROUTINE;
+            case 2: return request.getPatientName();
+            case 3: return request.getDoctorName();
+            case 4: return request.getTestName();
+            case 5: return request.getRequestDate() != null ? dateFormat.format(request.getRequestDate()) : "N/A";
+            case 6: return waiting(request.getRequestDate());
+            default: return null;
+        }
+    }
+
+    private void remove(int requestId) {
+        TestRequest current = byId.remove(requestId);
+        if (current != null) {
+            int row = indexOf(current);
+            rows.remove(row);
+            fireTableRowsDeleted(row, row);
+        }
+    }
+
+    // The rows are sorted and each request's sort key is unique
+    private int indexOf(TestRequest request) {
+        return Collections.binarySearch(rows, request, ORDER);
+    }
+
+    private static boolean isPending(TestRequest request) {
+        return "Pending".equalsIgnoreCase(request.getStatus());
+    }
+
+    static int priorityRank(String priority) {
+        if (Constants.LAB_PRIORITY_STAT.equalsIgnoreCase(priority)) return 0;
+        if (Constants.LAB_PRIORITY_URGENT.equalsIgnoreCase(priority)) return 1;
+        return 2;
+    }
+
+    private static String waiting(Date since) {
+        if (since == null) {
+            return "";
+        }
+        long minutes = Math.max(0, (System.currentTimeMillis() - since.getTime()) / 60_000);
+        if (minutes < 60) {
+            return minutes + " min";
+        }
+        if (minutes < 24 * 60) {
+            return (minutes / 60) + " h " + (minutes % 60) + " min";
+        }
+        return (minutes / (24 * 60)) + " d " + (minutes % (24 * 60) / 60) + " h";
+    }
+}
@@ -3,6 +3,7 @@ package hospital.views.laboratory;
 import hospital.models.User;
 import hospital.utils.Constants;
 import hospital.views.common.BaseFrame;
+import hospital.views.common.LazyCardPanel;
 
 import javax.swing.*;
 import java.awt.*;
@@ -14,17 +15,14 @@ import java.awt.*;
 public class LaboratoryDashboard extends BaseFrame {
     private User currentUser;
     private JPanel sidePanel;
-    private JPanel contentPanel;
+    private LazyCardPanel contentPanel;
 
     // Menu buttons
     private JButton pendingRequestsBtn;
     private JButton completedTestsBtn;
+    private JButton turnaroundBtn;
     private JButton logoutBtn;
 
-    // Content panels
-    private PendingRequestsPanel pendingRequestsPanel;
-    private CompletedTestsPanel completedTestsPanel;
-
     public LaboratoryDashboard(User user) {
         super("Laboratory Dashboard - " + Constants.APP_NAME);
         this.currentUser = user;
@@ -44,15 +42,20 @@ public class LaboratoryDashboard extends BaseFrame {
         sidePanel.setPreferredSize(new Dimension(220, 0));
         sidePanel.setLayout(new BoxLayout(sidePanel, BoxLayout.Y_AXIS));
 
-        contentPanel = new JPanel(new CardLayout());
+        contentPanel = new LazyCardPanel();
         contentPanel.setBackground(Constants.BACKGROUND_COLOR);
 
         pendingRequestsBtn = createMenuButton("Pending Requests", "pendingRequests");
         completedTestsBtn = createMenuButton("Completed Tests", "completedTests");
+        turnaroundBtn = createMenuButton("Turnaround Times", "turnaround");
         logoutBtn = createMenuButton("Logout", "logout");
 
-        pendingRequestsPanel = new PendingRequestsPanel(currentUser);
-        completedTestsPanel = new CompletedTestsPanel(currentUser);
+        // Content panels are built the first time they are shown
+        contentPanel.register("pendingRequests", () -> new PendingRequestsPanel(currentUser),
+                PendingRequestsPanel::refreshData);
+        contentPanel.register("completedTests", () -> new CompletedTestsPanel(currentUser),
+                CompletedTestsPanel::refreshData);
+        contentPanel.register("turnaround", TurnaroundPanel::new, TurnaroundPanel::refreshData);
     }
 
     private JButton createMenuButton(String text, String actionCommand) {
@@ -114,14 +117,12 @@ public class LaboratoryDashboard extends BaseFrame {
         sidePanel.add(pendingRequestsBtn);
         sidePanel.add(Box.createRigidArea(new Dimension(0, 8)));
         sidePanel.add(completedTestsBtn);
+        sidePanel.add(Box.createRigidArea(new Dimension(0, 8)));
+        sidePanel.add(turnaroundBtn);
         sidePanel.add(Box.createVerticalGlue());
         sidePanel.add(logoutBtn);
         sidePanel.add(Box.createRigidArea(new Dimension(0, 20)));
 
-        // Add content panels
-        contentPanel.add(pendingRequestsPanel, "pendingRequests");
-        contentPanel.add(completedTestsPanel, "completedTests");
-
         add(sidePanel, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
     }
@@ -130,19 +131,21 @@ public class LaboratoryDashboard extends BaseFrame {
     protected void setupEventHandlers() {
         pendingRequestsBtn.addActionListener(e -> showPendingRequests());
         completedTestsBtn.addActionListener(e -> showCompletedTests());
+        turnaroundBtn.addActionListener(e -> showTurnaround());
         logoutBtn.addActionListener(e -> handleLogout());
     }
 
     private void showPendingRequests() {
-        CardLayout cl = (CardLayout) contentPanel.getLayout();
-        cl.show(contentPanel, "pendingRequests");
-        pendingRequestsPanel.refreshData();
+        contentPanel.show("pendingRequests");
+        contentPanel.prefetch("completedTests");
     }
     
     private void showCompletedTests() {
-        CardLayout cl = (CardLayout) contentPanel.getLayout();
-        cl.show(contentPanel, "completedTests");
-        completedTestsPanel.refreshData();
+        contentPanel.show("completedTests");
+    }
+
+    private void showTurnaround() {
+        contentPanel.show("turnaround");
     }
 
     private void handleLogout() {
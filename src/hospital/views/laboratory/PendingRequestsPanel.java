@@ -1,11 +1,15 @@
 package hospital.views.laboratory;
 
+import hospital.dao.AsyncDAO;
+import hospital.dao.ChangeCursor;
+import hospital.dao.ChangeLog;
 import hospital.dao.LabDAO;
 import hospital.models.TestRequest;
 import hospital.models.User;
+import hospital.utils.Constants;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
@@ -13,22 +17,34 @@ import java.util.List;
 
 /**
  * Panel showing pending laboratory test requests.
- * Left: JTable with pending tests. Right: details panel with result submission.
+ * Left: JTable with pending tests, most urgent first. Right: details panel with result submission.
+ * While shown, requests ordered or completed elsewhere are picked up from the change log every few seconds.
  */
 public class PendingRequestsPanel extends JPanel {
     private User currentUser;
     private LabDAO labDAO;
 
+    private static final int POLL_INTERVAL_MS = 5000;
+
     // Left table showing pending requests
     private JTable requestsTable;
-    private DefaultTableModel tableModel;
+    private LabWorklistModel worklist;
 
     // Right side: details and result entry
     private JTextArea requestDetailsArea;
     private JTextArea resultTextArea;
     private JButton submitResultBtn;
+    private JButton batchEntryBtn;
     
     private TestRequest selectedRequest;
+    private int loadingRequestId;
+
+    private final ChangeCursor changeCursor = new ChangeCursor(ChangeLog.TEST_REQUESTS);
+    private Timer pollTimer;
+    // One load or poll runs at a time, so changes always apply to the list they follow
+    private boolean busy;
+    private boolean reloadQueued;
+    private boolean loaded;
 
     public PendingRequestsPanel(User user) {
         this.currentUser = user;
@@ -36,24 +52,35 @@ public class PendingRequestsPanel extends JPanel {
         initializeComponents();
         setupLayout();
         setupEventHandlers();
+
+        pollTimer = new Timer(POLL_INTERVAL_MS, e -> pollChanges());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        pollTimer.start();
+    }
+
+    // Stops polling once the dashboard is closed
+    @Override
+    public void removeNotify() {
+        pollTimer.stop();
+        super.removeNotify();
     }
 
     private void initializeComponents() {
         setLayout(new BorderLayout());
 
-        // Table columns: Request ID, Patient, Doctor, Test Name, Date
-        String[] cols = {"Request ID", "Patient", "Doctor", "Test Name", "Date"};
-        tableModel = new DefaultTableModel(cols, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Table columns: Request ID, Priority, Patient, Doctor, Test Name, Requested, Waiting
+        worklist = new LabWorklistModel();
 
-        requestsTable = new JTable(tableModel);
+        requestsTable = new JTable(worklist);
         requestsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         requestsTable.setRowHeight(25);
         requestsTable.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
+        requestsTable.getColumnModel().getColumn(LabWorklistModel.PRIORITY_COLUMN)
+            .setCellRenderer(new PriorityRenderer());
 
         // Details area (read-only)
         requestDetailsArea = new JTextArea();
@@ -75,6 +102,9 @@ public class PendingRequestsPanel extends JPanel {
         submitResultBtn.setBackground(new Color(34, 139, 34));
         submitResultBtn.setForeground(Color.WHITE);
         submitResultBtn.setEnabled(false);
+
+        batchEntryBtn = new JButton("Batch Result Entry...");
+        batchEntryBtn.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 13));
     }
 
     private void setupLayout() {
@@ -85,6 +115,9 @@ public class PendingRequestsPanel extends JPanel {
         // Left panel
         JPanel leftPanel = new JPanel(new BorderLayout());
         leftPanel.add(new JScrollPane(requestsTable), BorderLayout.CENTER);
+        JPanel leftButtons = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        leftButtons.add(batchEntryBtn);
+        leftPanel.add(leftButtons, BorderLayout.SOUTH);
         leftPanel.setBorder(BorderFactory.createTitledBorder("Pending Test Requests"));
 
         // Right panel
@@ -134,51 +167,114 @@ public class PendingRequestsPanel extends JPanel {
             if (!e.getValueIsAdjusting()) {
                 int row = requestsTable.getSelectedRow();
                 if (row >= 0) {
-                    int requestId = (Integer) tableModel.getValueAt(row, 0);
-                    loadTestDetails(requestId);
+                    int requestId = worklist.getRequestAt(row).getRequestId();
+                    if (selectedRequest == null || selectedRequest.getRequestId() != requestId) {
+                        loadTestDetails(requestId);
+                    }
+                } else {
+                    // e.g. the selected request was completed at another workstation
+                    clearDetails();
                 }
             }
         });
 
         // Submit result button
         submitResultBtn.addActionListener(e -> handleSubmitResult());
+
+        // Results for many samples at once
+        batchEntryBtn.addActionListener(e -> openBatchEntry());
     }
 
     /**
      * Refresh data in the table from database.
      */
     public void refreshData() {
-        tableModel.setRowCount(0);
-        selectedRequest = null;
-        requestDetailsArea.setText("");
-        resultTextArea.setText("");
-        submitResultBtn.setEnabled(false);
+        requestsTable.clearSelection();
+        clearDetails();
+        if (busy) {
+            reloadQueued = true;
+            return;
+        }
+        busy = true;
         
-        try {
-            List<TestRequest> requests = labDAO.getLabRequests("Pending");
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-            
-            for (TestRequest request : requests) {
-                tableModel.addRow(new Object[]{
-                    request.getRequestId(),
-                    request.getPatientName(),
-                    request.getDoctorName(),
-                    request.getTestName(),
-                    request.getRequestDate() != null ? dateFormat.format(request.getRequestDate()) : "N/A"
-                });
+        AsyncDAO.load(() -> {
+            changeCursor.reset();
+            return labDAO.getLabRequests("Pending");
+        }, requests -> {
+            loaded = true;
+            if (!finishLoad()) {
+                worklist.setRequests(requests);
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
-            JOptionPane.showMessageDialog(this, 
-                "Error loading pending requests: " + e.getMessage(),
-                "Database Error", JOptionPane.ERROR_MESSAGE);
+            if (!finishLoad()) {
+                JOptionPane.showMessageDialog(this, 
+                    "Error loading pending requests: " + e.getMessage(),
+                    "Database Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+    }
+
+    /**
+     * Re-reads only the requests changed since the last load or poll and
+     * moves just their rows.
+     */
+    private void pollChanges() {
+        if (busy || !loaded || !isShowing()) {
+            return;
+        }
+        busy = true;
+        AsyncDAO.load(() -> {
+            ChangeLog.Changes changes = changeCursor.poll();
+            if (changes.isFullReload()) {
+                return null; // reload everything
+            }
+            return new PolledChanges(changes, labDAO.getLabRequestsByIds(changes.getUpserted()));
+        }, polled -> {
+            if (finishLoad()) {
+                return;
+            }
+            if (polled == null) {
+                refreshData();
+                return;
+            }
+            worklist.applyChanges(polled.requests, polled.changes.getDeleted());
+            worklist.refreshWaitingTimes();
+        }, e -> {
+            finishLoad();
+            e.printStackTrace();
+        });
+    }
+
+    // Returns true if a reload was asked for meanwhile and has now started
+    private boolean finishLoad() {
+        busy = false;
+        if (reloadQueued) {
+            reloadQueued = false;
+            refreshData();
+            return true;
         }
+        return false;
+    }
+
+    private void clearDetails() {
+        selectedRequest = null;
+        loadingRequestId = 0;
+        requestDetailsArea.setText("");
+        resultTextArea.setText("");
+        submitResultBtn.setEnabled(false);
     }
 
     private void loadTestDetails(int requestId) {
-        try {
-            selectedRequest = labDAO.getRequestDetails(requestId);
+        // No result can be submitted until the newly selected request has loaded
+        selectedRequest = null;
+        submitResultBtn.setEnabled(false);
+        loadingRequestId = requestId;
+        
+        AsyncDAO.load(() -> labDAO.getRequestDetails(requestId), request -> {
+            // A later selection has already replaced this one
+            if (requestId != loadingRequestId) return;
+            selectedRequest = request;
             
             if (selectedRequest != null) {
                 SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
@@ -189,6 +285,9 @@ public class PendingRequestsPanel extends JPanel {
                 details.append("Patient: ").append(selectedRequest.getPatientName()).append("\n");
                 details.append("Doctor: ").append(selectedRequest.getDoctorName()).append("\n");
                 details.append("Test: ").append(selectedRequest.getTestName()).append("\n");
+                details.append("Priority: ").append(
+                    selectedRequest.getPriority() != null ? selectedRequest.getPriority() : Constants.LAB_PRIORITY_ROUTINE
+                ).append("\n");
                 details.append("Requested On: ").append(
                     selectedRequest.getRequestDate() != null ? 
                     dateFormat.format(selectedRequest.getRequestDate()) : "N/A"
@@ -204,13 +303,12 @@ public class PendingRequestsPanel extends JPanel {
                 resultTextArea.setText("");
                 resultTextArea.requestFocus();
             }
-            
-        } catch (SQLException e) {
+        }, e -> {
             e.printStackTrace();
             JOptionPane.showMessageDialog(this, 
                 "Error loading test details: " + e.getMessage(),
                 "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }
 
     private void handleSubmitResult() {
@@ -250,12 +348,15 @@ public class PendingRequestsPanel extends JPanel {
                     "Result submitted successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
                 
-                // Clear selection and refresh
-                refreshData();
+                // The completed request leaves the list with the next poll
+                requestsTable.clearSelection();
+                clearDetails();
+                pollChanges();
             } else {
                 JOptionPane.showMessageDialog(this, 
-                    "Failed to submit result. Please try again.",
+                    "The result was not saved: this test has already been completed.",
                     "Error", JOptionPane.ERROR_MESSAGE);
+                pollChanges();
             }
             
         } catch (SQLException e) {
@@ -265,4 +366,43 @@ public class PendingRequestsPanel extends JPanel {
                 "Database Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private void openBatchEntry() {
+        if (worklist.isEmpty()) {
+            JOptionPane.showMessageDialog(this, 
+                "There are no pending test requests.",
+                "Batch Result Entry", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        new BatchResultDialog(SwingUtilities.getWindowAncestor(this), labDAO, worklist.getRequests())
+            .setVisible(true);
+        // Completed requests leave the list with the next poll
+        pollChanges();
+    }
+
+    private static class PolledChanges {
+        final ChangeLog.Changes changes;
+        final List<TestRequest> requests;
+
+        PolledChanges(ChangeLog.Changes changes, List<TestRequest> requests) {
+            this.changes = changes;
+            this.requests = requests;
+        }
+    }
+
+    // STAT in red and urgent in orange, so they stand out at a glance
+    private static class PriorityRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                       boolean hasFocus, int row, int column) {
+            Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            int rank = LabWorklistModel.priorityRank((String) value);
+            c.setFont(c.getFont().deriveFont(rank < 2 ? Font.BOLD : Font.PLAIN));
+            if (!isSelected) {
+                c.setForeground(rank == 0 ? Constants.DANGER_COLOR
+                        : rank == 1 ? new Color(230, 126, 34) : table.getForeground());
+            }
+            return c;
+        }
+    }
 }
@@ -0,0 +1,114 @@
+package hospital.views.laboratory;
+
+import hospital.dao.AsyncDAO;
+import hospital.services.LabTurnaroundService;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Panel showing how long tests take from request to result: the median,
+ * 90th and 99th percentile for the whole lab, per test and per hour of the
+ * day the test was ordered. Reopening the panel or pressing Refresh adds
+ * the results submitted since, without re-reading the history.
+ */
+public class TurnaroundPanel extends JPanel {
+    private static final String[] COLUMNS = {"", "Tests", "Median", "90th %", "99th %"};
+
+    private DefaultTableModel byTestModel;
+    private DefaultTableModel byHourModel;
+    private JLabel overallLabel;
+    private JButton refreshBtn;
+
+    public TurnaroundPanel() {
+        initializeComponents();
+        setupLayout();
+    }
+
+    private void initializeComponents() {
+        setLayout(new BorderLayout(10, 10));
+        setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        byTestModel = createModel("Test");
+        byHourModel = createModel("Hour Requested");
+
+        overallLabel = new JLabel("Loading turnaround times...");
+        overallLabel.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+
+        refreshBtn = new JButton("Refresh");
+        refreshBtn.addActionListener(e -> refreshData());
+    }
+
+    private static DefaultTableModel createModel(String firstColumn) {
+        String[] cols = COLUMNS.clone();
+        cols[0] = firstColumn;
+        return new DefaultTableModel(cols, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+    }
+
+    private void setupLayout() {
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(overallLabel, BorderLayout.WEST);
+        topPanel.add(refreshBtn, BorderLayout.EAST);
+
+        JTable byTestTable = new JTable(byTestModel);
+        byTestTable.setRowHeight(25);
+        JScrollPane byTestScroll = new JScrollPane(byTestTable);
+        byTestScroll.setBorder(BorderFactory.createTitledBorder("By Test"));
+
+        JTable byHourTable = new JTable(byHourModel);
+        byHourTable.setRowHeight(25);
+        JScrollPane byHourScroll = new JScrollPane(byHourTable);
+        byHourScroll.setBorder(BorderFactory.createTitledBorder("By Hour Requested"));
+
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, byTestScroll, byHourScroll);
+        split.setResizeWeight(0.5);
+
+        add(topPanel, BorderLayout.NORTH);
+        add(split, BorderLayout.CENTER);
+    }
+
+    /**
+     * Refresh the figures; the first load reads the history, later ones only what changed.
+     */
+    public void refreshData() {
+        refreshBtn.setEnabled(false);
+        AsyncDAO.load(() -> LabTurnaroundService.getInstance().getSnapshot(), snapshot -> {
+            refreshBtn.setEnabled(true);
+            LabTurnaroundService.Row overall = snapshot.getOverall();
+            overallLabel.setText(String.format("All tests: %d completed   Median %s   90th %% %s   99th %% %s",
+                overall.getCount(),
+                LabTurnaroundService.formatMinutes(overall.getP50()),
+                LabTurnaroundService.formatMinutes(overall.getP90()),
+                LabTurnaroundService.formatMinutes(overall.getP99())));
+            fill(byTestModel, snapshot.getByTest());
+            fill(byHourModel, snapshot.getByHour());
+        }, e -> {
+            e.printStackTrace();
+            refreshBtn.setEnabled(true);
+            overallLabel.setText("Turnaround times could not be loaded.");
+            JOptionPane.showMessageDialog(this,
+                "Error loading turnaround times: " + e.getMessage(),
+                "Database Error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    private static void fill(DefaultTableModel model, List<LabTurnaroundService.Row> rows) {
+        model.setRowCount(0);
+        for (LabTurnaroundService.Row row : rows) {
+            model.addRow(new Object[]{
+                row.getLabel(),
+                row.getCount(),
+                LabTurnaroundService.formatMinutes(row.getP50()),
+                LabTurnaroundService.formatMinutes(row.getP90()),
+                LabTurnaroundService.formatMinutes(row.getP99())
+            });
+        }
+    }
+}
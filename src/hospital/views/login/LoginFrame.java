@@ -2,6 +2,7 @@ package hospital.views.login;
 
 import hospital.controllers.LoginController;
 import hospital.models.User;
+import hospital.services.WarmUpService;
 import hospital.utils.Constants;
 import hospital.views.admin.AdminDashboard;
 import hospital.views.doctor.DoctorDashboard;
@@ -14,8 +15,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
 
 public class LoginFrame extends JFrame {
+    // Longest the dashboard waits for the warm-up before opening anyway
+    private static final long WARM_UP_TIMEOUT_SECONDS = 5;
+
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JButton loginButton;
@@ -134,8 +139,12 @@ public class LoginFrame extends JFrame {
         // Show loading
         loginButton.setEnabled(false);
         loginButton.setText("Logging in...");
+        statusLabel.setForeground(Color.RED);
         statusLabel.setText(" ");
 
+        // Connections open while the credentials are checked
+        WarmUpService.primePool();
+
         // Perform login in background thread
         SwingWorker<User, Void> loginWorker = new SwingWorker<User, Void>() {
             @Override
@@ -151,8 +160,7 @@ public class LoginFrame extends JFrame {
                 try {
                     User user = get();
                     if (user != null) {
-                        openDashboard(user);
-                        dispose();
+                        warmUpAndOpen(user);
                     } else {
                         statusLabel.setText("Invalid username or password");
                         passwordField.setText("");
@@ -167,6 +175,24 @@ public class LoginFrame extends JFrame {
         loginWorker.execute();
     }
 
+    /**
+     * Loads the role's reference data with progress shown on this screen,
+     * then opens the dashboard.
+     */
+    private void warmUpAndOpen(User user) {
+        loginButton.setEnabled(false);
+        loginButton.setText("Preparing workspace...");
+        statusLabel.setForeground(Color.DARK_GRAY);
+
+        WarmUpService.start(user, (step, done, total) -> SwingUtilities.invokeLater(() ->
+                statusLabel.setText(String.format("Loaded %s (%d of %d)", step.toLowerCase(), done, total))))
+            .completeOnTimeout(null, WARM_UP_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                openDashboard(user);
+                dispose();
+            }));
+    }
+
     private void openDashboard(User user) {
         SwingUtilities.invokeLater(() -> {
             String role = user.getRole().toUpperCase().trim(); // Normalize role for comparison
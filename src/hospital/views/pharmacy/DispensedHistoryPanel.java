@@ -10,7 +10,10 @@ import javax.swing.table.*;
 import java.awt.*;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class DispensedHistoryPanel extends JPanel {
     private User currentUser;
@@ -97,6 +100,8 @@ public class DispensedHistoryPanel extends JPanel {
 
     private void displayHistory(List<Prescription> prescriptions) {
         tableModel.setRowCount(0);
+        // Prices for every row in one lookup rather than one per medicine
+        Map<String, Medicine> inventory = lookUpMedicines(prescriptions);
 
         // Group by record_id
         java.util.Map<Integer, java.util.List<Prescription>> groupedPrescriptions = new java.util.HashMap<>();
@@ -121,13 +126,9 @@ public class DispensedHistoryPanel extends JPanel {
                     }
                     
                     // Calculate total
-                    try {
-                        Medicine med = inventoryDAO.getMedicineByName(p.getMedicineName());
-                        if (med != null) {
-                            total += med.getUnitPrice() * p.getQuantity();
-                        }
-                    } catch (SQLException e) {
-                        // Ignore
+                    Medicine med = inventory.get(p.getMedicineName());
+                    if (med != null) {
+                        total += med.getUnitPrice() * p.getQuantity();
                     }
                 }
 
@@ -184,23 +185,22 @@ public class DispensedHistoryPanel extends JPanel {
         details.append("───────────────────────────────────────────────\n\n");
 
         double total = 0.0;
+        Map<String, Medicine> medicines = lookUpMedicines(prescriptions);
         for (int i = 0; i < prescriptions.size(); i++) {
             Prescription p = prescriptions.get(i);
             details.append((i + 1)).append(". ").append(p.getMedicineName()).append("\n");
             
-            try {
-                Medicine medicine = inventoryDAO.getMedicineByName(p.getMedicineName());
-                if (medicine != null) {
-                    int quantity = p.getQuantity();
-                    double price = medicine.getUnitPrice();
-                    double itemTotal = price * quantity;
-                    total += itemTotal;
-                    
-                    details.append("   Quantity: ").append(quantity).append(" units\n");
-                    details.append("   Unit Price: ₹").append(String.format("%.2f", price)).append("\n");
-                    details.append("   Subtotal: ₹").append(String.format("%.2f", itemTotal)).append("\n");
-                }
-            } catch (SQLException e) {
+            Medicine medicine = medicines.get(p.getMedicineName());
+            if (medicine != null) {
+                int quantity = p.getQuantity();
+                double price = medicine.getUnitPrice();
+                double itemTotal = price * quantity;
+                total += itemTotal;
+                
+                details.append("   Quantity: ").append(quantity).append(" units\n");
+                details.append("   Unit Price: ₹").append(String.format("%.2f", price)).append("\n");
+                details.append("   Subtotal: ₹").append(String.format("%.2f", itemTotal)).append("\n");
+            } else {
                 details.append("   Price: N/A\n");
             }
             
@@ -215,4 +215,18 @@ public class DispensedHistoryPanel extends JPanel {
         detailsArea.setText(details.toString());
         detailsArea.setCaretPosition(0);
     }
-}
\ No newline at end of file
+
+    // Missing prices show as N/A, as before, if the lookup fails
+    private Map<String, Medicine> lookUpMedicines(List<Prescription> prescriptions) {
+        List<String> names = new ArrayList<>();
+        for (Prescription p : prescriptions) {
+            names.add(p.getMedicineName());
+        }
+        try {
+            return inventoryDAO.getMedicinesByNames(names);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+}
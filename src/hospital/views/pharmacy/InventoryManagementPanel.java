@@ -3,6 +3,7 @@ package hospital.views.pharmacy;
 import hospital.dao.*;
 import hospital.models.*;
 import hospital.utils.Constants;
+import hospital.views.common.LazyTableModel;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.table.*;
@@ -17,7 +18,7 @@ public class InventoryManagementPanel extends JPanel {
     private InventoryDAO inventoryDAO;
 
     private JTable inventoryTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Medicine> tableModel;
     private Medicine selectedMedicine;
 
     public InventoryManagementPanel(User user) {
@@ -43,12 +44,10 @@ public class InventoryManagementPanel extends JPanel {
         // Table
         String[] columns = { "ID", "Medicine Name", "Generic", "Category", "Stock", "Min Level", 
                            "Unit Price", "Expiry Date", "Status" };
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<>(columns, this::toRow);
+        tableModel.setErrorHandler(e -> JOptionPane.showMessageDialog(this, 
+                "Error loading inventory: " + e.getMessage(),
+                "Error", JOptionPane.ERROR_MESSAGE));
         
         inventoryTable = new JTable(tableModel);
         inventoryTable.setRowHeight(28);
@@ -142,34 +141,23 @@ public class InventoryManagementPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
 
+    // Pages are fetched in the background as the table scrolls
     public void refreshData() {
-        try {
-            List<Medicine> medicines = inventoryDAO.getAllMedicines();
-            displayInventory(medicines);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, 
-                "Error loading inventory: " + e.getMessage(),
-                "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        tableModel.load(inventoryDAO::getMedicinesPage);
     }
 
-    private void displayInventory(List<Medicine> medicines) {
-        tableModel.setRowCount(0);
-        for (Medicine medicine : medicines) {
-            String status = getStatus(medicine);
-            Object[] row = {
-                medicine.getMedicineId(),
-                medicine.getName(),
-                medicine.getGenericName(),
-                medicine.getCategory(),
-                medicine.getStockQuantity(),
-                medicine.getMinimumStockLevel(),
-                String.format("₹%.2f", medicine.getUnitPrice()),
-                medicine.getExpiryDate() != null ? medicine.getExpiryDate().toString() : "N/A",
-                status
-            };
-            tableModel.addRow(row);
-        }
+    private Object[] toRow(Medicine medicine) {
+        return new Object[] {
+            medicine.getMedicineId(),
+            medicine.getName(),
+            medicine.getGenericName(),
+            medicine.getCategory(),
+            medicine.getStockQuantity(),
+            medicine.getMinimumStockLevel(),
+            String.format("₹%.2f", medicine.getUnitPrice()),
+            medicine.getExpiryDate() != null ? medicine.getExpiryDate().toString() : "N/A",
+            getStatus(medicine)
+        };
     }
     
     private String getStatus(Medicine medicine) {
@@ -186,9 +174,9 @@ public class InventoryManagementPanel extends JPanel {
     
     private void selectMedicine() {
         int selectedRow = inventoryTable.getSelectedRow();
-        if (selectedRow >= 0) {
+        if (selectedRow >= 0 && tableModel.getRow(selectedRow) != null) {
             try {
-                int medicineId = (Integer) tableModel.getValueAt(selectedRow, 0);
+                int medicineId = tableModel.getRow(selectedRow).getMedicineId();
                 selectedMedicine = inventoryDAO.getMedicineById(medicineId);
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
@@ -4,6 +4,7 @@ import hospital.dao.*;
 import hospital.models.*;
 import hospital.utils.Constants;
 import hospital.views.common.BaseFrame;
+import hospital.views.common.LazyCardPanel;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.table.*;
@@ -14,7 +15,7 @@ import java.util.List;
 
 public class PharmacyDashboard extends BaseFrame {
     private User currentUser;
-    private JPanel contentPanel;
+    private LazyCardPanel contentPanel;
     private JPanel sidePanel;
 
     // Menu buttons
@@ -24,11 +25,6 @@ public class PharmacyDashboard extends BaseFrame {
     private JButton dispensedBtn;
     private JButton logoutBtn;
 
-    // Content panels
-    private PrescriptionDispensePanel prescriptionPanel;
-    private InventoryManagementPanel inventoryPanel;
-    private DispensedHistoryPanel dispensedPanel;
-
     public PharmacyDashboard(User user) {
         super("Pharmacy Dashboard - " + Constants.APP_NAME);
         this.currentUser = user;
@@ -50,7 +46,7 @@ public class PharmacyDashboard extends BaseFrame {
         sidePanel.setLayout(new BoxLayout(sidePanel, BoxLayout.Y_AXIS));
 
         // Content panel
-        contentPanel = new JPanel(new CardLayout());
+        contentPanel = new LazyCardPanel();
         contentPanel.setBackground(Constants.BACKGROUND_COLOR);
 
         // Create menu buttons
@@ -60,10 +56,13 @@ public class PharmacyDashboard extends BaseFrame {
         dispensedBtn = createMenuButton("Dispensed History", "dispensed");
         logoutBtn = createMenuButton("Logout", "logout");
 
-        // Create panels
-        prescriptionPanel = new PrescriptionDispensePanel(currentUser);
-        inventoryPanel = new InventoryManagementPanel(currentUser);
-        dispensedPanel = new DispensedHistoryPanel(currentUser);
+        // Register panels; each is built the first time it is shown
+        contentPanel.register("prescriptions", () -> new PrescriptionDispensePanel(currentUser),
+                PrescriptionDispensePanel::refreshData);
+        contentPanel.register("inventory", () -> new InventoryManagementPanel(currentUser),
+                InventoryManagementPanel::refreshData);
+        contentPanel.register("dispensed", () -> new DispensedHistoryPanel(currentUser),
+                DispensedHistoryPanel::refreshData);
     }
 
     @Override
@@ -71,11 +70,6 @@ public class PharmacyDashboard extends BaseFrame {
         setLayout(new BorderLayout());
         setupSidePanel();
 
-        // Add panels to card layout
-        contentPanel.add(prescriptionPanel, "prescriptions");
-        contentPanel.add(inventoryPanel, "inventory");
-        contentPanel.add(dispensedPanel, "dispensed");
-
         add(sidePanel, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
     }
@@ -153,21 +147,16 @@ public class PharmacyDashboard extends BaseFrame {
     }
 
     private void showPrescriptions() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "prescriptions");
-        prescriptionPanel.refreshData();
+        contentPanel.show("prescriptions");
+        contentPanel.prefetch("inventory");
     }
 
     private void showInventory() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "inventory");
-        inventoryPanel.refreshData();
+        contentPanel.show("inventory");
     }
 
     private void showDispensed() {
-        CardLayout cardLayout = (CardLayout) contentPanel.getLayout();
-        cardLayout.show(contentPanel, "dispensed");
-        dispensedPanel.refreshData();
+        contentPanel.show("dispensed");
     }
 
     private void handleLogout() {
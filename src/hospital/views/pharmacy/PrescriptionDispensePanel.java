@@ -1,40 +1,72 @@
 package hospital.views.pharmacy;
 
+import hospital.controllers.SearchController;
 import hospital.dao.*;
 import hospital.models.*;
+import hospital.services.DispenseService;
 import javax.swing.*;
 import javax.swing.border.*;
 import javax.swing.table.*;
 import java.awt.*;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 class PrescriptionDispensePanel extends JPanel {
     private User currentUser;
     private PrescriptionDAO prescriptionDAO;
     private InventoryDAO inventoryDAO;
-    private BillDAO billDAO; // Add BillDAO
+    private DispenseService dispenseService;
 
     private JTable prescriptionTable;
     private DefaultTableModel tableModel;
     private JTextArea detailsArea;
     private JTextField searchField;
+    private SearchController<Prescription> prescriptionSearch;
     private JLabel totalBillLabel;
 
     private List<Prescription> currentPrescriptions;
     private double totalBill = 0.0;
 
+    // Prescriptions written or dispensed at other workstations are picked
+    // up from the change log instead of reloading the whole day's list
+    private static final int POLL_INTERVAL_MS = 5000;
+    private final ChangeCursor changeCursor = new ChangeCursor(ChangeLog.PRESCRIPTIONS);
+    private Timer pollTimer;
+    // One load or poll runs at a time, so deltas always apply to the list they follow
+    private boolean busy;
+    private boolean reloadQueued;
+    private LocalDate loadedDate;
+
     public PrescriptionDispensePanel(User user) {
         this.currentUser = user;
         this.prescriptionDAO = new PrescriptionDAO();
         this.inventoryDAO = new InventoryDAO();
-        this.billDAO = new BillDAO(); // Initialize BillDAO
+        this.dispenseService = new DispenseService();
 
         setLayout(new BorderLayout(10, 10));
         setBorder(new EmptyBorder(15, 15, 15, 15));
         initializeComponents();
         refreshData();
+
+        pollTimer = new Timer(POLL_INTERVAL_MS, e -> pollChanges());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        pollTimer.start();
+    }
+
+    // Stops polling once the dashboard is closed
+    @Override
+    public void removeNotify() {
+        pollTimer.stop();
+        super.removeNotify();
     }
 
     private void initializeComponents() {
@@ -50,8 +82,29 @@ class PrescriptionDispensePanel extends JPanel {
         searchField = new JTextField(20);
         searchPanel.add(searchField);
 
+        // Today's list is fetched once per search; longer names filter it locally
+        prescriptionSearch = new SearchController<>(searchField, SearchController.DEFAULT_DELAY_MILLIS,
+                this::findPrescriptions, new SearchController.ResultHandler<Prescription>() {
+            @Override
+            public void onResults(String term, List<Prescription> prescriptions) {
+                displayPrescriptions(prescriptions);
+            }
+
+            @Override
+            public void onError(String term, Exception e) {
+                JOptionPane.showMessageDialog(PrescriptionDispensePanel.this, "Error searching: " + e.getMessage());
+            }
+
+            @Override
+            public void onCleared() {
+                refreshData();
+            }
+        });
+        prescriptionSearch.searchWhileTyping()
+                .setNarrower((prefix, results, term) -> filterByPatient(results, term), Integer.MAX_VALUE);
+
         JButton searchBtn = new JButton("Search");
-        searchBtn.addActionListener(e -> searchPrescriptions());
+        searchBtn.addActionListener(e -> prescriptionSearch.searchNow());
         searchPanel.add(searchBtn);
 
         JButton refreshBtn = new JButton("Refresh");
@@ -136,13 +189,78 @@ class PrescriptionDispensePanel extends JPanel {
     }
 
     public void refreshData() {
-        try {
-            List<Prescription> prescriptions = prescriptionDAO.getTodaysPrescriptions();
-            displayPrescriptions(prescriptions);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading prescriptions: " + e.getMessage());
-            e.printStackTrace();
+        // Drop any search still running and results cached before this change
+        prescriptionSearch.cancel();
+        prescriptionSearch.invalidate();
+        if (busy) {
+            reloadQueued = true;
+            return;
+        }
+        busy = true;
+        AsyncDAO.load(() -> {
+            changeCursor.reset();
+            return prescriptionDAO.getTodaysPrescriptions();
+        }, prescriptions -> {
+            loadedDate = LocalDate.now();
+            if (!finishLoad() && !isSearching()) {
+                displayPrescriptions(prescriptions);
+            }
+        }, error -> {
+            if (!finishLoad()) {
+                JOptionPane.showMessageDialog(this, "Error loading prescriptions: " + error.getMessage());
+            }
+            error.printStackTrace();
+        });
+    }
+
+    /**
+     * Re-reads the records whose prescriptions changed since the last load
+     * or poll and updates just their rows. Skipped while a search is shown;
+     * clearing the search reloads the list.
+     */
+    private void pollChanges() {
+        if (busy || loadedDate == null || !isShowing() || isSearching()) {
+            return;
+        }
+        if (!LocalDate.now().equals(loadedDate)) {
+            refreshData();
+            return;
+        }
+        busy = true;
+        AsyncDAO.load(() -> {
+            ChangeLog.Changes changes = changeCursor.poll();
+            if (changes.isFullReload() || !changes.getDeleted().isEmpty()) {
+                return null; // reload everything
+            }
+            return prescriptionDAO.getTodaysPrescriptionsForRecordsOf(changes.getUpserted());
+        }, changed -> {
+            if (finishLoad() || isSearching()) {
+                return;
+            }
+            if (changed == null) {
+                refreshData();
+            } else if (!changed.isEmpty()) {
+                applyChanges(changed);
+            }
+        }, error -> {
+            finishLoad();
+            error.printStackTrace();
+        });
+    }
+
+    // Returns true if a reload was asked for meanwhile and has now started
+    private boolean finishLoad() {
+        busy = false;
+        if (reloadQueued) {
+            reloadQueued = false;
+            refreshData();
+            return true;
         }
+        return false;
+    }
+
+    private boolean isSearching() {
+        return !searchField.getText().trim().isEmpty();
     }
 
     /**
@@ -151,40 +269,97 @@ class PrescriptionDispensePanel extends JPanel {
     private void displayPrescriptions(List<Prescription> prescriptions) {
         tableModel.setRowCount(0);
 
-        // Group by record_id and filter only Pending
-        java.util.Map<Integer, java.util.List<Prescription>> groupedPrescriptions = new java.util.HashMap<>();
-        for (Prescription p : prescriptions) {
-            // Only show pending prescriptions
-            if ("Pending".equalsIgnoreCase(p.getStatus())) {
-                groupedPrescriptions.computeIfAbsent(p.getRecordId(), k -> new java.util.ArrayList<>()).add(p);
+        // Group by record_id and keep only Pending, newest record first
+        for (Map.Entry<Integer, List<Prescription>> entry : groupPending(prescriptions).entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                tableModel.addRow(toRow(entry.getValue()));
             }
         }
+    }
+
+    /**
+     * Replaces the rows of the records in changed, which holds every
+     * prescription of those records: records with nothing left pending are
+     * removed and new ones are added at the top.
+     */
+    private void applyChanges(List<Prescription> changed) {
+        Map<Integer, List<Prescription>> pending = groupPending(changed);
+        Integer selectedRecord = null;
+        int selectedRow = prescriptionTable.getSelectedRow();
+        if (selectedRow >= 0) {
+            selectedRecord = (Integer) tableModel.getValueAt(selectedRow, 0);
+        }
 
-        for (java.util.Map.Entry<Integer, java.util.List<Prescription>> entry : groupedPrescriptions.entrySet()) {
+        int inserted = 0;
+        for (Prescription p : changed) {
+            int recordId = p.getRecordId();
+            if (!pending.containsKey(recordId)) {
+                pending.put(recordId, new ArrayList<>());
+            }
+        }
+        for (Map.Entry<Integer, List<Prescription>> entry : pending.entrySet()) {
+            int row = findRow(entry.getKey());
             List<Prescription> recordPrescriptions = entry.getValue();
-            if (!recordPrescriptions.isEmpty()) {
-                Prescription first = recordPrescriptions.get(0);
-
-                StringBuilder medicines = new StringBuilder();
-                for (int i = 0; i < recordPrescriptions.size(); i++) {
-                    String medName = recordPrescriptions.get(i).getMedicineName();
-                    medicines.append(medName != null ? medName : "Unknown");
-                    if (i < recordPrescriptions.size() - 1)
-                        medicines.append(", ");
+            if (recordPrescriptions.isEmpty()) {
+                if (row >= 0) {
+                    tableModel.removeRow(row);
+                }
+            } else if (row >= 0) {
+                Object[] values = toRow(recordPrescriptions);
+                for (int column = 0; column < values.length; column++) {
+                    tableModel.setValueAt(values[column], row, column);
                 }
+            } else {
+                tableModel.insertRow(inserted++, toRow(recordPrescriptions));
+            }
+        }
+
+        // The selected record's details may have changed with it
+        if (selectedRecord != null && !pending.getOrDefault(selectedRecord, new ArrayList<>()).isEmpty()) {
+            loadPrescriptionDetails();
+        }
+    }
 
-                Object[] row = {
-                    first.getRecordId(),
-                    first.getPatientName() != null ? first.getPatientName() : "N/A",
-                    first.getDoctorName() != null ? first.getDoctorName() : "N/A",
-                    medicines.toString(),
-                    first.getCreatedAt() != null ? 
-                        first.getCreatedAt().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A",
-                    first.getStatus()
-                };
-                tableModel.addRow(row);
+    private int findRow(int recordId) {
+        for (int row = 0; row < tableModel.getRowCount(); row++) {
+            if ((Integer) tableModel.getValueAt(row, 0) == recordId) {
+                return row;
             }
         }
+        return -1;
+    }
+
+    // In the order given, which is newest first
+    private static Map<Integer, List<Prescription>> groupPending(List<Prescription> prescriptions) {
+        Map<Integer, List<Prescription>> grouped = new LinkedHashMap<>();
+        for (Prescription p : prescriptions) {
+            if ("Pending".equalsIgnoreCase(p.getStatus())) {
+                grouped.computeIfAbsent(p.getRecordId(), k -> new ArrayList<>()).add(p);
+            }
+        }
+        return grouped;
+    }
+
+    private static Object[] toRow(List<Prescription> recordPrescriptions) {
+        Prescription first = recordPrescriptions.get(0);
+
+        StringBuilder medicines = new StringBuilder();
+        for (int i = 0; i < recordPrescriptions.size(); i++) {
+            String medName = recordPrescriptions.get(i).getMedicineName();
+            medicines.append(medName != null ? medName : "Unknown");
+            if (i < recordPrescriptions.size() - 1)
+                medicines.append(", ");
+        }
+
+        return new Object[] {
+            first.getRecordId(),
+            first.getPatientName() != null ? first.getPatientName() : "N/A",
+            first.getDoctorName() != null ? first.getDoctorName() : "N/A",
+            medicines.toString(),
+            first.getCreatedAt() != null ?
+                first.getCreatedAt().format(DateTimeFormatter.ofPattern("HH:mm")) : "N/A",
+            first.getStatus()
+        };
     }
 
     private void loadPrescriptionDetails() {
@@ -235,14 +410,18 @@ class PrescriptionDispensePanel extends JPanel {
         details.append("                            MEDICINES & BILLING:\n");
         details.append("──────────────────────────────────────────────────────────────────────────────────────────────\n\n");
 
+        Map<String, Medicine> medicines = lookUpMedicines(prescriptions);
+
         for (int i = 0; i < prescriptions.size(); i++) {
             Prescription p = prescriptions.get(i);
             String medName = p.getMedicineName();
 
             details.append((i + 1)).append(". ").append(medName).append("\n");
 
-            try {
-                Medicine medicine = inventoryDAO.getMedicineByName(medName);
+            if (medicines == null) {
+                details.append("   ⚠ Error fetching price\n");
+            } else {
+                Medicine medicine = medicines.get(medName);
                 if (medicine != null) {
                     int quantity = p.getQuantity();
                     double price = medicine.getUnitPrice();
@@ -263,8 +442,6 @@ class PrescriptionDispensePanel extends JPanel {
                 } else {
                     details.append("   ⚠ Medicine not found in inventory\n");
                 }
-            } catch (SQLException e) {
-                details.append("   ⚠ Error fetching price\n");
             }
 
             details.append("   Frequency: ").append(p.getFrequency()).append("\n");
@@ -291,25 +468,28 @@ class PrescriptionDispensePanel extends JPanel {
             return;
         }
 
-        // Check stock
+        // Check stock; the same lookups are used for the bill and the stock update
+        Map<String, Medicine> medicines = lookUpMedicines(currentPrescriptions);
+        if (medicines == null) {
+            JOptionPane.showMessageDialog(this, "Could not load medicine prices. Please try again.",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         StringBuilder stockWarnings = new StringBuilder();
         boolean hasStockIssues = false;
 
         for (Prescription p : currentPrescriptions) {
-            try {
-                Medicine medicine = inventoryDAO.getMedicineByName(p.getMedicineName());
-                if (medicine != null) {
-                    int quantity = p.getQuantity();
-                    if (medicine.getStockQuantity() < quantity) {
-                        hasStockIssues = true;
-                        stockWarnings.append("- ").append(p.getMedicineName())
-                                .append(" (Need: ").append(quantity)
-                                .append(", Available: ").append(medicine.getStockQuantity())
-                                .append(")\n");
-                    }
+            Medicine medicine = medicines.get(p.getMedicineName());
+            if (medicine != null) {
+                int quantity = p.getQuantity();
+                if (medicine.getStockQuantity() < quantity) {
+                    hasStockIssues = true;
+                    stockWarnings.append("- ").append(p.getMedicineName())
+                            .append(" (Need: ").append(quantity)
+                            .append(", Available: ").append(medicine.getStockQuantity())
+                            .append(")\n");
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
             }
         }
 
@@ -336,52 +516,12 @@ class PrescriptionDispensePanel extends JPanel {
                 int patientId = getPatientIdFromRecord(currentPrescriptions.get(0).getRecordId());
                 int recordId = currentPrescriptions.get(0).getRecordId();
 
-                // 1. Create bill in database
-                Bill bill = new Bill();
-                bill.setPatientId(patientId);
-                bill.setRecordId(recordId);
-                bill.setTotalAmount(totalBill);
-                bill.setStatus("PAID");
-                bill.setPaymentMethod("CASH");
-                bill.setCreatedBy(currentUser.getUserId());
-                
-                Bill savedBill = billDAO.createBill(bill);
-
-                // 2. Create bill items
-                for (Prescription p : currentPrescriptions) {
-                    Medicine medicine = inventoryDAO.getMedicineByName(p.getMedicineName());
-                    if (medicine != null) {
-                        int quantity = p.getQuantity();
-                        double price = medicine.getUnitPrice();
-                        double itemTotal = price * quantity;
-
-                        BillItem billItem = new BillItem();
-                        billItem.setBillId(savedBill.getBillId());
-                        billItem.setItemType("Medicine");
-                        billItem.setItemName(p.getMedicineName());
-                        billItem.setQuantity(quantity);
-                        billItem.setUnitPrice(price);
-                        billItem.setTotalPrice(itemTotal);
-                        
-                        billDAO.createBillItem(billItem);
-                    }
-                }
-
-                // 3. Update stock
-                for (Prescription p : currentPrescriptions) {
-                    Medicine medicine = inventoryDAO.getMedicineByName(p.getMedicineName());
-                    if (medicine != null) {
-                        int quantity = p.getQuantity();
-                        int newStock = Math.max(0, medicine.getStockQuantity() - quantity);
-                        inventoryDAO.updateMedicineStock(medicine.getMedicineId(), newStock);
-                    }
-                }
-
-                // 4. Mark prescription as dispensed
-                prescriptionDAO.markAsDispensed(recordId, currentUser.getUserId());
+                // Bill, bill items, stock and status in one transaction
+                dispenseService.dispense(recordId, patientId, currentUser.getUserId(),
+                        currentPrescriptions, medicines);
 
                 // Generate bill
-                String billText = generateBillText();
+                String billText = generateBillText(medicines);
 
                 JOptionPane.showMessageDialog(this,
                         String.format("✓ Prescription dispensed successfully!\n\nTotal: ₹%.2f\nStock updated.\nBill saved to database.",
@@ -399,7 +539,12 @@ class PrescriptionDispensePanel extends JPanel {
                     showPrintDialog(billText);
                 }
 
-                refreshData();
+                // The dispense is in the change log like anyone else's
+                if (isSearching()) {
+                    refreshData();
+                } else {
+                    pollChanges();
+                }
             } catch (SQLException e) {
                 JOptionPane.showMessageDialog(this,
                         "Error updating stock: " + e.getMessage(),
@@ -410,6 +555,23 @@ class PrescriptionDispensePanel extends JPanel {
         }
     }
 
+    /**
+     * The inventory entries for every medicine on the prescription, fetched
+     * together; null if they could not be loaded.
+     */
+    private Map<String, Medicine> lookUpMedicines(List<Prescription> prescriptions) {
+        List<String> names = new ArrayList<>();
+        for (Prescription p : prescriptions) {
+            names.add(p.getMedicineName());
+        }
+        try {
+            return inventoryDAO.getMedicinesByNames(names);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     /**
      * Get patient ID from medical record
      */
@@ -420,7 +582,7 @@ class PrescriptionDispensePanel extends JPanel {
         return record != null ? record.getPatientId() : 0;
     }
 
-    private String generateBillText() {
+    private String generateBillText(Map<String, Medicine> medicines) {
         StringBuilder bill = new StringBuilder();
         bill.append("\n");
         bill.append("══════════════════════════════════════════════════════════════════════════════════════════════\n");
@@ -446,31 +608,27 @@ class PrescriptionDispensePanel extends JPanel {
         double grandTotal = 0.0;
 
         for (Prescription p : currentPrescriptions) {
-            try {
-                Medicine medicine = inventoryDAO.getMedicineByName(p.getMedicineName());
-                if (medicine != null) {
-                    int quantity = p.getQuantity();
-                    double price = medicine.getUnitPrice();
-                    double itemTotal = price * quantity;
-                    grandTotal += itemTotal;
+            Medicine medicine = medicines.get(p.getMedicineName());
+            if (medicine != null) {
+                int quantity = p.getQuantity();
+                double price = medicine.getUnitPrice();
+                double itemTotal = price * quantity;
+                grandTotal += itemTotal;
 
-                    String medName = p.getMedicineName();
-                    if (medName.length() > 23)
-                        medName = medName.substring(0, 23);
+                String medName = p.getMedicineName();
+                if (medName.length() > 23)
+                    medName = medName.substring(0, 23);
 
-                    bill.append(String.format("%-25s %5d %9.2f ₹%9.2f\n",
-                            medName, quantity, price, itemTotal));
+                bill.append(String.format("%-25s %5d %9.2f ₹%9.2f\n",
+                        medName, quantity, price, itemTotal));
 
-                    bill.append(String.format("  Frequency: %s | Duration: %s\n",
-                            p.getFrequency(), p.getDuration()));
+                bill.append(String.format("  Frequency: %s | Duration: %s\n",
+                        p.getFrequency(), p.getDuration()));
 
-                    if (p.getInstructions() != null && !p.getInstructions().isEmpty()) {
-                        bill.append("  Instructions: ").append(p.getInstructions()).append("\n");
-                    }
-                    bill.append("\n");
+                if (p.getInstructions() != null && !p.getInstructions().isEmpty()) {
+                    bill.append("  Instructions: ").append(p.getInstructions()).append("\n");
                 }
-            } catch (SQLException e) {
-                bill.append(p.getMedicineName()).append(" - Error fetching price\n");
+                bill.append("\n");
             }
         }
 
@@ -522,31 +680,31 @@ class PrescriptionDispensePanel extends JPanel {
             return;
         }
 
-        String bill = generateBillText();
+        Map<String, Medicine> medicines = lookUpMedicines(currentPrescriptions);
+        if (medicines == null) {
+            JOptionPane.showMessageDialog(this, "Could not load medicine prices. Please try again.",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String bill = generateBillText(medicines);
         showPrintDialog(bill);
     }
 
-    private void searchPrescriptions() {
-        String searchText = searchField.getText().trim();
-        if (searchText.isEmpty()) {
-            refreshData();
-            return;
-        }
+    // Runs off the EDT for prescriptionSearch
+    private List<Prescription> findPrescriptions(String searchText) throws SQLException {
+        return filterByPatient(prescriptionDAO.getTodaysPrescriptions(), searchText);
+    }
 
-        try {
-            List<Prescription> allPrescriptions = prescriptionDAO.getTodaysPrescriptions();
-            List<Prescription> filtered = new java.util.ArrayList<>();
+    private static List<Prescription> filterByPatient(List<Prescription> prescriptions, String searchText) {
+        String needle = searchText.toLowerCase();
+        List<Prescription> filtered = new java.util.ArrayList<>();
 
-            for (Prescription p : allPrescriptions) {
-                if (p.getPatientName() != null &&
-                        p.getPatientName().toLowerCase().contains(searchText.toLowerCase())) {
-                    filtered.add(p);
-                }
+        for (Prescription p : prescriptions) {
+            if (p.getPatientName() != null &&
+                    p.getPatientName().toLowerCase().contains(needle)) {
+                filtered.add(p);
             }
-
-            displayPrescriptions(filtered);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error searching: " + e.getMessage());
         }
+        return filtered;
     }
 }
\ No newline at end of file
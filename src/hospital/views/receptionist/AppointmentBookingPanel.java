@@ -1,15 +1,18 @@
 package hospital.views.receptionist;
 
+import hospital.controllers.SearchController;
 import hospital.dao.AppointmentDAO;
+import hospital.dao.AsyncDAO;
 import hospital.dao.PatientDAO;
 import hospital.dao.DoctorDAO;
-import hospital.dao.DoctorScheduleDAO;
 import hospital.models.Appointment;
 import hospital.models.Patient;
 import hospital.models.Doctor;
-import hospital.models.DoctorSchedule;
 import hospital.models.User;
+import hospital.services.AppointmentBookingService;
+import hospital.services.BookingException;
 import hospital.utils.Constants;
+import hospital.views.common.AppointmentQueue;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
@@ -17,11 +20,13 @@ import java.sql.SQLException;
 import java.sql.Timestamp;  // ADD THIS IMPORT
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 class AppointmentBookingPanel extends JPanel {
     private User currentUser;
     private AppointmentDAO appointmentDAO;
+    private AppointmentBookingService bookingService;
     private PatientDAO patientDAO;
     private DoctorDAO doctorDAO;
 
@@ -35,24 +40,40 @@ class AppointmentBookingPanel extends JPanel {
 
     private JTable appointmentTable;
     private DefaultTableModel tableModel;
+    // Bookings made at other desks show up without reloading the whole day
+    private AppointmentQueue appointmentQueue;
 
     private JButton searchPatientBtn;
     private JButton bookAppointmentBtn;
     private JButton clearBtn;
 
     private Patient selectedPatient;
+    private SearchController<Patient> patientSearch;
     private List<Doctor> doctors;
 
     public AppointmentBookingPanel(User user) {
         this.currentUser = user;
         this.appointmentDAO = new AppointmentDAO();
+        this.bookingService = new AppointmentBookingService();
         this.patientDAO = new PatientDAO();
         this.doctorDAO = new DoctorDAO();
         initializeComponents();
         setupLayout();
         setupEventHandlers();
         loadDoctors();
-        loadTodaysAppointments();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        appointmentQueue.start();
+    }
+
+    // Stops polling once the dashboard is closed
+    @Override
+    public void removeNotify() {
+        appointmentQueue.stop();
+        super.removeNotify();
     }
 
     private void initializeComponents() {
@@ -98,6 +119,11 @@ class AppointmentBookingPanel extends JPanel {
 
         appointmentTable = new JTable(tableModel);
         appointmentTable.setRowHeight(28);
+
+        // show all today's appointments (not filtered by current user/doctor)
+        appointmentQueue = new AppointmentQueue(this, tableModel, appointmentDAO::getTodaysAppointments,
+                apt -> true, AppointmentBookingPanel::toRow,
+                e -> JOptionPane.showMessageDialog(this, "Error loading appointments: " + e.getMessage()));
     }
 
     private void setupLayout() {
@@ -190,7 +216,25 @@ class AppointmentBookingPanel extends JPanel {
     }
 
     private void setupEventHandlers() {
-        searchPatientBtn.addActionListener(e -> searchPatient());
+        patientSearch = new SearchController<>(patientSearchField, SearchController.DEFAULT_DELAY_MILLIS,
+                this::findPatients, new SearchController.ResultHandler<Patient>() {
+            @Override
+            public void onResults(String term, List<Patient> patients) {
+                selectPatient(patients);
+            }
+
+            @Override
+            public void onError(String term, Exception e) {
+                JOptionPane.showMessageDialog(AppointmentBookingPanel.this, "Error: " + e.getMessage());
+            }
+
+            @Override
+            public void onCleared() {
+                JOptionPane.showMessageDialog(AppointmentBookingPanel.this, "Enter Patient ID or Name!");
+            }
+        });
+        searchPatientBtn.addActionListener(e -> patientSearch.searchNow());
+        patientSearchField.addActionListener(e -> patientSearch.searchNow());
         bookAppointmentBtn.addActionListener(e -> bookAppointment());
         clearBtn.addActionListener(e -> clearFields());
 
@@ -210,41 +254,35 @@ class AppointmentBookingPanel extends JPanel {
         }
     }
 
-    private void searchPatient() {
-        String search = patientSearchField.getText().trim();
-        if (search.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Enter Patient ID or Name!");
-            return;
+    // Runs off the EDT for patientSearch
+    private List<Patient> findPatients(String search) throws SQLException {
+        // Try by ID first
+        try {
+            int patientId = Integer.parseInt(search);
+            Patient patient = patientDAO.getPatientById(patientId);
+            return patient != null ? Collections.singletonList(patient) : Collections.emptyList();
+        } catch (NumberFormatException e) {
+            // Search by name
+            return patientDAO.searchPatients(search);
         }
+    }
 
-        try {
-            // Try by ID first
-            try {
-                int patientId = Integer.parseInt(search);
-                selectedPatient = patientDAO.getPatientById(patientId);
-            } catch (NumberFormatException e) {
-                // Search by name
-                List<Patient> patients = patientDAO.searchPatients(search);
-                if (!patients.isEmpty()) {
-                    if (patients.size() == 1) {
-                        selectedPatient = patients.get(0);
-                    } else {
-                        // Show selection dialog
-                        selectedPatient = showPatientSelectionDialog(patients);
-                    }
-                }
-            }
+    private void selectPatient(List<Patient> patients) {
+        if (patients.isEmpty()) {
+            // The patient may be registered next, so don't remember the miss
+            patientSearch.invalidate();
+            JOptionPane.showMessageDialog(this, "Patient not found!");
+            return;
+        }
 
-            if (selectedPatient != null) {
-                selectedPatientLabel.setText("ID: " + selectedPatient.getPatientId() +
-                        " - " + selectedPatient.getFirstName());
-                selectedPatientLabel.setForeground(Constants.SUCCESS_COLOR);
-                bookAppointmentBtn.setEnabled(true);
-            } else {
-                JOptionPane.showMessageDialog(this, "Patient not found!");
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error: " + e.getMessage());
+        // Show selection dialog when there are several matches
+        Patient patient = patients.size() == 1 ? patients.get(0) : showPatientSelectionDialog(patients);
+        if (patient != null) {
+            selectedPatient = patient;
+            selectedPatientLabel.setText("ID: " + selectedPatient.getPatientId() +
+                    " - " + selectedPatient.getFirstName());
+            selectedPatientLabel.setForeground(Constants.SUCCESS_COLOR);
+            bookAppointmentBtn.setEnabled(true);
         }
     }
 
@@ -297,142 +335,128 @@ class AppointmentBookingPanel extends JPanel {
             int doctorIndex = doctorCombo.getSelectedIndex();
             Doctor doctor = doctors.get(doctorIndex);
             LocalDate appointmentDate = LocalDate.parse(appointmentDateField.getText().trim());
-            double consultationFee = doctor.getConsultationFee();
 
-            // System.out.println("DEBUG: Doctor: " + doctor.getUsername() + 
-            //                   ", User ID: " + doctor.getUserId() +
-            //                   ", Doctor ID: " + doctor.getDoctorId() +
-            //                   ", Consultation Fee: " + doctor.getConsultationFee());
-            
             //  FIX: Use user_id for all doctor-related operations
-            int doctorUserId = doctor.getUserId();
-            
-            //  CHECK 1: Check if doctor is available (not on leave)
-            DoctorScheduleDAO scheduleDAO = new DoctorScheduleDAO();
-            if (!scheduleDAO.isDoctorAvailable(doctorUserId, appointmentDate)) {
-                DoctorSchedule schedule = scheduleDAO.getScheduleForDate(doctorUserId, appointmentDate);
-                String reason = schedule != null && schedule.getReason() != null ? "\nReason: " + schedule.getReason()
-                        : "";
-
-                JOptionPane.showMessageDialog(this,
-                        "Dr. " + doctor.getUsername() + " is on LEAVE on " + appointmentDate + reason +
-                                "\n\nPlease select a different date or doctor.",
-                        "Doctor Not Available",
-                        JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            //  CHECK 2: Prevent same patient-doctor duplicate
-            if (appointmentDAO.hasAppointmentWithDoctor(
-                    selectedPatient.getPatientId(),
-                    doctorUserId, // Use user_id here
-                    appointmentDate)) {
-                JOptionPane.showMessageDialog(this,
-                        "This patient already has an appointment with Dr. " + doctor.getUsername() +
-                                " on " + appointmentDate + "!",
-                        "Duplicate Appointment",
-                        JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            // ✅ CHECK 3: Warn if patient has appointment with different doctor
-            if (appointmentDAO.hasAppointmentOnDate(
-                    selectedPatient.getPatientId(),
-                    appointmentDate)) {
-
-                Appointment existingAppt = appointmentDAO.getPatientAppointmentOnDate(
-                        selectedPatient.getPatientId(),
-                        appointmentDate);
-
-                int confirm = JOptionPane.showConfirmDialog(this,
-                        "WARNING: This patient already has an appointment on " + appointmentDate + "\n" +
-                                "Existing: Dr. " + existingAppt.getDoctorName() +
-                                " (Token #" + existingAppt.getTokenNumber() + ")\n\n" +
-                                "Do you want to book another appointment with a different doctor?",
-                        "Multiple Appointments Warning",
-                        JOptionPane.YES_NO_OPTION,
-                        JOptionPane.WARNING_MESSAGE);
-
-                if (confirm != JOptionPane.YES_OPTION) {
-                    return;
-                }
-            }
-
-            // Get next token for this doctor on this date
-            int tokenNumber = appointmentDAO.getNextTokenNumber(doctorUserId, appointmentDate); // Use user_id
-
             Appointment appointment = new Appointment();
             appointment.setPatientId(selectedPatient.getPatientId());
-            appointment.setDoctorId(doctorUserId); // Use user_id here
+            appointment.setPatientName(selectedPatient.getFirstName());
+            appointment.setDoctorId(doctor.getUserId()); // Use user_id here
+            appointment.setDoctorName(doctor.getUsername());
             appointment.setAppointmentDateTime(appointmentDate.atStartOfDay());
-            appointment.setTokenNumber(tokenNumber);
-            appointment.setConsultationFee(consultationFee);
             appointment.setStatus("SCHEDULED");
             appointment.setCreatedBy(currentUser.getUserId());
 
-            Appointment created = appointmentDAO.createAppointment(appointment);
-
-            if (created != null) {
-                JOptionPane.showMessageDialog(this,
-                        "Appointment booked successfully!\n" +
-                                "Token Number: " + tokenNumber + "\n" +
-                                "Patient: " + selectedPatient.getFirstName() + "\n" +
-                                "Doctor: Dr. " + doctor.getUsername() + "\n" +
-                                "Date: " + appointmentDate + "\n" +
-                                "Consultation Fee: ₹" + String.format("%.2f", consultationFee),
-                        "Success",
-                        JOptionPane.INFORMATION_MESSAGE);
-
-                loadTodaysAppointments();
-                clearFields();
-            }
-        } catch (SQLException e) {
-            // Handle SQL errors specifically
+            submitBooking(appointment, doctor, appointmentDate, false);
+        } catch (Exception e) {
             JOptionPane.showMessageDialog(this,
-                    "Database error: " + e.getMessage(),
+                    "Error booking appointment: " + e.getMessage(),
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
-        } catch (Exception e) {
+        }
+    }
+
+    /**
+     * Books in the background; the button stays disabled until it is done.
+     * The checks run inside the booking, and a refusal comes back as a
+     * BookingException.
+     */
+    private void submitBooking(Appointment appointment, Doctor doctor, LocalDate appointmentDate,
+                               boolean allowOtherDoctor) {
+        bookAppointmentBtn.setEnabled(false);
+        AsyncDAO.load(() -> bookingService.book(appointment, allowOtherDoctor), created -> {
+            bookAppointmentBtn.setEnabled(true);
             JOptionPane.showMessageDialog(this,
-                    "Error booking appointment: " + e.getMessage(),
+                    "Appointment booked successfully!\n" +
+                            "Token Number: " + created.getTokenNumber() + "\n" +
+                            "Patient: " + created.getPatientName() + "\n" +
+                            "Doctor: Dr. " + doctor.getUsername() + "\n" +
+                            "Date: " + appointmentDate + "\n" +
+                            "Consultation Fee: ₹" + String.format("%.2f", created.getConsultationFee()),
+                    "Success",
+                    JOptionPane.INFORMATION_MESSAGE);
+
+            appointmentQueue.pollNow();
+            clearFields();
+        }, e -> {
+            bookAppointmentBtn.setEnabled(true);
+            if (e instanceof BookingException) {
+                BookingException refusal = (BookingException) e;
+                if (allowOtherDoctor) {
+                    // A rule that changed between the two attempts, e.g. leave was just entered
+                    showBookingRefused(refusal, doctor);
+                } else if (confirmBooking(refusal, doctor, appointmentDate)) {
+                    submitBooking(appointment, doctor, appointmentDate, true);
+                }
+                return;
+            }
+            // Handle SQL errors specifically
+            JOptionPane.showMessageDialog(this,
+                    (e instanceof SQLException ? "Database error: " : "Error booking appointment: ") + e.getMessage(),
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
             e.printStackTrace();
-        }
+        });
     }
 
-    private void loadTodaysAppointments() {
-        try {
-            // show all today's appointments (not filtered by current user/doctor)
-            List<Appointment> appointments = appointmentDAO.getTodaysAppointments();
-            displayAppointments(appointments);  // FIXED: removed extra 'i'
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Error loading appointments: " + e.getMessage());
+    /**
+     * Tells the user why a booking was refused. Returns true only if they
+     * confirmed booking a second doctor for the same day.
+     */
+    private boolean confirmBooking(BookingException e, Doctor doctor, LocalDate appointmentDate) {
+        if (e.getReason() != BookingException.Reason.BOOKED_WITH_OTHER_DOCTOR) {
+            showBookingRefused(e, doctor);
+            return false;
         }
+
+        Appointment existingAppt = e.getExistingAppointment();
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "WARNING: This patient already has an appointment on " + appointmentDate + "\n" +
+                        "Existing: Dr. " + existingAppt.getDoctorName() +
+                        " (Token #" + existingAppt.getTokenNumber() + ")\n\n" +
+                        "Do you want to book another appointment with a different doctor?",
+                "Multiple Appointments Warning",
+                JOptionPane.YES_NO_OPTION,
+                JOptionPane.WARNING_MESSAGE);
+        return confirm == JOptionPane.YES_OPTION;
     }
 
-    private void displayAppointments(List<Appointment> appointments) {
-        tableModel.setRowCount(0);
-        for (Appointment apt : appointments) {
-            // Skip null appointments
-            if (apt == null) {
-                System.err.println("DEBUG: Found null appointment, skipping");
-                continue;
-            }
-            
-            Object[] row = {
-                apt.getTokenNumber(),
-                apt.getPatientName() != null ? apt.getPatientName() : "Unknown Patient",
-                apt.getDoctorName() != null ? apt.getDoctorName() : "Unknown Doctor",
-                apt.getAppointmentDateTime() != null ? apt.getAppointmentDateTime().toLocalDate() : LocalDate.now(),
-                "₹" + String.format("%.2f", apt.getConsultationFee()),
-                apt.getStatus() != null ? apt.getStatus() : "UNKNOWN"
-            };
-            tableModel.addRow(row);
+    private void showBookingRefused(BookingException e, Doctor doctor) {
+        String appointmentDate = appointmentDateField.getText().trim();
+        if (e.getReason() == BookingException.Reason.DOCTOR_ON_LEAVE) {
+            String reason = e.getLeaveReason() != null ? "\nReason: " + e.getLeaveReason() : "";
+            JOptionPane.showMessageDialog(this,
+                    "Dr. " + doctor.getUsername() + " is on LEAVE on " + appointmentDate + reason +
+                            "\n\nPlease select a different date or doctor.",
+                    "Doctor Not Available",
+                    JOptionPane.WARNING_MESSAGE);
+        } else if (e.getReason() == BookingException.Reason.DUPLICATE_WITH_DOCTOR) {
+            JOptionPane.showMessageDialog(this,
+                    "This patient already has an appointment with Dr. " + doctor.getUsername() +
+                            " on " + appointmentDate + "!",
+                    "Duplicate Appointment",
+                    JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, e.getMessage(),
+                    "Multiple Appointments Warning", JOptionPane.WARNING_MESSAGE);
         }
     }
 
+    private void loadTodaysAppointments() {
+        appointmentQueue.reload();
+    }
+
+    private static Object[] toRow(Appointment apt) {
+        return new Object[] {
+            apt.getTokenNumber(),
+            apt.getPatientName() != null ? apt.getPatientName() : "Unknown Patient",
+            apt.getDoctorName() != null ? apt.getDoctorName() : "Unknown Doctor",
+            apt.getAppointmentDateTime() != null ? apt.getAppointmentDateTime().toLocalDate() : LocalDate.now(),
+            "₹" + String.format("%.2f", apt.getConsultationFee()),
+            apt.getStatus() != null ? apt.getStatus() : "UNKNOWN"
+        };
+    }
+
     private void clearFields() {
         patientSearchField.setText("");
         selectedPatientLabel.setText("No patient selected");
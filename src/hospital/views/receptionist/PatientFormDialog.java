@@ -2,6 +2,7 @@ package hospital.views.receptionist;
 
 import hospital.dao.PatientDAO;
 import hospital.models.Patient;
+import hospital.services.DashboardStatsService;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -242,7 +243,12 @@ public class PatientFormDialog extends JDialog {
                 patientToSave.setMedicalHistory(medicalHistoryArea.getText().trim());
                 
                 if (patient == null) {
-                    return patientDAO.createPatient(patientToSave) != null;
+                    boolean created = patientDAO.createPatient(patientToSave) != null;
+                    if (created) {
+                        // Today's registrations and the patient total change
+                        DashboardStatsService.getInstance().invalidate();
+                    }
+                    return created;
                 } else {
                     return patientDAO.updatePatient(patientToSave);
                 }
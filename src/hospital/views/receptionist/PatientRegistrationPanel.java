@@ -1,25 +1,31 @@
 package hospital.views.receptionist;
 
+import hospital.controllers.SearchController;
 import hospital.dao.PatientDAO;
 import hospital.models.Patient;
 import hospital.models.User;
+import hospital.services.DashboardStatsService;
+import hospital.views.common.LazyTableModel;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
 
 public class PatientRegistrationPanel extends JPanel {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATETIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    
     private User currentUser;
     private PatientDAO patientDAO;
     private JTable patientsTable;
-    private DefaultTableModel tableModel;
+    private LazyTableModel<Patient> tableModel;
     private JTextField searchField;
     private JButton addButton, editButton, deleteButton, searchButton, clearButton;
+    private SearchController<Patient> searchController;
+    // Only an explicit search reports "no matches"; typing just shows the empty table
+    private boolean reportNoMatches;
     
     public PatientRegistrationPanel(User user) {
         this.currentUser = user;
@@ -35,12 +41,8 @@ public class PatientRegistrationPanel extends JPanel {
         
         // Table setup
         String[] columns = {"ID", "First Name", "Last Name", "Date of Birth", "Age", "Gender", "Medical History", "Registered Date"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new LazyTableModel<>(columns, PatientRegistrationPanel::toRow);
+        tableModel.setErrorHandler(e -> showError("Error loading patients: " + e.getMessage()));
         patientsTable = new JTable(tableModel);
         patientsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         patientsTable.getTableHeader().setFont(new Font("Segoe UI", Font.BOLD, 12));
@@ -156,62 +158,48 @@ public class PatientRegistrationPanel extends JPanel {
         addButton.addActionListener(e -> showAddPatientDialog());
         editButton.addActionListener(e -> editSelectedPatient());
         deleteButton.addActionListener(e -> deleteSelectedPatient());
-        searchButton.addActionListener(e -> searchPatients());
-        clearButton.addActionListener(e -> {
-            searchField.setText("");
-            loadPatients();
-        });
         
         // Real-time search
-        searchField.addKeyListener(new KeyAdapter() {
+        searchController = new SearchController<>(searchField, SearchController.DEFAULT_DELAY_MILLIS,
+                patientDAO::searchPatients, new SearchController.ResultHandler<Patient>() {
             @Override
-            public void keyReleased(KeyEvent e) {
-                if (searchField.getText().trim().isEmpty()) {
-                    loadPatients();
-                } else {
-                    searchPatients();
+            public void onResults(String term, List<Patient> patients) {
+                showPatients(patients);
+                if (patients.isEmpty() && reportNoMatches) {
+                    showInfo("No patients found matching: " + term);
                 }
+                reportNoMatches = false;
             }
-        });
-    }
-    
-    private void loadPatients() {
-        SwingWorker<List<Patient>, Void> worker = new SwingWorker<>() {
+            
             @Override
-            protected List<Patient> doInBackground() throws Exception {
-                return patientDAO.getAllPatients();
+            public void onError(String term, Exception e) {
+                showError("Error searching patients: " + e.getMessage());
             }
             
             @Override
-            protected void done() {
-                try {
-                    List<Patient> patients = get();
-                    tableModel.setRowCount(0);
-                    
-                    DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                    DateTimeFormatter datetimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-                    
-                    for (Patient patient : patients) {
-                        tableModel.addRow(new Object[]{
-                            patient.getPatientId(),
-                            patient.getFirstName(),
-                            patient.getLastName(),
-                            patient.getDateOfBirth() != null ? patient.getDateOfBirth().format(dateFormatter) : "",
-                            patient.getAge(),
-                            patient.getGender(),
-                            patient.getMedicalHistory() != null ? 
-                                (patient.getMedicalHistory().length() > 50 ? 
-                                 patient.getMedicalHistory().substring(0, 47) + "..." : 
-                                 patient.getMedicalHistory()) : "",
-                            patient.getRegisteredAt() != null ? patient.getRegisteredAt().format(datetimeFormatter) : ""
-                        });
-                    }
-                } catch (Exception e) {
-                    showError("Error loading patients: " + e.getMessage());
-                }
+            public void onCleared() {
+                loadPatients();
             }
-        };
-        worker.execute();
+        });
+        searchController.searchWhileTyping()
+                .setNarrower(PatientDAO::narrowSearch, PatientDAO.getDefaultSearchLimit());
+        
+        searchButton.addActionListener(e -> searchPatients());
+        searchField.addActionListener(e -> searchPatients());
+        clearButton.addActionListener(e -> {
+            searchField.setText("");
+            searchController.searchNow();
+        });
+    }
+    
+    private void searchPatients() {
+        reportNoMatches = true;
+        searchController.searchNow();
+    }
+    
+    // Pages are fetched as the table scrolls, so this returns immediately
+    private void loadPatients() {
+        tableModel.load(patientDAO::getPatientsPage);
     }
     
     private void showAddPatientDialog() {
@@ -219,7 +207,7 @@ public class PatientRegistrationPanel extends JPanel {
         dialog.setVisible(true);
         
         if (dialog.isSaved()) {
-            loadPatients();
+            refreshData();
         }
     }
     
@@ -230,7 +218,11 @@ public class PatientRegistrationPanel extends JPanel {
             return;
         }
         
-        int patientId = (Integer) tableModel.getValueAt(selectedRow, 0);
+        Patient selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return;
+        }
+        int patientId = selected.getPatientId();
         
         SwingWorker<Patient, Void> worker = new SwingWorker<>() {
             @Override
@@ -248,7 +240,7 @@ public class PatientRegistrationPanel extends JPanel {
                         dialog.setVisible(true);
                         
                         if (dialog.isSaved()) {
-                            loadPatients();
+                            refreshData();
                         }
                     }
                 } catch (Exception e) {
@@ -266,8 +258,12 @@ public class PatientRegistrationPanel extends JPanel {
             return;
         }
         
-        int patientId = (Integer) tableModel.getValueAt(selectedRow, 0);
-        String patientName = (String) tableModel.getValueAt(selectedRow, 1) + " " + (String) tableModel.getValueAt(selectedRow, 2);
+        Patient selected = tableModel.getRow(selectedRow);
+        if (selected == null) {
+            return;
+        }
+        int patientId = selected.getPatientId();
+        String patientName = selected.getFirstName() + " " + selected.getLastName();
         
         int confirm = JOptionPane.showConfirmDialog(this, 
             "Are you sure you want to delete patient: " + patientName + "?\nThis action cannot be undone.", 
@@ -282,7 +278,11 @@ public class PatientRegistrationPanel extends JPanel {
         SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
             @Override
             protected Boolean doInBackground() throws Exception {
-                return patientDAO.deletePatient(patientId);
+                boolean deleted = patientDAO.deletePatient(patientId);
+                if (deleted) {
+                    DashboardStatsService.getInstance().invalidate();
+                }
+                return deleted;
             }
             
             @Override
@@ -291,7 +291,7 @@ public class PatientRegistrationPanel extends JPanel {
                     boolean success = get();
                     if (success) {
                         showSuccess("Patient deleted successfully!");
-                        loadPatients();
+                        refreshData();
                     } else {
                         showError("Failed to delete patient");
                     }
@@ -303,53 +303,24 @@ public class PatientRegistrationPanel extends JPanel {
         worker.execute();
     }
     
-    private void searchPatients() {
-        String searchTerm = searchField.getText().trim();
-        if (searchTerm.isEmpty()) {
-            loadPatients();
-            return;
-        }
-        
-        SwingWorker<List<Patient>, Void> worker = new SwingWorker<>() {
-            @Override
-            protected List<Patient> doInBackground() throws Exception {
-                return patientDAO.searchPatients(searchTerm);
-            }
-            
-            @Override
-            protected void done() {
-                try {
-                    List<Patient> patients = get();
-                    tableModel.setRowCount(0);
-                    
-                    DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-                    DateTimeFormatter datetimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-                    
-                    for (Patient patient : patients) {
-                        tableModel.addRow(new Object[]{
-                            patient.getPatientId(),
-                            patient.getFirstName(),
-                            patient.getLastName(),
-                            patient.getDateOfBirth() != null ? patient.getDateOfBirth().format(dateFormatter) : "",
-                            patient.getAge(),
-                            patient.getGender(),
-                            patient.getMedicalHistory() != null ? 
-                                (patient.getMedicalHistory().length() > 50 ? 
-                                 patient.getMedicalHistory().substring(0, 47) + "..." : 
-                                 patient.getMedicalHistory()) : "",
-                            patient.getRegisteredAt() != null ? patient.getRegisteredAt().format(datetimeFormatter) : ""
-                        });
-                    }
-                    
-                    if (patients.isEmpty()) {
-                        showInfo("No patients found matching: " + searchTerm);
-                    }
-                } catch (Exception e) {
-                    showError("Error searching patients: " + e.getMessage());
-                }
-            }
+    private void showPatients(List<Patient> patients) {
+        tableModel.setRows(patients);
+    }
+    
+    private static Object[] toRow(Patient patient) {
+        return new Object[]{
+            patient.getPatientId(),
+            patient.getFirstName(),
+            patient.getLastName(),
+            patient.getDateOfBirth() != null ? patient.getDateOfBirth().format(DATE_FORMATTER) : "",
+            patient.getAge(),
+            patient.getGender(),
+            patient.getMedicalHistory() != null ? 
+                (patient.getMedicalHistory().length() > 50 ? 
+                 patient.getMedicalHistory().substring(0, 47) + "..." : 
+                 patient.getMedicalHistory()) : "",
+            patient.getRegisteredAt() != null ? patient.getRegisteredAt().format(DATETIME_FORMATTER) : ""
         };
-        worker.execute();
     }
     
     // Utility methods for showing messages
@@ -370,6 +341,8 @@ public class PatientRegistrationPanel extends JPanel {
     }
     
     public void refreshData() {
-        loadPatients();
+        // Patients were edited, so cached search results may be out of date
+        searchController.invalidate();
+        searchController.searchNow();
     }
 }
\ No newline at end of file
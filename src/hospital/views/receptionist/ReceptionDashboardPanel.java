@@ -1,7 +1,7 @@
 package hospital.views.receptionist;
 
-import hospital.dao.ReceptionDashboardDAO;
 import hospital.models.User;
+import hospital.services.DashboardStatsService;
 import javax.swing.*;
 import java.awt.*;
 import java.sql.SQLException;
@@ -9,7 +9,7 @@ import java.util.Map;
 
 public class ReceptionDashboardPanel extends JPanel {
     private User currentUser;
-    private ReceptionDashboardDAO dashboardDAO;
+    private DashboardStatsService statsService;
     private JLabel totalPatientsLabel;
     private JLabel todayAppointmentsLabel;
     private JLabel todayRegistrationsLabel;
@@ -17,7 +17,7 @@ public class ReceptionDashboardPanel extends JPanel {
     
     public ReceptionDashboardPanel(User user) {
         this.currentUser = user;
-        this.dashboardDAO = new ReceptionDashboardDAO();
+        this.statsService = DashboardStatsService.getInstance();
         initializeComponents();
         setupLayout();
     }
@@ -97,7 +97,7 @@ public class ReceptionDashboardPanel extends JPanel {
         SwingWorker<Map<String, Object>, Void> worker = new SwingWorker<>() {
             @Override
             protected Map<String, Object> doInBackground() throws Exception {
-                return dashboardDAO.getReceptionStats();
+                return statsService.getStats();
             }
             
             @Override
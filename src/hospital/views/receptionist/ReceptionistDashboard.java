@@ -3,6 +3,7 @@ package hospital.views.receptionist;
 import hospital.models.User;
 import hospital.utils.Constants;
 import hospital.views.common.BaseFrame;
+import hospital.views.common.LazyCardPanel;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
@@ -10,7 +11,7 @@ import java.awt.event.ActionEvent;
 
 public class ReceptionistDashboard extends BaseFrame {
     private User currentUser;
-    private JPanel contentPanel;
+    private LazyCardPanel contentPanel;
     private JPanel sidePanel;
     
     // Menu buttons
@@ -20,12 +21,6 @@ public class ReceptionistDashboard extends BaseFrame {
     private JButton billingBtn;
     private JButton logoutBtn;
     
-    // Content panels
-    private ReceptionDashboardPanel dashboardPanel;
-    private PatientRegistrationPanel patientPanel;
-    private AppointmentBookingPanel appointmentPanel;
-    private BillingPanel billingPanel;
-    
     public ReceptionistDashboard(User user) {
         super("Receptionist Dashboard - " + Constants.APP_NAME);
         this.currentUser = user;
@@ -49,7 +44,7 @@ public class ReceptionistDashboard extends BaseFrame {
         sidePanel.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1)); // Light gray border
         
         // Content panel
-        contentPanel = new JPanel(new CardLayout());
+        contentPanel = new LazyCardPanel();
         contentPanel.setBackground(Color.WHITE);
         
         // Menu buttons
@@ -59,11 +54,14 @@ public class ReceptionistDashboard extends BaseFrame {
         billingBtn = createMenuButton("💰 Billing", "billing");
         logoutBtn = createMenuButton("🚪 Logout", "logout");
         
-        // Create panels
-        dashboardPanel = new ReceptionDashboardPanel(currentUser);
-        patientPanel = new PatientRegistrationPanel(currentUser);
-        appointmentPanel = new AppointmentBookingPanel(currentUser);
-        billingPanel = new BillingPanel(currentUser);
+        // Register panels; each is built the first time it is shown
+        contentPanel.register("dashboard", () -> new ReceptionDashboardPanel(currentUser),
+                ReceptionDashboardPanel::refreshData);
+        contentPanel.register("patients", () -> new PatientRegistrationPanel(currentUser),
+                PatientRegistrationPanel::refreshData);
+        contentPanel.register("appointments", () -> new AppointmentBookingPanel(currentUser),
+                AppointmentBookingPanel::refreshData);
+        contentPanel.register("billing", () -> new BillingPanel(currentUser), BillingPanel::refreshData);
     }
     
     @Override
@@ -71,11 +69,6 @@ public class ReceptionistDashboard extends BaseFrame {
         setLayout(new BorderLayout());
         setupSidePanel();
         
-        contentPanel.add(dashboardPanel, "dashboard");
-        contentPanel.add(patientPanel, "patients");
-        contentPanel.add(appointmentPanel, "appointments");
-        contentPanel.add(billingPanel, "billing");
-        
         add(sidePanel, BorderLayout.WEST);
         add(contentPanel, BorderLayout.CENTER);
     }
@@ -158,7 +151,6 @@ public class ReceptionistDashboard extends BaseFrame {
     protected void setupEventHandlers() {
         ActionListener menuListener = e -> {
             String cmd = e.getActionCommand();
-            CardLayout cl = (CardLayout) contentPanel.getLayout();
             
             // Reset all buttons
             resetMenuButtons();
@@ -179,16 +171,13 @@ public class ReceptionistDashboard extends BaseFrame {
                     showDashboard();
                     break;
                 case "patients":
-                    cl.show(contentPanel, "patients");
-                    patientPanel.refreshData();
+                    contentPanel.show("patients");
                     break;
                 case "appointments":
-                    cl.show(contentPanel, "appointments");
-                    appointmentPanel.refreshData();
+                    contentPanel.show("appointments");
                     break;
                 case "billing":
-                    cl.show(contentPanel, "billing");
-                    billingPanel.refreshData();
+                    contentPanel.show("billing");
                     break;
                 case "logout":
                     handleLogout();
@@ -226,9 +215,8 @@ public class ReceptionistDashboard extends BaseFrame {
     }
     
     private void showDashboard() {
-        CardLayout cl = (CardLayout) contentPanel.getLayout();
-        cl.show(contentPanel, "dashboard");
-        dashboardPanel.refreshData();
+        contentPanel.show("dashboard");
+        contentPanel.prefetch("appointments");
         
         // Highlight dashboard button
         resetMenuButtons();